@@ -0,0 +1,129 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate;
+
+import org.openjdk.jmh.annotations.*;
+import org.spongepowered.configurate.BasicConfigurationNode;
+import org.spongepowered.configurate.ConfigurationNode;
+import org.spongepowered.configurate.ConfigurationOptions;
+import org.spongepowered.configurate.objectmapping.ConfigSerializable;
+import org.spongepowered.configurate.objectmapping.ObjectMapper;
+import org.spongepowered.configurate.serialize.SerializationException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure object mapping of a configuration with a few hundred fields, with the reflective
+ * mapper of Configurate and with the method handle accessors of {@link AccessorFieldDiscoverer}.
+ * <p>
+ * Lives in the core package to reach the package private mapper factory.
+ */
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MapperBenchmark {
+
+    private static final int SECTIONS = 30;
+
+    public enum Backend {
+        REFLECTION {
+            @Override
+            ObjectMapper.Factory factory() {
+                return ObjectMapper.factory();
+            }
+        },
+        ACCESSORS {
+            @Override
+            ObjectMapper.Factory factory() {
+                return AccessorFieldDiscoverer.FACTORY;
+            }
+        };
+
+        abstract ObjectMapper.Factory factory();
+    }
+
+    @Param({"REFLECTION", "ACCESSORS"})
+    public Backend backend;
+
+    private ObjectMapper<WideConfig> mapper;
+    private ConfigurationNode node;
+    private WideConfig config;
+
+    @Setup(Level.Trial)
+    public void setup() throws SerializationException {
+        ObjectMapper.Factory factory = backend.factory();
+        ConfigurationOptions options = ConfigurationOptions.defaults().serializers(build -> build.registerAnnotatedObjects(factory));
+        mapper = factory.get(WideConfig.class);
+
+        config = new WideConfig();
+        for (int i = 0; i < SECTIONS; i++) {
+            WideSection section = new WideSection();
+            section.name = "section-" + i;
+            section.host = "host-" + i + ".example.com";
+            section.port = 1000 + i;
+            section.timeout = 30_000L + i;
+            section.ratio = i / 7d;
+            section.weight = i / 3f;
+            section.retries = i % 5;
+            section.enabled = i % 2 == 0;
+            section.tags = Arrays.asList("tag-" + i, "group-" + i % 3);
+            section.description = "Generated section " + i;
+            config.sections.add(section);
+        }
+        node = BasicConfigurationNode.root(options);
+        mapper.save(config, node);
+    }
+
+    @Benchmark
+    public WideConfig load() throws SerializationException {
+        return mapper.load(node);
+    }
+
+    @Benchmark
+    public ConfigurationNode save() throws SerializationException {
+        ConfigurationNode target = BasicConfigurationNode.root(node.options());
+        mapper.save(config, target);
+        return target;
+    }
+
+    @ConfigSerializable
+    public static class WideConfig {
+        public String name = "wide";
+        public int version = 1;
+        public List<WideSection> sections = new ArrayList<>();
+    }
+
+    @ConfigSerializable
+    public static class WideSection {
+        public String name = "";
+        public String host = "localhost";
+        public int port = 0;
+        public long timeout = 0;
+        public double ratio = 0;
+        public float weight = 0;
+        public int retries = 0;
+        public boolean enabled = true;
+        public List<String> tags = new ArrayList<>();
+        public String description = "";
+    }
+}
@@ -0,0 +1,35 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate.benchmarks;
+
+/**
+ * Common contract of the per format benchmark configurations.
+ */
+public interface BenchmarkConfig {
+
+    /**
+     * Fill the configuration with generated entries
+     *
+     * @param size Size of the generated configuration
+     */
+    void populate(BenchmarkSize size);
+
+    /**
+     * Change a value so that the next save has something to write
+     */
+    void touch();
+}
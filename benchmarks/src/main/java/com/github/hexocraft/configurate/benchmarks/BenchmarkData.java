@@ -0,0 +1,82 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Helpers generating benchmark data.
+ */
+public final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Generate entries for the given size
+     *
+     * @param size Size of the generated configuration
+     * @return Generated entries
+     */
+    public static Map<String, BenchmarkEntry> entries(BenchmarkSize size) {
+        Map<String, BenchmarkEntry> entries = new LinkedHashMap<>();
+        for (int i = 0; i < size.entries(); i++) {
+            BenchmarkEntry entry = new BenchmarkEntry();
+            entry.name = "Entry number " + i;
+            entry.enabled = (i & 1) == 0;
+            entry.amount = i;
+            entry.weight = i / 3.0;
+            entry.tags.add("tag" + (i % 7));
+            entry.tags.add("tag" + (i % 11));
+            entries.put("entry" + i, entry);
+        }
+        return entries;
+    }
+
+    /**
+     * Create a temporary directory for a benchmark trial
+     *
+     * @return Temporary directory
+     * @throws IOException if the directory cannot be created
+     */
+    public static Path createDirectory() throws IOException {
+        return Files.createTempDirectory("configurate-benchmarks");
+    }
+
+    /**
+     * Delete a directory created by {@link #createDirectory()}
+     *
+     * @param directory Directory to delete
+     * @throws IOException if a file cannot be deleted
+     */
+    public static void deleteDirectory(Path directory) throws IOException {
+        if (directory == null || !Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate.benchmarks;
+
+import org.spongepowered.configurate.objectmapping.ConfigSerializable;
+import org.spongepowered.configurate.objectmapping.meta.Comment;
+
+/**
+ * Nested section stored in benchmark configurations.
+ */
+@ConfigSerializable
+public class BenchmarkDatabase {
+
+    @Comment("Set the database to use")
+    public String host = "localhost";
+
+    @Comment("Configure database port")
+    public int port = 3306;
+
+    @Comment("Database user")
+    public String user = "configurate";
+}
@@ -0,0 +1,99 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate.benchmarks;
+
+import com.github.hexocraft.configurate.AbstractConfiguration;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.spongepowered.configurate.ConfigurateException;
+
+import java.io.File;
+import java.nio.file.Path;
+
+/**
+ * Configuration formats covered by the benchmarks.
+ */
+public enum BenchmarkFormat {
+
+    YAML("yaml") {
+        @Override
+        public AbstractConfiguration<?, ?> create(@Nullable File file) throws ConfigurateException {
+            return new YamlBenchmarkConfig(file);
+        }
+    },
+
+    HOCON("conf") {
+        @Override
+        public AbstractConfiguration<?, ?> create(@Nullable File file) throws ConfigurateException {
+            return new HoconBenchmarkConfig(file);
+        }
+    },
+
+    XML("xml") {
+        @Override
+        public AbstractConfiguration<?, ?> create(@Nullable File file) throws ConfigurateException {
+            return new XmlBenchmarkConfig(file);
+        }
+    },
+
+    GSON("json") {
+        @Override
+        public AbstractConfiguration<?, ?> create(@Nullable File file) throws ConfigurateException {
+            return new GsonBenchmarkConfig(file);
+        }
+    };
+
+    private final String extension;
+
+    BenchmarkFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Create a benchmark configuration of this format
+     *
+     * @param file The configuration file
+     * @return Configuration
+     * @throws ConfigurateException if an error happen while instantiating the object
+     */
+    public abstract AbstractConfiguration<?, ?> create(@Nullable File file) throws ConfigurateException;
+
+    /**
+     * Create a populated benchmark configuration of this format and save it
+     *
+     * @param file The configuration file
+     * @param size Size of the generated configuration
+     * @return Configuration
+     * @throws ConfigurateException if an error happen while saving the configuration
+     */
+    public AbstractConfiguration<?, ?> createAndSave(File file, BenchmarkSize size) throws ConfigurateException {
+        AbstractConfiguration<?, ?> config = create(file);
+        ((BenchmarkConfig) config).populate(size);
+        config.save();
+        return config;
+    }
+
+    /**
+     * Gets the configuration file used for a given size
+     *
+     * @param directory Benchmark directory
+     * @param size      Size of the generated configuration
+     * @return File
+     */
+    public File file(Path directory, BenchmarkSize size) {
+        return directory.resolve(size.name().toLowerCase() + "." + extension).toFile();
+    }
+}
@@ -0,0 +1,53 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate.benchmarks;
+
+/**
+ * Size of the generated configuration used by the benchmarks.
+ */
+public enum BenchmarkSize {
+
+    /**
+     * A handful of entries, close to a typical plugin configuration
+     */
+    SMALL(10),
+
+    /**
+     * About a thousand entries, close to a per-world configuration
+     */
+    MEDIUM(1_000),
+
+    /**
+     * A hundred thousand entries, close to an item or player database
+     */
+    LARGE(100_000);
+
+    private final int entries;
+
+    BenchmarkSize(int entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Gets the number of generated entries
+     *
+     * @return Number of entries
+     */
+    public int entries() {
+        return entries;
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate.benchmarks;
+
+import com.github.hexocraft.configurate.BulkLoader;
+import org.openjdk.jmh.annotations.*;
+import org.spongepowered.configurate.ConfigurateException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure loading many small YAML files, one after the other or with a {@link BulkLoader}.
+ */
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BulkLoadBenchmark {
+
+    @Param({"1000"})
+    public int files;
+
+    /**
+     * Threads of the bulk loader, the files are loaded one after the other on the benchmark thread with 0
+     */
+    @Param({"0", "1", "4", "16"})
+    public int threads;
+
+    private Path directory;
+    private List<File> list;
+    private ExecutorService executor;
+    private BulkLoader<YamlBenchmarkConfig> loader;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = BenchmarkData.createDirectory();
+        list = new ArrayList<>(files);
+        for (int i = 0; i < files; i++) {
+            File file = directory.resolve("config-" + i + ".yaml").toFile();
+            BenchmarkFormat.YAML.createAndSave(file, BenchmarkSize.SMALL);
+            list.add(file);
+        }
+        if (threads > 0) {
+            executor = Executors.newFixedThreadPool(threads);
+            loader = BulkLoader.of(YamlBenchmarkConfig::new).executor(executor);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (executor != null) {
+            executor.shutdown();
+        }
+        BenchmarkData.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public Object load() throws ConfigurateException {
+        if (loader != null) {
+            return loader.load(list);
+        }
+        List<YamlBenchmarkConfig> loaded = new ArrayList<>(list.size());
+        for (File file : list) {
+            loaded.add(new YamlBenchmarkConfig(file).loadFrom(file));
+        }
+        return loaded;
+    }
+}
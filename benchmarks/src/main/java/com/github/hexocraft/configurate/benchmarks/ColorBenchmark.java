@@ -0,0 +1,134 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate.benchmarks;
+
+import com.github.hexocraft.configurate.serialize.ColorSerializer;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.spongepowered.configurate.BasicConfigurationNode;
+import org.spongepowered.configurate.ConfigurationNode;
+import org.spongepowered.configurate.serialize.SerializationException;
+import org.spongepowered.configurate.serialize.TypeSerializer;
+
+import java.awt.*;
+import java.lang.reflect.Type;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure reading and writing a table of colors with {@link ColorSerializer}, against the regex based implementation
+ * it replaced.
+ * <p>
+ * {@code distinct} is the number of different colors in the table: a palette reused many times, or only unique colors
+ * which mostly miss the caches.
+ */
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ColorBenchmark {
+
+    private static final int COLORS = 10_000;
+
+    public enum Implementation {
+        REGEX(new RegexColorSerializer()),
+        CURRENT(ColorSerializer.INSTANCE);
+
+        private final TypeSerializer<Color> serializer;
+
+        Implementation(TypeSerializer<Color> serializer) {
+            this.serializer = serializer;
+        }
+    }
+
+    @Param({"REGEX", "CURRENT"})
+    public Implementation implementation;
+
+    @Param({"256", "10000"})
+    public int distinct;
+
+    private ConfigurationNode[] nodes;
+    private Color[] colors;
+    private ConfigurationNode target;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        int[] palette = new int[distinct];
+        for (int i = 0; i < distinct; i++)
+            palette[i] = random.nextInt();
+
+        nodes = new ConfigurationNode[COLORS];
+        colors = new Color[COLORS];
+        for (int i = 0; i < COLORS; i++) {
+            int argb = palette[i % distinct];
+            // New strings, as a loader would create them
+            nodes[i] = BasicConfigurationNode.root().raw(new String(String.format("#%08X", argb).toCharArray()));
+            colors[i] = new Color(argb, true);
+        }
+        target = BasicConfigurationNode.root();
+    }
+
+    @Benchmark
+    public void deserialize(Blackhole blackhole) throws SerializationException {
+        TypeSerializer<Color> serializer = implementation.serializer;
+        for (ConfigurationNode node : nodes)
+            blackhole.consume(serializer.deserialize(Color.class, node));
+    }
+
+    @Benchmark
+    public void serialize(Blackhole blackhole) throws SerializationException {
+        TypeSerializer<Color> serializer = implementation.serializer;
+        for (Color color : colors) {
+            serializer.serialize(Color.class, color, target);
+            blackhole.consume(target.rawScalar());
+        }
+    }
+
+    /**
+     * Previous implementation of {@link ColorSerializer}.
+     */
+    private static final class RegexColorSerializer implements TypeSerializer<Color> {
+
+        @Override
+        public Color deserialize(final Type type, final ConfigurationNode node) throws SerializationException {
+            String color = node.getString().replaceAll("#", "").replaceAll("0x", "").replaceAll("_", "");
+            if (color.length() == 6)
+                return new Color((int) Long.parseLong(color, 16), false);
+            else if (color.length() == 8)
+                return new Color((int) Long.parseLong(color, 16), true);
+            return null;
+        }
+
+        @Override
+        public void serialize(final Type type, final @Nullable Color obj, final ConfigurationNode node) throws SerializationException {
+            String alpha = Integer.toHexString(obj.getAlpha());
+            String red = Integer.toHexString(obj.getRed());
+            String green = Integer.toHexString(obj.getGreen());
+            String blue = Integer.toHexString(obj.getBlue());
+            alpha = alpha.length() == 1 ? "0" + alpha : alpha;
+            red = red.length() == 1 ? "0" + red : red;
+            green = green.length() == 1 ? "0" + green : green;
+            blue = blue.length() == 1 ? "0" + blue : blue;
+            String argb = "#" + alpha.toUpperCase() + red.toUpperCase() + green.toUpperCase() + blue.toUpperCase();
+            node.raw(argb);
+        }
+    }
+}
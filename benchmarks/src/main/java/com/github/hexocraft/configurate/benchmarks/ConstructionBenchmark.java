@@ -0,0 +1,65 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.spongepowered.configurate.ConfigurateException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure the cost of constructing configuration objects, which happens once
+ * per configuration file and once more for every loaded instance.
+ */
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConstructionBenchmark {
+
+    @Param({"YAML", "HOCON", "XML", "GSON"})
+    public BenchmarkFormat format;
+
+    private Path directory;
+    private File file;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = BenchmarkData.createDirectory();
+        file = format.file(directory, BenchmarkSize.SMALL);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkData.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public Object construct() throws ConfigurateException {
+        return format.create(file);
+    }
+
+    @Benchmark
+    public Object constructWithoutFile() throws ConfigurateException {
+        return format.create(null);
+    }
+}
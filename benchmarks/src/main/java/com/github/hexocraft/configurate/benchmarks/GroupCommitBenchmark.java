@@ -0,0 +1,86 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate.benchmarks;
+
+import com.github.hexocraft.configurate.AbstractConfiguration;
+import com.github.hexocraft.configurate.GroupCommit;
+import com.github.hexocraft.configurate.SaveMode;
+import org.openjdk.jmh.annotations.*;
+import org.spongepowered.configurate.ConfigurateException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure committing many files saved with {@link SaveMode#GROUP_COMMIT}, as done at shutdown.
+ */
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GroupCommitBenchmark {
+
+    @Param({"100"})
+    public int files;
+
+    /**
+     * Files forced at the same time, one after the other with 1
+     */
+    @Param({"1", "4", "16"})
+    public int parallelism;
+
+    private Path directory;
+    private List<AbstractConfiguration<?, ?>> configs;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = BenchmarkData.createDirectory();
+        configs = new ArrayList<>(files);
+        for (int i = 0; i < files; i++) {
+            AbstractConfiguration<?, ?> config = BenchmarkFormat.YAML.createAndSave(directory.resolve("config-" + i + ".yaml").toFile(), BenchmarkSize.SMALL);
+            config.setSaveMode(SaveMode.GROUP_COMMIT);
+            configs.add(config);
+        }
+        GroupCommit.window(1, TimeUnit.HOURS);
+        GroupCommit.parallelism(parallelism);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        GroupCommit.window(GroupCommit.DEFAULT_WINDOW, TimeUnit.MILLISECONDS);
+        GroupCommit.parallelism(GroupCommit.DEFAULT_PARALLELISM);
+        BenchmarkData.deleteDirectory(directory);
+    }
+
+    @Setup(Level.Invocation)
+    public void save() throws ConfigurateException {
+        for (AbstractConfiguration<?, ?> config : configs) {
+            ((BenchmarkConfig) config).touch();
+            config.save();
+        }
+    }
+
+    @Benchmark
+    public void flush() throws IOException {
+        GroupCommit.flush();
+    }
+}
@@ -0,0 +1,62 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate.benchmarks;
+
+import com.github.hexocraft.configurate.gson.GsonConfiguration;
+import io.leangen.geantyref.TypeToken;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.spongepowered.configurate.ConfigurateException;
+import org.spongepowered.configurate.objectmapping.ConfigSerializable;
+import org.spongepowered.configurate.objectmapping.meta.Comment;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@ConfigSerializable
+public class GsonBenchmarkConfig extends GsonConfiguration<GsonBenchmarkConfig> implements BenchmarkConfig {
+
+    @Comment("Config version")
+    public int version = 1;
+
+    @Comment("Server name")
+    public String name = "benchmark";
+
+    @Comment("Database")
+    public BenchmarkDatabase database = new BenchmarkDatabase();
+
+    @Comment("Generated entries")
+    public Map<String, BenchmarkEntry> entries = new LinkedHashMap<>();
+
+    public GsonBenchmarkConfig(@Nullable File file) throws ConfigurateException {
+        super(TypeToken.get(GsonBenchmarkConfig.class), file);
+    }
+
+    public GsonBenchmarkConfig() throws ConfigurateException {
+        this(null);
+    }
+
+    @Override
+    public void populate(BenchmarkSize size) {
+        entries = BenchmarkData.entries(size);
+    }
+
+    @Override
+    public void touch() {
+        version++;
+    }
+}
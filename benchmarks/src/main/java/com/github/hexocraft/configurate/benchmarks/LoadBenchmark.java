@@ -0,0 +1,85 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate.benchmarks;
+
+import com.github.hexocraft.configurate.AbstractConfiguration;
+import com.github.hexocraft.configurate.StreamMode;
+import org.openjdk.jmh.annotations.*;
+import org.spongepowered.configurate.ConfigurateException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure {@code load()} and {@code loadFrom(File)} for every format and size,
+ * and {@code load()} from the binary cache or while streaming.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoadBenchmark {
+
+    @Param({"YAML", "HOCON", "XML", "GSON"})
+    public BenchmarkFormat format;
+
+    @Param({"SMALL", "MEDIUM", "LARGE"})
+    public BenchmarkSize size;
+
+    private Path directory;
+    private File file;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = BenchmarkData.createDirectory();
+        file = format.file(directory, size);
+        format.createAndSave(file, size);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkData.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public Object load() throws ConfigurateException {
+        return format.create(file).load();
+    }
+
+    @Benchmark
+    public Object loadCached() throws ConfigurateException {
+        AbstractConfiguration<?, ?> config = format.create(file);
+        config.setCached(true);
+        return config.load();
+    }
+
+    @Benchmark
+    public Object loadStreamed() throws ConfigurateException {
+        AbstractConfiguration<?, ?> config = format.create(file);
+        config.setStreamMode(StreamMode.KEEP_UNKNOWN);
+        return config.load();
+    }
+
+    @Benchmark
+    public Object loadFrom() throws ConfigurateException {
+        return format.create(null).loadFrom(file);
+    }
+}
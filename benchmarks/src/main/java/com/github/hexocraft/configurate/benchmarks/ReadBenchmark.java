@@ -0,0 +1,94 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate.benchmarks;
+
+import com.github.hexocraft.configurate.AbstractConfiguration;
+import com.github.hexocraft.configurate.ConfigurationKey;
+import org.openjdk.jmh.annotations.*;
+import org.spongepowered.configurate.serialize.SerializationException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure reads of a single value from a loaded configuration.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReadBenchmark {
+
+    private static final ConfigurationKey<String> HOST = ConfigurationKey.of("database.host", String.class);
+
+    @Param({"YAML"})
+    public BenchmarkFormat format;
+
+    @Param({"SMALL"})
+    public BenchmarkSize size;
+
+    private Path directory;
+    private AbstractConfiguration<?, ?> config;
+    private AbstractConfiguration<?, ?>[] configs;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = BenchmarkData.createDirectory();
+        File file = format.file(directory, size);
+        format.createAndSave(file, size);
+        config = format.create(file).load();
+        config.setIndexed(true);
+        configs = new AbstractConfiguration<?, ?>[1000];
+        for (int i = 0; i < configs.length; i++) {
+            configs[i] = format.create(file).load();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkData.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public Object splitPath() {
+        return config.getRoot().node((Object[]) "database.host".split("\\.")).getString();
+    }
+
+    @Benchmark
+    public Object key() throws SerializationException {
+        return config.get(HOST);
+    }
+
+    /**
+     * Read the same key from many configurations in turn, as with per player or per world configurations
+     */
+    @Benchmark
+    public Object keyAcrossConfigs() throws SerializationException {
+        next = next + 1 == configs.length ? 0 : next + 1;
+        return configs[next].get(HOST);
+    }
+
+    @Benchmark
+    public int index() {
+        return config.getIndex().getInt("database.port", 0);
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate.benchmarks;
+
+import com.github.hexocraft.configurate.ConfigurationSerializers;
+import com.github.hexocraft.configurate.MapperBenchmark.WideConfig;
+import com.github.hexocraft.configurate.MapperBenchmark.WideSection;
+import com.github.hexocraft.configurate.serialize.ColorSerializer;
+import io.leangen.geantyref.TypeToken;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.spongepowered.configurate.BasicConfigurationNode;
+import org.spongepowered.configurate.ConfigurationNode;
+import org.spongepowered.configurate.ConfigurationOptions;
+import org.spongepowered.configurate.objectmapping.ObjectMapper;
+import org.spongepowered.configurate.serialize.SerializationException;
+import org.spongepowered.configurate.serialize.TypeSerializerCollection;
+
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure serializer resolution with the shared {@link ConfigurationSerializers}, against a child collection of the
+ * Configurate defaults as each configuration used to derive.
+ */
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializerBenchmark {
+
+    private static final int SECTIONS = 30;
+
+    private static final Type[] TYPES = {
+            String.class, int.class, long.class, double.class, float.class, boolean.class,
+            new TypeToken<List<String>>() {}.getType(), WideSection.class
+    };
+
+    public enum Registry {
+        CHILD {
+            @Override
+            TypeSerializerCollection serializers() {
+                return TypeSerializerCollection.defaults().childBuilder()
+                        .register(ColorSerializer.TYPE, ColorSerializer.INSTANCE)
+                        .registerAnnotatedObjects(ObjectMapper.factory())
+                        .build();
+            }
+        },
+        SHARED {
+            @Override
+            TypeSerializerCollection serializers() {
+                return ConfigurationSerializers.serializers();
+            }
+        };
+
+        abstract TypeSerializerCollection serializers();
+    }
+
+    @Param({"CHILD", "SHARED"})
+    public Registry registry;
+
+    private TypeSerializerCollection serializers;
+    private ObjectMapper<WideConfig> mapper;
+    private ConfigurationNode node;
+
+    @Setup(Level.Trial)
+    public void setup() throws SerializationException {
+        serializers = registry.serializers();
+        ConfigurationOptions options = ConfigurationOptions.defaults().serializers(serializers);
+        mapper = ObjectMapper.factory().get(WideConfig.class);
+
+        WideConfig config = new WideConfig();
+        for (int i = 0; i < SECTIONS; i++) {
+            WideSection section = new WideSection();
+            section.name = "section-" + i;
+            section.port = 1000 + i;
+            section.tags = Arrays.asList("tag-" + i, "group-" + i % 3);
+            config.sections.add(section);
+        }
+        node = BasicConfigurationNode.root(options);
+        mapper.save(config, node);
+    }
+
+    @Benchmark
+    public void lookup(Blackhole blackhole) {
+        for (Type type : TYPES) {
+            blackhole.consume(serializers.get(type));
+        }
+    }
+
+    @Benchmark
+    public WideConfig load() throws SerializationException {
+        return mapper.load(node);
+    }
+}
@@ -16,25 +16,54 @@
  */
 package com.github.hexocraft.configurate;
 
+import com.github.hexocraft.configurate.ConfigurationMetrics.Phase;
 import com.github.hexocraft.configurate.annotations.Configuration;
 import com.github.hexocraft.configurate.annotations.ConfigurationClass;
 import com.github.hexocraft.configurate.annotations.ConfigurationFile;
 import com.github.hexocraft.configurate.annotations.ConfigurationHeader;
-import com.github.hexocraft.configurate.serialize.ColorSerializer;
 import io.leangen.geantyref.TypeToken;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.spongepowered.configurate.*;
 import org.spongepowered.configurate.loader.ConfigurationLoader;
 import org.spongepowered.configurate.loader.HeaderMode;
+import org.spongepowered.configurate.objectmapping.FieldData;
 import org.spongepowered.configurate.objectmapping.ObjectMapper;
+import org.spongepowered.configurate.serialize.SerializationException;
+import org.spongepowered.configurate.util.CheckedSupplier;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.ServiceLoader;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 @SuppressWarnings({"unchecked", "unused", "FieldCanBeLocal"})
 public abstract class AbstractConfiguration<C extends AbstractConfiguration<?, ?>, N extends ScopedConfigurationNode<?>> {
 
+    /**
+     * Metrics registered as services, used in addition to the metrics set
+     */
+    private static final ConfigurationMetrics SERVICE_METRICS = discoverMetrics();
+
+    /**
+     * Metrics receiving the timings of every configuration
+     */
+    private static volatile ConfigurationMetrics metrics = ConfigurationMetrics.NONE;
+
+    /**
+     * Metrics set combined with the metrics registered as services
+     */
+    private static volatile ConfigurationMetrics combinedMetrics = SERVICE_METRICS;
+
     /**
      * Configuration file from which to save and/or load.
      */
@@ -58,6 +87,20 @@ public abstract class AbstractConfiguration<C extends AbstractConfiguration<?, ?
      */
     private transient HeaderMode headerMode;
 
+    /**
+     * Mode used to write the configuration file.
+     * <p>
+     * Defaults to {@link SaveMode#ATOMIC}.
+     */
+    private transient SaveMode saveMode = SaveMode.ATOMIC;
+
+    /**
+     * Mode used to populate the configuration object when loading.
+     * <p>
+     * Defaults to {@link LoadMode#NEW_INSTANCE}.
+     */
+    private transient LoadMode loadMode = LoadMode.NEW_INSTANCE;
+
     /**
      * Object which can load and save {@link ConfigurationNode} objects in a specific
      * configuration format.
@@ -70,9 +113,28 @@ public abstract class AbstractConfiguration<C extends AbstractConfiguration<?, ?
     private transient ObjectMapper<C> mapper;
 
     /**
-     * A configuration node that can have a comment attached to it.
+     * Node tree last loaded from or saved to the configuration file.
+     * <p>
+     * The snapshot is replaced as a whole, never modified, so that it can be read from any thread.
      */
-    private transient volatile N root;
+    private transient volatile ConfigurationSnapshot<N> snapshot;
+
+    /**
+     * Mode used to read the configuration file.
+     * <p>
+     * Defaults to {@link StreamMode#DISABLED}.
+     */
+    private transient StreamMode streamMode = StreamMode.DISABLED;
+
+    /**
+     * Whether node trees are cached by {@link BinaryCache}
+     */
+    private transient volatile boolean cached = false;
+
+    /**
+     * Whether snapshots are indexed by {@link ConfigurationIndex}
+     */
+    private transient volatile boolean indexed = false;
 
 
     /**
@@ -88,39 +150,59 @@ public abstract class AbstractConfiguration<C extends AbstractConfiguration<?, ?
      * @throws ConfigurateException if an error happen while instantiating the object
      */
     public AbstractConfiguration(@Nullable TypeToken<C> type, @Nullable File file, @Nullable ConfigurationOptions options, @Nullable HeaderMode headerMode) throws ConfigurateException {
+        ConfigurationMetrics metrics = enabledMetrics();
+        if (metrics == null) {
+            create(type, file, options, headerMode);
+        } else {
+            measure(metrics, Phase.CREATE, file, () -> {
+                create(type, file, options, headerMode);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Resolve the class level metadata and initialize this configuration
+     *
+     * @param type       Token holding the class type to map
+     * @param file       The configuration file
+     * @param options    Configuration options
+     * @param headerMode HeaderMode to use
+     * @throws ConfigurateException if the class to map is not defined
+     */
+    private void create(@Nullable TypeToken<C> type, @Nullable File file, @Nullable ConfigurationOptions options, @Nullable HeaderMode headerMode) throws ConfigurateException {
+
+        // Class level metadata, resolved once per class
+        ConfigurationMetadata metadata = ConfigurationMetadata.of(this.getClass());
 
         // If type is not defined, then try to get it from annotations
-        type = type == null ? getAnnotatedClassType() : type;
+        type = type == null ? metadata.type() : type;
+        if (type == null) {
+            throw new ConfigurateException("Configuration class is not defined");
+        }
 
         // If file is not defined, then try to get it from annotations
-        file = file == null ? getAnnotatedFile() : file;
+        file = file == null ? metadata.file() : file;
 
         // If options is not defined, then use default options
         options = options == null ? ConfigurationOptions.defaults() : options;
-        options = options.serializers(build -> build.register(ColorSerializer.TYPE, ColorSerializer.INSTANCE));
 
-        // If headerMode is not defined, then define a default value depending on options header
+        // If headerMode is not defined, then define a default value depending on options header.
+        // If options has no header defined, then the header is taken from annotations.
+        boolean annotatedHeader = false;
         if (headerMode == null) {
-            // If options has no header defined, then try to get it from annotations.
-            if (options.header() == null) {
-                try {
-                    options = options.header(getAnnotatedHeader());
-                    headerMode = HeaderMode.PRESET;
-                } catch (NullPointerException ignored) {
-                    headerMode = HeaderMode.NONE;
-                }
-            } else {
-                headerMode = HeaderMode.PRESERVE;
-            }
+            annotatedHeader = options.header() == null;
+            headerMode = annotatedHeader ? HeaderMode.PRESET : HeaderMode.PRESERVE;
         }
+        options = metadata.options(options, annotatedHeader);
 
         // Finalising class creation
         this.file = file;
         this.options = options;
         this.headerMode = headerMode;
-        this.loader = Objects.requireNonNull(createLoader(file, options, headerMode));
-        this.mapper = ObjectMapper.factory().get(type);
-        this.root = null;
+        this.loader = loader(file);
+        this.mapper = metadata.mapper(type);
+        this.snapshot = null;
     }
 
     /**
@@ -134,57 +216,68 @@ public abstract class AbstractConfiguration<C extends AbstractConfiguration<?, ?
     protected abstract ConfigurationLoader<? extends ConfigurationNode> createLoader(File file, ConfigurationOptions options, HeaderMode headerMode);
 
     /**
-     * Gets the token holding the class type to map from annotation
+     * Gets the configuration loader for a file.
+     * <p>
+     * Loaders are shared with every instance of the same class using the same file, options,
+     * header mode and save mode. They are only created with {@link #createLoader} when not already
+     * shared. The format settings, such as the indentation, are defined per class.
      *
-     * @return token
-     * @throws ConfigurateException if {@link ConfigurationClass} annotation is not defined
+     * @param file The configuration file
+     * @return ConfigurationLoader
      */
-    private TypeToken<C> getAnnotatedClassType() throws ConfigurateException {
-        try {
-            return (TypeToken<C>) TypeToken.get(this.getClass().getAnnotation(ConfigurationClass.class).value());
-        } catch (NullPointerException ignored) {
-            try {
-                return (TypeToken<C>) TypeToken.get(this.getClass().getAnnotation(Configuration.class).clazz());
-            } catch (NullPointerException e) {
-                throw new ConfigurateException("Configuration class is not defined", e);
-            }
-        }
+    private ConfigurationLoader<? extends ConfigurationNode> loader(@Nullable File file) {
+        return ConfigurationMetadata.of(getClass()).loader(file, options, headerMode, saveMode, () -> createLoader(file, options, headerMode));
     }
 
     /**
-     * Gets file to load and/or save from annotation
+     * Create a reader binding the configuration file while it is read, used when a {@link StreamMode} is set.
+     * <p>
+     * Formats which can stream override this method.
      *
-     * @return File
-     * @throws ConfigurateException if {@link ConfigurationFile} annotation is not defined
+     * @param file The configuration file
+     * @return Reader, or null if the format cannot stream
+     * @throws IOException if the file cannot be opened
      */
-    private File getAnnotatedFile() throws ConfigurateException {
-        try {
-            return new File(this.getClass().getAnnotation(ConfigurationFile.class).value());
-        } catch (NullPointerException e) {
-            try {
-                return new File(this.getClass().getAnnotation(Configuration.class).file());
-            } catch (NullPointerException ignored) {
-                return null;
-            }
-        }
+    protected @Nullable StreamingReader createReader(@NonNull File file) throws IOException {
+        return null;
     }
 
     /**
-     * Gets header comment from annotation
+     * Create the source used by configuration loaders to read the configuration file.
+     * <p>
+     * The bytes read are reported to the {@link ConfigurationMetrics}. The source does not
+     * refer to this instance, so that the loader can be shared.
      *
-     * @return Header comment
-     * @throws ConfigurateException if {@link ConfigurationHeader} annotation is not defined
+     * @param file The configuration file
+     * @return Source
      */
-    private String getAnnotatedHeader() throws ConfigurateException {
-        try {
-            return this.getClass().getAnnotation(ConfigurationHeader.class).value();
-        } catch (NullPointerException e) {
-            try {
-                return this.getClass().getAnnotation(Configuration.class).header();
-            } catch (NullPointerException ignored) {
-                return "";
-            }
-        }
+    protected Callable<BufferedReader> createSource(@NonNull File file) {
+        return ConfigurationSource.of(file.toPath());
+    }
+
+    /**
+     * Open the configuration file for reading, used by streaming readers.
+     * <p>
+     * The bytes read are reported to the {@link ConfigurationMetrics}.
+     *
+     * @param file The configuration file
+     * @return Reader
+     * @throws IOException if the file cannot be opened
+     */
+    protected BufferedReader openSource(@NonNull File file) throws IOException {
+        return ConfigurationSource.open(file.toPath());
+    }
+
+    /**
+     * Create the sink used by configuration loaders to write the configuration file.
+     * <p>
+     * The file is written according to the {@link SaveMode} of this configuration.
+     *
+     * @param file The configuration file
+     * @return Sink
+     */
+    protected Callable<BufferedWriter> createSink(@NonNull File file) {
+        return ConfigurationSink.of(file.toPath(), saveMode);
     }
 
     /**
@@ -201,6 +294,8 @@ public abstract class AbstractConfiguration<C extends AbstractConfiguration<?, ?
 
     /**
      * Load the configuration from file and populate the {@link AbstractConfiguration} object.
+     * <p>
+     * Depending on the {@link LoadMode}, a new instance is created or this instance is updated.
      *
      * @return Configuration instance
      */
@@ -209,30 +304,153 @@ public abstract class AbstractConfiguration<C extends AbstractConfiguration<?, ?
             // Update default file
             if (this.file == null) {
                 this.file = file;
-                this.loader = createLoader(file, options, headerMode);
+                this.loader = loader(file);
+            }
+
+            // Bind values while reading the file
+            ConfigurationMetrics metrics = enabledMetrics();
+            if (streamMode != StreamMode.DISABLED && this.file.isFile()) {
+                C streamed = metrics == null ? stream() : measure(metrics, Phase.READ, this.file, this::stream);
+                if (streamed != null) {
+                    return streamed;
+                }
+            }
+
+            // Update this instance
+            if (loadMode == LoadMode.IN_PLACE) {
+                N current = read();
+                if (metrics == null) {
+                    swap(current);
+                } else {
+                    measure(metrics, Phase.MAP, this.file, () -> swap(current));
+                }
+                publish(current);
+                return (C) this;
             }
 
             // Update the root node
-            root = (N) loader.load(options);
+            publish(read());
 
             if(mapper.canCreateInstances()) {
                 // Populate the Configuration object
-                AbstractConfiguration<C, N> instance = (AbstractConfiguration<C, N>) mapper.load(root);
+                N root = snapshot.root();
+                return adopt(metrics == null ? mapper.load(root) : measure(metrics, Phase.MAP, this.file, () -> mapper.load(root)));
+            }
 
-                // Update instance
-                instance.file = this.file;
-                instance.options = this.options;
-                instance.headerMode = this.headerMode;
-                instance.loader = this.loader;
-                instance.mapper = this.mapper;
-                instance.root = this.root;
+            return null;
+        } catch (ConfigurateException e) {
+            throw new ConfigurateException("Unable to save file: " + file.getName(), e);
+        }
+    }
 
-                return (C) instance;
+    /**
+     * Set every field of this instance from a node tree, as {@link LoadMode#IN_PLACE} does
+     *
+     * @param current Root node
+     * @return true if at least one field changed
+     * @throws SerializationException if a value cannot be deserialized
+     */
+    private boolean swap(N current) throws SerializationException {
+        return IncrementalMapper.swap((C) this, mapper, current, () -> {
+            if (!mapper.canCreateInstances()) {
+                throw new SerializationException("Unable to create default values of " + getClass().getName());
             }
+            return mapper.load(BasicConfigurationNode.root(options));
+        });
+    }
 
+    /**
+     * Load the configuration by binding values while the file is read.
+     * <p>
+     * Values are bound to a new instance. With {@link LoadMode#IN_PLACE}, they are then swapped into this instance.
+     * The published snapshot only holds the values kept which are not mapped to a field.
+     *
+     * @return Configuration instance, or null if the format cannot stream
+     * @throws ConfigurateException if an error happen while reading the file
+     */
+    private @Nullable C stream() throws ConfigurateException {
+        if (!mapper.canCreateInstances()) {
             return null;
+        }
+
+        try (StreamingReader reader = createReader(file)) {
+            if (reader == null) {
+                return null;
+            }
+
+            N unknown = (N) loader.createNode(options);
+            C instance = mapper.load(BasicConfigurationNode.root(options));
+            StreamingMapper.bind(instance, mapper, reader, options, streamMode == StreamMode.KEEP_UNKNOWN ? unknown : null);
+            publish(unknown);
+
+            if (loadMode == LoadMode.IN_PLACE) {
+                for (FieldData<?, C> data : mapper.fields()) {
+                    Field field = FieldAccess.field(getClass(), data.name());
+                    FieldAccess.set(field, this, FieldAccess.get(field, instance));
+                }
+                return (C) this;
+            }
+
+            return adopt(instance);
         } catch (ConfigurateException e) {
-            throw new ConfigurateException("Unable to save file: " + file.getName(), e);
+            throw e;
+        } catch (IOException e) {
+            throw new ConfigurateException("Unable to read file: " + file.getName(), e);
+        }
+    }
+
+    /**
+     * Share the settings and the current snapshot of this instance with a loaded instance
+     *
+     * @param loaded Loaded instance
+     * @return Loaded instance
+     */
+    private C adopt(C loaded) {
+        AbstractConfiguration<C, N> instance = (AbstractConfiguration<C, N>) loaded;
+        instance.file = this.file;
+        instance.options = this.options;
+        instance.headerMode = this.headerMode;
+        instance.saveMode = this.saveMode;
+        instance.loadMode = this.loadMode;
+        instance.streamMode = this.streamMode;
+        instance.indexed = this.indexed;
+        instance.cached = this.cached;
+        instance.loader = this.loader;
+        instance.mapper = this.mapper;
+        instance.snapshot = this.snapshot;
+        return loaded;
+    }
+
+    /**
+     * Reload the configuration from file, updating this {@link AbstractConfiguration} object.
+     * <p>
+     * The new node tree is compared to the one last loaded or saved, and only the fields whose
+     * nodes changed are deserialized again. Unchanged values, including nested objects, are kept
+     * with their identity. Values removed from the file keep their current value.
+     * <p>
+     * Every changed value is deserialized before any field is set, and maps are replaced rather than
+     * modified, so that a failure leaves this object untouched.
+     *
+     * @return true if at least one field changed
+     */
+    public boolean reload() throws ConfigurateException {
+        if (file == null) {
+            return false;
+        }
+
+        try {
+            ConfigurationSnapshot<N> previous = snapshot;
+            N current = read();
+            ConfigurationMetrics metrics = enabledMetrics();
+            boolean changed = metrics == null
+                    ? IncrementalMapper.apply((C) this, mapper, previous != null ? previous.root() : null, current)
+                    : measure(metrics, Phase.MAP, file, () -> IncrementalMapper.apply((C) this, mapper, previous != null ? previous.root() : null, current));
+
+            // Update the root node
+            publish(current);
+            return changed;
+        } catch (ConfigurateException | ClassCastException e) {
+            throw new ConfigurateException("Unable to load file: " + file.getName(), e);
         }
     }
 
@@ -254,35 +472,464 @@ public abstract class AbstractConfiguration<C extends AbstractConfiguration<?, ?
 
     /**
      * Save the the {@link AbstractConfiguration} object to file.
+     * <p>
+     * The file is only written if the configuration changed since it was last loaded or saved,
+     * or if the file does not exist anymore.
+     * <p>
+     * Changes are applied to a copy of the current node tree, which is published once written.
+     *
+     * @return true if the file has been written, false if it was already up to date
      */
-    @SuppressWarnings("ResultOfMethodCallIgnored")
-    public void save() throws ConfigurateException {
+    public boolean save() throws ConfigurateException {
         try {
-            // Make sure parent folder exist
-            File parent = file.getParentFile();
-            parent.mkdirs();
-
             //
-            if(root == null) {
-                root = (N) loader.load(options);
+            ConfigurationSnapshot<N> current = snapshot;
+            if(current == null) {
+                current = publish(read());
             }
 
             // Apply changes
-            mapper.save((C) this, root);
+            N node = (N) current.root().copy();
+            serialize(node);
 
             // Save the file
-            loader.save(root);
+            return write(current, node);
 
         } catch (ConfigurateException | ClassCastException e) {
             throw new ConfigurateException("Unable to save file: " + file.getName(), e);
         }
     }
 
+    /**
+     * Save the the {@link AbstractConfiguration} object to file, asynchronously.
+     * <p>
+     * The object is mapped to a copy of the node tree on the calling thread. Serialization and
+     * writing are done by the {@link WriteBehind} executor, which coalesces saves of the same file.
+     * As with {@link #save()}, the file is only written if the configuration changed.
+     *
+     * @return Future completed with true if the file has been written, false if it was already up to date
+     */
+    public CompletableFuture<Boolean> saveAsync() {
+        try {
+            // Apply changes to a copy
+            final ConfigurationSnapshot<N> current = snapshot;
+            final N copy = (N) (current != null ? current.root().copy() : loader.createNode(options));
+            serialize(copy);
+
+            // Serialize and save the file off thread
+            return WriteBehind.submit(file.getAbsoluteFile().toPath(), () -> {
+                try {
+                    // The file has never been loaded, keep unmapped values
+                    if (current == null) {
+                        ConfigurationSnapshot<N> base = snapshot;
+                        if (base == null) {
+                            base = new ConfigurationSnapshot<>(read());
+                        }
+                        N node = (N) base.root().copy();
+                        for (Map.Entry<Object, ? extends ConfigurationNode> child : copy.childrenMap().entrySet()) {
+                            node.node(child.getKey()).from(child.getValue());
+                        }
+                        return write(base, node);
+                    }
+
+                    return write(snapshot, copy);
+                } catch (ConfigurateException | ClassCastException e) {
+                    throw new ConfigurateException("Unable to save file: " + file.getName(), e);
+                }
+            });
+        } catch (ConfigurateException | ClassCastException e) {
+            CompletableFuture<Boolean> future = new CompletableFuture<>();
+            future.completeExceptionally(new ConfigurateException("Unable to save file: " + file.getName(), e));
+            return future;
+        }
+    }
+
+    /**
+     * Write a node tree to the configuration file, unless it did not change since the last load or save.
+     * <p>
+     * Changes are first detected by comparing the fingerprint of the node tree with the fingerprint of
+     * the snapshot. Node trees read from the file differ from the ones produced by the mapper (comments,
+     * scalar types), so the sink also keeps the file if the written content is the same.
+     * <p>
+     * Once the configuration file is replaced, the node tree is published as the current snapshot and
+     * must not be modified anymore. With {@link SaveMode#GROUP_COMMIT}, this happens when the window is
+     * committed, and not at all if a later save of the same window replaces this one.
+     *
+     * @param previous Snapshot the node tree is compared to
+     * @param node     Root node
+     * @return true if the file has been written
+     * @throws ConfigurateException if an error happen while writing the file
+     */
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    private boolean write(@Nullable ConfigurationSnapshot<N> previous, N node) throws ConfigurateException {
+        // Make sure parent folder exist
+        File parent = file.getParentFile();
+        parent.mkdirs();
+
+        // Skip the file if nothing changed
+        long fingerprint = NodeFingerprint.of(node);
+        if (previous != null && fingerprint == previous.fingerprint() && file.exists()) {
+            return false;
+        }
+
+        // Save the file
+        ConfigurationMetrics metrics = enabledMetrics();
+        ConfigurationSink.Written written = metrics == null ? writeFile(node) : measure(metrics, Phase.WRITE, file, () -> writeFile(node));
+
+        // Publish once the file is in place, which is later with group commit
+        if (written == null) {
+            ConfigurationWatcher.written(file);
+            publish(node, fingerprint);
+            return true;
+        }
+        written.committed().thenRun(() -> {
+            if (written.changed()) {
+                ConfigurationWatcher.written(file);
+            }
+            publish(node, fingerprint);
+        });
+        return written.changed();
+    }
+
+    /**
+     * Write a node tree with the loader, then replace the configuration file.
+     * <p>
+     * The file is only replaced once the loader returned. If it failed, the node tree may be partly written,
+     * so the configuration file is kept as is.
+     *
+     * @param node Root node
+     * @return Outcome, or null if the loader does not write through a {@link #createSink(File) sink}
+     * @throws ConfigurateException if an error happen while writing the file
+     */
+    private ConfigurationSink.@Nullable Written writeFile(N node) throws ConfigurateException {
+        ConfigurationSink.discard();
+        try {
+            loader.save(node);
+        } catch (ConfigurateException | RuntimeException e) {
+            ConfigurationSink.discard();
+            throw e;
+        }
+
+        try {
+            return ConfigurationSink.commit();
+        } catch (IOException e) {
+            throw new ConfigurateException("Unable to write file: " + file.getName(), e);
+        }
+    }
+
+    /**
+     * Map this object to a node tree
+     *
+     * @param node Root node
+     * @throws ConfigurateException if an error happen while mapping the object
+     */
+    private void serialize(N node) throws ConfigurateException {
+        ConfigurationMetrics metrics = enabledMetrics();
+        if (metrics == null) {
+            mapper.save((C) this, node);
+        } else {
+            measure(metrics, Phase.SERIALIZE, file, () -> {
+                mapper.save((C) this, node);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Read the node tree of the configuration file
+     *
+     * @return Root node
+     * @throws ConfigurateException if an error happen while reading the file
+     */
+    private N read() throws ConfigurateException {
+        ConfigurationMetrics metrics = enabledMetrics();
+        return metrics == null ? readFile() : measure(metrics, Phase.READ, file, this::readFile);
+    }
+
+    /**
+     * Read the node tree of the configuration file, from the {@link BinaryCache} if enabled
+     *
+     * @return Root node
+     * @throws ConfigurateException if an error happen while reading the file
+     */
+    private N readFile() throws ConfigurateException {
+        if (!cached || file == null) {
+            return (N) loader.load(options);
+        }
+
+        try {
+            return (N) BinaryCache.load(file, loader, options);
+        } catch (ConfigurateException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new ConfigurateException("Unable to read file: " + file.getName(), e);
+        }
+    }
+
+    /**
+     * Run a phase of a load or a save, reporting its duration to the metrics
+     *
+     * @param metrics Enabled metrics
+     * @param phase   Phase
+     * @param file    The configuration file
+     * @param action  Phase to run
+     * @return Result of the phase
+     * @throws ConfigurateException if the phase failed
+     */
+    private <V> V measure(ConfigurationMetrics metrics, Phase phase, @Nullable File file, CheckedSupplier<V, ConfigurateException> action) throws ConfigurateException {
+        Class<?> clazz = getClass();
+        boolean transfers = phase == Phase.READ || phase == Phase.WRITE;
+        if (transfers) {
+            // Forget the bytes of unmeasured work
+            TransferredBytes.take();
+        }
+        Object context = metrics.started(clazz, phase, file);
+        long start = System.nanoTime();
+        try {
+            V value = action.get();
+            long nanos = System.nanoTime() - start;
+            long bytes = transfers ? TransferredBytes.take() : 0;
+            metrics.recorded(context, clazz, ConfigurationMetadata.of(clazz).format(), phase, nanos, bytes);
+            return value;
+        } catch (ConfigurateException | RuntimeException e) {
+            metrics.failed(context, clazz, ConfigurationMetadata.of(clazz).format(), phase, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Publish a node tree as the current snapshot
+     *
+     * @param node Root node, must not be modified anymore
+     * @return Snapshot
+     */
+    private ConfigurationSnapshot<N> publish(N node) {
+        return publish(node, NodeFingerprint.of(node));
+    }
+
+    /**
+     * Publish a node tree as the current snapshot, indexing it if enabled
+     *
+     * @param node        Root node, must not be modified anymore
+     * @param fingerprint Fingerprint of the node tree
+     * @return Snapshot
+     */
+    private ConfigurationSnapshot<N> publish(N node, long fingerprint) {
+        ConfigurationIndex index = indexed ? ConfigurationIndex.build(node, snapshot) : null;
+        ConfigurationSnapshot<N> published = new ConfigurationSnapshot<>(node, fingerprint, index);
+        snapshot = published;
+        return published;
+    }
+
+    /**
+     * Reload the configuration whenever its file is changed by someone else, using the
+     * {@link ConfigurationWatcher#shared() shared watcher}.
+     *
+     * @param listener Called with the reloaded configuration
+     * @return Registration, close it to stop watching
+     * @throws ConfigurateException if the configuration file cannot be watched
+     */
+    public ConfigurationWatcher.Registration watch(@NonNull Consumer<? super C> listener) throws ConfigurateException {
+        return ConfigurationWatcher.shared().watch(this, listener);
+    }
+
+    /**
+     * Gets a value from the node tree last loaded from or saved to the configuration file.
+     * <p>
+     * The value is cached in the snapshot, so it is shared until a new snapshot is published.
+     *
+     * @param key Key of the value
+     * @return Value, or the default value of the key if not defined
+     * @throws SerializationException if the value cannot be deserialized
+     */
+    public <V> @Nullable V get(@NonNull ConfigurationKey<V> key) throws SerializationException {
+        return key.get(this);
+    }
+
+    /**
+     * Gets the mode used to write the configuration file
+     *
+     * @return SaveMode
+     */
+    public SaveMode getSaveMode() {
+        return saveMode;
+    }
+
+    /**
+     * Sets the mode used to write the configuration file
+     *
+     * @param saveMode SaveMode to use
+     */
+    public void setSaveMode(@NonNull SaveMode saveMode) {
+        this.saveMode = saveMode;
+        this.loader = loader(file);
+    }
+
+    /**
+     * Gets the mode used to populate the configuration object when loading
+     *
+     * @return LoadMode
+     */
+    public LoadMode getLoadMode() {
+        return loadMode;
+    }
+
+    /**
+     * Sets the mode used to populate the configuration object when loading
+     *
+     * @param loadMode LoadMode to use
+     */
+    public void setLoadMode(@NonNull LoadMode loadMode) {
+        this.loadMode = loadMode;
+    }
+
+    /**
+     * Gets the mode used to read the configuration file
+     *
+     * @return StreamMode
+     */
+    public StreamMode getStreamMode() {
+        return streamMode;
+    }
+
+    /**
+     * Sets the mode used to read the configuration file.
+     * <p>
+     * When streaming, the {@link BinaryCache} is not used.
+     *
+     * @param streamMode StreamMode to use
+     */
+    public void setStreamMode(@NonNull StreamMode streamMode) {
+        this.streamMode = streamMode;
+    }
+
+    /**
+     * Gets whether node trees are cached
+     *
+     * @return true if cached
+     */
+    public boolean isCached() {
+        return cached;
+    }
+
+    /**
+     * Sets whether node trees loaded from the configuration file are cached by {@link BinaryCache}.
+     * <p>
+     * The cache file is used as long as the configuration file does not change.
+     *
+     * @param cached true to cache node trees
+     */
+    public void setCached(boolean cached) {
+        this.cached = cached;
+    }
+
+    /**
+     * Gets whether snapshots are indexed
+     *
+     * @return true if indexed
+     */
+    public boolean isIndexed() {
+        return indexed;
+    }
+
+    /**
+     * Sets whether snapshots are indexed by a flat {@link ConfigurationIndex}.
+     * <p>
+     * An index is built whenever a snapshot is published. The converted values of the top level
+     * sections which did not change are reused from the previous index.
+     *
+     * @param indexed true to index snapshots
+     */
+    public void setIndexed(boolean indexed) {
+        this.indexed = indexed;
+        ConfigurationSnapshot<N> current = snapshot;
+        if (current != null && indexed != (current.index() != null)) {
+            publish(current.root(), current.fingerprint());
+        }
+    }
+
+    /**
+     * Gets the flat index of the node tree last loaded from or saved to the configuration file
+     *
+     * @return Index, or null if not indexed or not loaded
+     */
+    public @Nullable ConfigurationIndex getIndex() {
+        ConfigurationSnapshot<N> current = snapshot;
+        return current != null ? current.index() : null;
+    }
+
     public File getFile() {
         return file;
     }
 
     public N getRoot() {
-        return root;
+        ConfigurationSnapshot<N> current = snapshot;
+        return current != null ? current.root() : null;
+    }
+
+    /**
+     * Gets the node tree last loaded from or saved to the configuration file.
+     * <p>
+     * The snapshot is never modified, it can be read from any thread without locking.
+     *
+     * @return Snapshot, or null if the configuration has not been loaded or saved yet
+     */
+    public @Nullable ConfigurationSnapshot<N> getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Gets the metrics set to receive the timings of every configuration
+     *
+     * @return Metrics, {@link ConfigurationMetrics#NONE} if not set
+     */
+    public static ConfigurationMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the metrics receiving the timings of every configuration.
+     * <p>
+     * The metrics registered as services keep receiving the timings as well. Use {@link ConfigurationMetrics#NONE}
+     * to only use them, and {@link ConfigurationMetrics#combine(ConfigurationMetrics...)} to set several metrics.
+     *
+     * @param metrics Metrics
+     */
+    public static void setMetrics(@NonNull ConfigurationMetrics metrics) {
+        AbstractConfiguration.metrics = Objects.requireNonNull(metrics, "metrics");
+        combinedMetrics = ConfigurationMetrics.combine(metrics, SERVICE_METRICS);
+    }
+
+    /**
+     * Gets the metrics registered as {@link ServiceLoader services}, which receive the timings of every configuration
+     * in addition to the metrics set
+     *
+     * @return Metrics, {@link ConfigurationMetrics#NONE} if no metrics are registered
+     */
+    public static ConfigurationMetrics getServiceMetrics() {
+        return SERVICE_METRICS;
+    }
+
+    /**
+     * Gets the metrics if enabled
+     *
+     * @return Metrics, or null if disabled
+     */
+    private static @Nullable ConfigurationMetrics enabledMetrics() {
+        ConfigurationMetrics metrics = combinedMetrics;
+        return metrics.enabled() ? metrics : null;
+    }
+
+    /**
+     * Gets the metrics registered as services, combined
+     *
+     * @return Metrics
+     */
+    private static ConfigurationMetrics discoverMetrics() {
+        List<ConfigurationMetrics> services = new ArrayList<>();
+        for (ConfigurationMetrics service : ServiceLoader.load(ConfigurationMetrics.class, AbstractConfiguration.class.getClassLoader())) {
+            services.add(service);
+        }
+        return ConfigurationMetrics.combine(services.toArray(new ConfigurationMetrics[0]));
     }
 }
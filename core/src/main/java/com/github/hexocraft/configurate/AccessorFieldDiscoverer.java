@@ -0,0 +1,303 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate;
+
+import io.leangen.geantyref.GenericTypeReflector;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.spongepowered.configurate.objectmapping.FieldDiscoverer;
+import org.spongepowered.configurate.objectmapping.ObjectMapper;
+import org.spongepowered.configurate.serialize.SerializationException;
+import org.spongepowered.configurate.util.Types;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AnnotatedType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Discovers the fields of mapped objects like the default object discoverer of Configurate, but
+ * accesses them through the code generated by the configuration processor when present, or
+ * through method handles created once per class instead of reflection.
+ * <p>
+ * Values read by the mapper are held in an array indexed by field rather than a map keyed by
+ * {@link Field}, so loading an object allocates a single array. Classes whose fields cannot be
+ * accessed this way are left to the reflective discoverer.
+ */
+@SuppressWarnings("unchecked")
+final class AccessorFieldDiscoverer implements FieldDiscoverer<Object[]> {
+
+    static final AccessorFieldDiscoverer INSTANCE = new AccessorFieldDiscoverer();
+
+    /**
+     * Object mapper factory with the defaults of {@link ObjectMapper#factory()}, using this discoverer first.
+     * <p>
+     * Discoverers added last are tried first.
+     */
+    static final ObjectMapper.Factory FACTORY = ObjectMapper.factoryBuilder()
+            .addDiscoverer(INSTANCE)
+            .build();
+
+    private static final MethodType CONSTRUCTOR = MethodType.methodType(Object.class);
+    private static final MethodType GETTER = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private AccessorFieldDiscoverer() {
+    }
+
+    @Override
+    public <V> @Nullable InstanceFactory<Object[]> discover(AnnotatedType target, FieldCollector<Object[], V> collector) throws SerializationException {
+        Class<?> clazz = GenericTypeReflector.erase(target.getType());
+        if (clazz.isInterface()) {
+            throw new SerializationException(target.getType(), "ObjectMapper can only work with concrete types");
+        }
+
+        GeneratedConfiguration<?> generated = GeneratedConfiguration.of(clazz);
+        if (generated != null && generated.fields() != null) {
+            return discover(target, (GeneratedConfiguration<Object>) generated, collector);
+        }
+
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        List<Field> fields = new ArrayList<>();
+        List<AnnotatedType> types = new ArrayList<>();
+        List<MethodHandle> getters = new ArrayList<>();
+        List<MethodHandle> setters = new ArrayList<>();
+        MethodHandle constructor;
+        try {
+            constructor = constructor(lookup, clazz);
+            for (AnnotatedType current = target; current != null; ) {
+                Class<?> erased = GenericTypeReflector.erase(current.getType());
+                for (Field field : erased.getDeclaredFields()) {
+                    if ((field.getModifiers() & (Modifier.STATIC | Modifier.TRANSIENT)) != 0) {
+                        continue;
+                    }
+                    field.setAccessible(true);
+                    fields.add(field);
+                    types.add(GenericTypeReflector.getFieldType(field, current));
+                    getters.add(lookup.unreflectGetter(field).asType(GETTER));
+                    setters.add(lookup.unreflectSetter(field).asType(SETTER));
+                }
+                Class<?> superclass = erased.getSuperclass();
+                current = superclass == null || superclass == Object.class ? null : GenericTypeReflector.getExactSuperType(current, superclass);
+            }
+        } catch (IllegalAccessException | RuntimeException e) {
+            // Final fields of records and inaccessible members are left to the reflective discoverer
+            return null;
+        }
+
+        Factory factory = new HandleFactory(target.getType(), constructor, getters.toArray(new MethodHandle[0]), setters.toArray(new MethodHandle[0]));
+        for (int i = 0; i < fields.size(); i++) {
+            collect(collector, factory, i, fields.get(i), types.get(i));
+        }
+        return factory;
+    }
+
+    /**
+     * Discover the fields of a class processed at compile time
+     */
+    private static <V> InstanceFactory<Object[]> discover(AnnotatedType target, GeneratedConfiguration<Object> generated, FieldCollector<Object[], V> collector) throws SerializationException {
+        GeneratedConfiguration.MappedField[] fields = generated.fields();
+        Factory factory = new GeneratedFactory(target.getType(), generated, fields.length);
+        for (int i = 0; i < fields.length; i++) {
+            Field field;
+            try {
+                // Only read for the annotations of the field
+                field = fields[i].declaringClass().getDeclaredField(fields[i].name());
+            } catch (NoSuchFieldException e) {
+                throw new SerializationException(target.getType(), e);
+            }
+            collect(collector, factory, i, field, GenericTypeReflector.annotate(fields[i].type()));
+        }
+        return factory;
+    }
+
+    /**
+     * Add a field to the mapper, its value being held at {@code index} of the intermediate array
+     */
+    private static <V> void collect(FieldCollector<Object[], V> collector, Factory factory, int index, Field field, AnnotatedType type) {
+        int size = factory.size;
+        collector.accept(field.getName(), type, Types.combinedAnnotations(type, field),
+                (intermediate, value, implicit) -> {
+                    intermediate[index] = value;
+                    intermediate[size + index] = value == null ? implicit : null;
+                },
+                instance -> {
+                    try {
+                        return factory.get(instance, index);
+                    } catch (Throwable t) {
+                        throw new SerializationException(factory.type, t);
+                    }
+                });
+    }
+
+    /**
+     * Gets the empty constructor of a class
+     *
+     * @return Constructor returning {@code Object}, or null if the class has no empty constructor
+     */
+    private static @Nullable MethodHandle constructor(MethodHandles.Lookup lookup, Class<?> clazz) throws IllegalAccessException {
+        if (Modifier.isAbstract(clazz.getModifiers())) {
+            return null;
+        }
+        try {
+            Constructor<?> constructor = clazz.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return lookup.unreflectConstructor(constructor).asType(CONSTRUCTOR);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Creates and fills the instances of one class.
+     * <p>
+     * The intermediate array holds the value of each field, followed by the implicit initializer of
+     * each field read without a value.
+     */
+    private abstract static class Factory implements MutableInstanceFactory<Object[]> {
+
+        final Type type;
+        final int size;
+
+        Factory(Type type, int size) {
+            this.type = type;
+            this.size = size;
+        }
+
+        abstract @Nullable Object get(Object instance, int field) throws Throwable;
+
+        abstract void set(Object instance, int field, @Nullable Object value) throws Throwable;
+
+        abstract Object create() throws Throwable;
+
+        @Override
+        public Object[] begin() {
+            return new Object[size * 2];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void complete(Object instance, Object[] intermediate) throws SerializationException {
+            try {
+                for (int i = 0; i < size; i++) {
+                    Object value = intermediate[i];
+                    if (value != null) {
+                        set(instance, i, value);
+                    } else if (intermediate[size + i] != null) {
+                        value = ((Supplier<Object>) intermediate[size + i]).get();
+                        if (value != null && get(instance, i) == null) {
+                            set(instance, i, value);
+                        }
+                    }
+                }
+            } catch (Throwable t) {
+                throw new SerializationException(type, t);
+            }
+        }
+
+        @Override
+        public Object complete(Object[] intermediate) throws SerializationException {
+            if (!canCreateInstances()) {
+                throw new SerializationException(type, "Unable to create instance with this populator");
+            }
+            Object instance;
+            try {
+                instance = create();
+            } catch (Throwable t) {
+                throw new SerializationException(type, t);
+            }
+            complete(instance, intermediate);
+            return instance;
+        }
+    }
+
+    /**
+     * Access fields with method handles
+     */
+    private static final class HandleFactory extends Factory {
+
+        private final @Nullable MethodHandle constructor;
+        private final MethodHandle[] getters;
+        private final MethodHandle[] setters;
+
+        private HandleFactory(Type type, @Nullable MethodHandle constructor, MethodHandle[] getters, MethodHandle[] setters) {
+            super(type, setters.length);
+            this.constructor = constructor;
+            this.getters = getters;
+            this.setters = setters;
+        }
+
+        @Override
+        @Nullable Object get(Object instance, int field) throws Throwable {
+            return (Object) getters[field].invokeExact(instance);
+        }
+
+        @Override
+        void set(Object instance, int field, @Nullable Object value) throws Throwable {
+            setters[field].invokeExact(instance, value);
+        }
+
+        @Override
+        Object create() throws Throwable {
+            return (Object) constructor.invokeExact();
+        }
+
+        @Override
+        public boolean canCreateInstances() {
+            return constructor != null;
+        }
+    }
+
+    /**
+     * Access fields with the code generated by the configuration processor
+     */
+    private static final class GeneratedFactory extends Factory {
+
+        private final GeneratedConfiguration<Object> generated;
+
+        private GeneratedFactory(Type type, GeneratedConfiguration<Object> generated, int size) {
+            super(type, size);
+            this.generated = generated;
+        }
+
+        @Override
+        @Nullable Object get(Object instance, int field) {
+            return generated.get(instance, field);
+        }
+
+        @Override
+        void set(Object instance, int field, @Nullable Object value) {
+            generated.set(instance, field, value);
+        }
+
+        @Override
+        Object create() throws Exception {
+            return generated.create();
+        }
+
+        @Override
+        public boolean canCreateInstances() {
+            return generated.canCreate();
+        }
+    }
+}
@@ -0,0 +1,376 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.spongepowered.configurate.AttributedConfigurationNode;
+import org.spongepowered.configurate.CommentedConfigurationNodeIntermediary;
+import org.spongepowered.configurate.ConfigurationNode;
+import org.spongepowered.configurate.ConfigurationOptions;
+import org.spongepowered.configurate.loader.ConfigurationLoader;
+
+import java.io.ByteArrayInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Binary cache of the node trees loaded from configuration files.
+ * <p>
+ * When enabled with {@link AbstractConfiguration#setCached(boolean)}, the node tree parsed from a
+ * configuration file is written to a compact binary file, with its values, comments and structure.
+ * The next load reads the binary file instead of parsing the configuration file, as long as the
+ * size, modification time and checksum of the configuration file did not change.
+ * <p>
+ * Cache files are written next to their configuration file, or in the {@link #directory(Path) cache directory}.
+ * Any problem with a cache file is ignored and the configuration file is parsed as usual.
+ */
+public final class BinaryCache {
+
+    private static final int MAGIC = 0x48434647;
+    private static final int VERSION = 1;
+
+    private static final int NULL = 0;
+    private static final int MAP = 1;
+    private static final int LIST = 2;
+    private static final int STRING = 3;
+    private static final int BOOLEAN = 4;
+    private static final int INTEGER = 5;
+    private static final int LONG = 6;
+    private static final int FLOAT = 7;
+    private static final int DOUBLE = 8;
+
+    private static final int COMMENT = 1;
+    private static final int ATTRIBUTED = 2;
+
+    private static volatile @Nullable Path directory = null;
+
+    private BinaryCache() {
+    }
+
+    /**
+     * Sets the directory where cache files are written
+     *
+     * @param directory Cache directory, or null to write cache files next to their configuration file
+     */
+    public static void directory(@Nullable Path directory) {
+        BinaryCache.directory = directory != null ? directory.toAbsolutePath() : null;
+    }
+
+    /**
+     * Gets the directory where cache files are written
+     *
+     * @return Cache directory, or null if cache files are written next to their configuration file
+     */
+    public static @Nullable Path directory() {
+        return directory;
+    }
+
+    /**
+     * Gets the cache file of a configuration file
+     *
+     * @param source Configuration file
+     * @return Cache file
+     */
+    static Path file(@NonNull File source) {
+        Path path = source.getAbsoluteFile().toPath();
+        Path directory = BinaryCache.directory;
+        if (directory == null) {
+            return path.resolveSibling("." + path.getFileName() + ".cache");
+        }
+        return directory.resolve(Integer.toHexString(path.toString().hashCode()) + "-" + path.getFileName() + ".cache");
+    }
+
+    /**
+     * Load a configuration file, from its cache file when valid
+     *
+     * @param source  Configuration file
+     * @param loader  Loader of the configuration file
+     * @param options Options used to load the configuration file
+     * @return Root node
+     * @throws IOException if the configuration file cannot be loaded
+     */
+    static ConfigurationNode load(@NonNull File source, @NonNull ConfigurationLoader<?> loader, @NonNull ConfigurationOptions options) throws IOException {
+        Path path = source.toPath();
+        if (!Files.isRegularFile(path)) {
+            return loader.load(options);
+        }
+
+        // Checksum the configuration file once, whether the cache file is valid or not
+        long length = source.length();
+        long modified = source.lastModified();
+        long checksum = checksum(path);
+
+        ConfigurationNode node = read(file(source), loader, options, length, modified, checksum);
+        if (node == null) {
+            node = loader.load(options);
+
+            // Only cache the node tree if the file did not change while parsing it
+            if (source.length() == length && source.lastModified() == modified) {
+                write(file(source), loader, node, length, modified, checksum);
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Read a cache file
+     *
+     * @return Root node, or null if the cache file is missing, stale or invalid
+     */
+    private static @Nullable ConfigurationNode read(Path cache, ConfigurationLoader<?> loader, ConfigurationOptions options, long length, long modified, long checksum) {
+        if (!Files.isRegularFile(cache)) {
+            return null;
+        }
+
+        // Read the whole cache file, so that lengths can be checked against the remaining bytes
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(cache);
+        } catch (IOException e) {
+            return null;
+        }
+        TransferredBytes.add(bytes.length);
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(loader.getClass().getName())
+                    || in.readLong() != length || in.readLong() != modified || in.readLong() != checksum) {
+                return null;
+            }
+
+            String header = in.readBoolean() ? readString(in) : null;
+            ConfigurationNode root = loader.createNode(header != null ? options.header(header) : options);
+            readNode(in, root);
+            return root;
+        } catch (IOException | RuntimeException e) {
+            // Corrupted or truncated cache file, parse the configuration file
+            return null;
+        }
+    }
+
+    /**
+     * Write a cache file, ignoring errors
+     */
+    private static void write(Path cache, ConfigurationLoader<?> loader, ConfigurationNode root, long length, long modified, long checksum) {
+        Path temporary = null;
+        try {
+            Files.createDirectories(cache.getParent());
+            temporary = Files.createTempFile(cache.getParent(), cache.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(loader.getClass().getName());
+                out.writeLong(length);
+                out.writeLong(modified);
+                out.writeLong(checksum);
+
+                String header = root.options().header();
+                out.writeBoolean(header != null);
+                if (header != null) {
+                    writeString(out, header);
+                }
+                writeNode(out, root);
+            }
+            ConfigurationSink.move(temporary, cache);
+        } catch (IOException | RuntimeException e) {
+            // The cache is optional, the configuration file will be parsed next time
+            if (temporary != null) {
+                try {
+                    Files.deleteIfExists(temporary);
+                } catch (IOException ignored) {
+                    // Nothing more to do
+                }
+            }
+        }
+    }
+
+    /**
+     * Compute the checksum of a file
+     *
+     * @param path File
+     * @return Checksum
+     * @throws IOException if the file cannot be read
+     */
+    private static long checksum(Path path) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[1 << 16];
+        try (InputStream in = Files.newInputStream(path)) {
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+
+    private static void writeNode(DataOutputStream out, ConfigurationNode node) throws IOException {
+        String comment = node instanceof CommentedConfigurationNodeIntermediary ? ((CommentedConfigurationNodeIntermediary<?>) node).comment() : null;
+        boolean attributed = node instanceof AttributedConfigurationNode;
+        out.writeByte((comment != null ? COMMENT : 0) | (attributed ? ATTRIBUTED : 0));
+        if (comment != null) {
+            writeString(out, comment);
+        }
+        if (attributed) {
+            AttributedConfigurationNode element = (AttributedConfigurationNode) node;
+            writeString(out, element.tagName());
+            out.writeInt(element.attributes().size());
+            for (Map.Entry<String, String> attribute : element.attributes().entrySet()) {
+                writeString(out, attribute.getKey());
+                writeString(out, attribute.getValue());
+            }
+        }
+
+        if (node.isMap()) {
+            Map<Object, ? extends ConfigurationNode> children = node.childrenMap();
+            out.writeByte(MAP);
+            out.writeInt(children.size());
+            for (Map.Entry<Object, ? extends ConfigurationNode> child : children.entrySet()) {
+                writeScalar(out, child.getKey());
+                writeNode(out, child.getValue());
+            }
+        } else if (node.isList()) {
+            List<? extends ConfigurationNode> children = node.childrenList();
+            out.writeByte(LIST);
+            out.writeInt(children.size());
+            for (ConfigurationNode child : children) {
+                writeNode(out, child);
+            }
+        } else {
+            writeScalar(out, node.rawScalar());
+        }
+    }
+
+    private static void readNode(DataInputStream in, ConfigurationNode node) throws IOException {
+        int flags = in.readUnsignedByte();
+        if ((flags & COMMENT) != 0) {
+            ((CommentedConfigurationNodeIntermediary<?>) node).comment(readString(in));
+        }
+        if ((flags & ATTRIBUTED) != 0) {
+            AttributedConfigurationNode element = (AttributedConfigurationNode) node;
+            element.tagName(readString(in));
+            int size = readSize(in);
+            Map<String, String> attributes = new LinkedHashMap<>();
+            for (int i = 0; i < size; i++) {
+                attributes.put(readString(in), readString(in));
+            }
+            element.attributes(attributes);
+        }
+
+        int type = in.readUnsignedByte();
+        if (type == MAP) {
+            int size = readSize(in);
+            if (size == 0) {
+                node.raw(Collections.emptyMap());
+            }
+            for (int i = 0; i < size; i++) {
+                Object key = readScalar(in, in.readUnsignedByte());
+                readNode(in, node.node(key));
+            }
+        } else if (type == LIST) {
+            int size = readSize(in);
+            if (size == 0) {
+                node.raw(Collections.emptyList());
+            }
+            for (int i = 0; i < size; i++) {
+                readNode(in, node.appendListNode());
+            }
+        } else if (type != NULL) {
+            node.raw(readScalar(in, type));
+        }
+    }
+
+    private static void writeScalar(DataOutputStream out, @Nullable Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else {
+            // Do not cache values which could not be read back with the same type
+            throw new IOException("Unsupported value type: " + value.getClass().getName());
+        }
+    }
+
+    private static @Nullable Object readScalar(DataInputStream in, int type) throws IOException {
+        switch (type) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(in);
+            case BOOLEAN:
+                return in.readBoolean();
+            case INTEGER:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case FLOAT:
+                return in.readFloat();
+            case DOUBLE:
+                return in.readDouble();
+            default:
+                throw new IOException("Unknown value type: " + type);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readSize(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Read a length or a number of children, only trusted if the cache file holds that many bytes
+     */
+    private static int readSize(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        if (size < 0 || size > in.available()) {
+            throw new IOException("Invalid size: " + size);
+        }
+        return size;
+    }
+}
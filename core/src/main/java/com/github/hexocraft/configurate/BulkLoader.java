@@ -0,0 +1,245 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.spongepowered.configurate.ConfigurateException;
+import org.spongepowered.configurate.util.CheckedFunction;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Load many files of the same configuration class in parallel.
+ * <p>
+ * Each file is loaded with {@link AbstractConfiguration#loadFrom(File)} on a configuration created by the factory,
+ * and the files are spread on an {@link Executor}. The executor defaults to the common {@link ForkJoinPool}; files
+ * mostly wait on the disk, so a larger pool, or virtual threads on Java 21
+ * ({@code Executors.newVirtualThreadPerTaskExecutor()}), can be given with {@link #executor(Executor)}.
+ * <p>
+ * The configuration of the first file is created on the calling thread, so that the class metadata, the mapper and
+ * the serializers are resolved once and shared by every file, instead of being resolved concurrently by each thread.
+ * <p>
+ * A file failing to load does not stop the other files: each file gets a {@link Result}, holding either the loaded
+ * configuration or the error.
+ *
+ * @param <C> Configuration class
+ */
+public final class BulkLoader<C extends AbstractConfiguration<C, ?>> {
+
+    private final CheckedFunction<File, C, ConfigurateException> factory;
+    private Executor executor = ForkJoinPool.commonPool();
+
+    private BulkLoader(CheckedFunction<File, C, ConfigurateException> factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Create a bulk loader
+     *
+     * @param factory Create the configuration of a file, usually the constructor taking the file
+     * @param <C>     Configuration class
+     * @return Bulk loader
+     */
+    public static <C extends AbstractConfiguration<C, ?>> BulkLoader<C> of(@NonNull CheckedFunction<File, C, ConfigurateException> factory) {
+        return new BulkLoader<>(Objects.requireNonNull(factory, "factory"));
+    }
+
+    /**
+     * Set the executor loading the files.
+     *
+     * @param executor Executor
+     * @return This loader
+     */
+    public BulkLoader<C> executor(@NonNull Executor executor) {
+        this.executor = Objects.requireNonNull(executor, "executor");
+        return this;
+    }
+
+    /**
+     * Load files, waiting for all of them.
+     *
+     * @param files Files to load
+     * @return Results, in the order of the files
+     */
+    public List<Result<C>> load(@NonNull Collection<File> files) {
+        return loadAsync(files).join();
+    }
+
+    /**
+     * Load the files of a directory matching a glob pattern, waiting for all of them.
+     * <p>
+     * Files are loaded in the order of their names.
+     *
+     * @param directory Directory holding the files
+     * @param glob      Glob pattern of the file names, for example {@code *.yml}
+     * @return Results, in the order of the file names
+     * @throws ConfigurateException if the directory cannot be listed
+     */
+    public List<Result<C>> loadDirectory(@NonNull File directory, @NonNull String glob) throws ConfigurateException {
+        List<File> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory.toPath(), glob)) {
+            for (Path path : stream) {
+                if (Files.isRegularFile(path)) {
+                    files.add(path.toFile());
+                }
+            }
+        } catch (IOException e) {
+            throw new ConfigurateException("Unable to list directory: " + directory.getName(), e);
+        }
+        files.sort(Comparator.comparing(File::getName));
+        return load(files);
+    }
+
+    /**
+     * Load files without waiting.
+     *
+     * @param files Files to load
+     * @return Future completed with the results, in the order of the files, once every file is loaded
+     */
+    public CompletableFuture<List<Result<C>>> loadAsync(@NonNull Collection<File> files) {
+        List<CompletableFuture<Result<C>>> futures = new ArrayList<>(files.size());
+        for (File file : files) {
+            if (futures.isEmpty()) {
+                // Resolve the shared class level state before going parallel
+                try {
+                    futures.add(submit(file, factory.apply(file)));
+                } catch (ConfigurateException | RuntimeException e) {
+                    futures.add(CompletableFuture.completedFuture(Result.failure(file, e)));
+                }
+            } else {
+                futures.add(submit(file, null));
+            }
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            List<Result<C>> results = new ArrayList<>(futures.size());
+            for (CompletableFuture<Result<C>> future : futures) {
+                results.add(future.join());
+            }
+            return results;
+        });
+    }
+
+    private CompletableFuture<Result<C>> submit(File file, @Nullable C configuration) {
+        try {
+            return CompletableFuture.supplyAsync(() -> load(file, configuration), executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(Result.failure(file, e));
+        }
+    }
+
+    private Result<C> load(File file, @Nullable C configuration) {
+        try {
+            C instance = configuration != null ? configuration : factory.apply(file);
+            return Result.success(file, instance.loadFrom(file));
+        } catch (ConfigurateException | RuntimeException e) {
+            return Result.failure(file, e);
+        }
+    }
+
+    /**
+     * Result of loading one file
+     *
+     * @param <C> Configuration class
+     */
+    public static final class Result<C> {
+        private final File file;
+        private final @Nullable C configuration;
+        private final @Nullable ConfigurateException error;
+
+        private Result(File file, @Nullable C configuration, @Nullable ConfigurateException error) {
+            this.file = file;
+            this.configuration = configuration;
+            this.error = error;
+        }
+
+        private static <C> Result<C> success(File file, @Nullable C configuration) {
+            return new Result<>(file, configuration, null);
+        }
+
+        private static <C> Result<C> failure(File file, Throwable error) {
+            return new Result<>(file, null, error instanceof ConfigurateException
+                    ? (ConfigurateException) error
+                    : new ConfigurateException("Unable to load file: " + file.getName(), error));
+        }
+
+        /**
+         * Gets the loaded file
+         *
+         * @return File
+         */
+        public File file() {
+            return file;
+        }
+
+        /**
+         * Whether the file was loaded
+         *
+         * @return true if the file was loaded
+         */
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        /**
+         * Gets the loaded configuration.
+         * <p>
+         * The configuration is null if loading failed, or if the mapper of the configuration cannot create instances.
+         *
+         * @return Configuration, or null
+         */
+        public @Nullable C configuration() {
+            return configuration;
+        }
+
+        /**
+         * Gets the error raised while loading the file
+         *
+         * @return Error, or null if the file was loaded
+         */
+        public @Nullable ConfigurateException error() {
+            return error;
+        }
+
+        /**
+         * Gets the loaded configuration, throwing the error if loading failed
+         *
+         * @return Configuration
+         * @throws ConfigurateException if the file was not loaded
+         */
+        public @Nullable C get() throws ConfigurateException {
+            if (error != null) {
+                throw error;
+            }
+            return configuration;
+        }
+    }
+}
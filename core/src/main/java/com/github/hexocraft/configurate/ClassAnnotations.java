@@ -0,0 +1,92 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Annotations of a configuration class.
+ * <p>
+ * Values are read from the code generated by the configuration processor when the class has
+ * been processed, and by reflection otherwise.
+ */
+@SuppressWarnings("unchecked")
+public final class ClassAnnotations {
+
+    private static final ClassValue<ClassAnnotations> CACHE = new ClassValue<ClassAnnotations>() {
+        @Override
+        protected ClassAnnotations computeValue(Class<?> type) {
+            return new ClassAnnotations(type, GeneratedConfiguration.of(type));
+        }
+    };
+
+    private final Class<?> clazz;
+    private final @Nullable GeneratedConfiguration<?> generated;
+
+    private ClassAnnotations(Class<?> clazz, @Nullable GeneratedConfiguration<?> generated) {
+        this.clazz = clazz;
+        this.generated = generated;
+    }
+
+    /**
+     * Gets the annotations of a class
+     *
+     * @param clazz Configuration class
+     * @return Annotations
+     */
+    public static ClassAnnotations of(@NonNull Class<?> clazz) {
+        return CACHE.get(clazz);
+    }
+
+    /**
+     * Gets whether the class is annotated
+     *
+     * @param annotation Annotation type
+     * @return true if the class is annotated
+     */
+    public boolean has(@NonNull Class<? extends Annotation> annotation) {
+        return generated != null ? generated.annotated(annotation.getName()) : clazz.isAnnotationPresent(annotation);
+    }
+
+    /**
+     * Gets the value of an annotation member, or its default value
+     *
+     * @param annotation Annotation type
+     * @param member     Name of the member
+     * @param <V>        Type of the value
+     * @return Value, or null if the class is not annotated
+     */
+    public <V> @Nullable V value(@NonNull Class<? extends Annotation> annotation, @NonNull String member) {
+        if (generated != null) {
+            return (V) generated.value(annotation.getName(), member);
+        }
+
+        Annotation instance = clazz.getAnnotation(annotation);
+        if (instance == null) {
+            return null;
+        }
+        try {
+            return (V) annotation.getMethod(member).invoke(instance);
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalArgumentException("Unable to read " + annotation.getName() + "." + member, e);
+        }
+    }
+}
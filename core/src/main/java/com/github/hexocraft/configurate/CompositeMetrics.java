@@ -0,0 +1,98 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.File;
+
+/**
+ * {@link ConfigurationMetrics} forwarding to several metrics.
+ * <p>
+ * Each phase is only forwarded to the metrics enabled when it started, with the context each of them returned.
+ */
+final class CompositeMetrics implements ConfigurationMetrics {
+
+    /**
+     * Context of the metrics disabled when the phase started
+     */
+    private static final Object DISABLED = new Object();
+
+    private final ConfigurationMetrics[] metrics;
+
+    CompositeMetrics(ConfigurationMetrics[] metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public boolean enabled() {
+        for (ConfigurationMetrics metric : metrics) {
+            if (metric.enabled()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public @Nullable Object started(@NonNull Class<?> configuration, @NonNull Phase phase, @Nullable File file) {
+        Object[] contexts = new Object[metrics.length];
+        for (int i = 0; i < metrics.length; i++) {
+            contexts[i] = metrics[i].enabled() ? metrics[i].started(configuration, phase, file) : DISABLED;
+        }
+        return contexts;
+    }
+
+    @Override
+    public void recorded(@Nullable Object context, @NonNull Class<?> configuration, @NonNull String format, @NonNull Phase phase, long nanos, long bytes) {
+        Object[] contexts = (Object[]) context;
+        for (int i = 0; i < metrics.length; i++) {
+            if (contexts[i] != DISABLED) {
+                metrics[i].recorded(contexts[i], configuration, format, phase, nanos, bytes);
+            }
+        }
+    }
+
+    @Override
+    public void failed(@Nullable Object context, @NonNull Class<?> configuration, @NonNull String format, @NonNull Phase phase, @NonNull Throwable error) {
+        Object[] contexts = (Object[]) context;
+        for (int i = 0; i < metrics.length; i++) {
+            if (contexts[i] != DISABLED) {
+                metrics[i].failed(contexts[i], configuration, format, phase, error);
+            }
+        }
+    }
+
+    @Override
+    public void recorded(@NonNull Class<?> configuration, @NonNull String format, @NonNull Phase phase, long nanos, long bytes) {
+        for (ConfigurationMetrics metric : metrics) {
+            if (metric.enabled()) {
+                metric.recorded(configuration, format, phase, nanos, bytes);
+            }
+        }
+    }
+
+    @Override
+    public void failed(@NonNull Class<?> configuration, @NonNull String format, @NonNull Phase phase, @NonNull Throwable error) {
+        for (ConfigurationMetrics metric : metrics) {
+            if (metric.enabled()) {
+                metric.failed(configuration, format, phase, error);
+            }
+        }
+    }
+}
@@ -0,0 +1,678 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.spongepowered.configurate.ConfigurateException;
+import org.spongepowered.configurate.util.CheckedFunction;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Cache of loaded configurations, keyed by file.
+ * <p>
+ * Configurations are loaded with {@link AbstractConfiguration#loadFrom(File)} on a miss, and evicted least recently
+ * used first once the total weight of the cache goes over its capacity. Each configuration weighs 1 by default, so that
+ * the capacity is a number of configurations, or the weight given by a {@link Weigher}.
+ * <p>
+ * A configuration changed by the application is marked with {@link #markDirty(File)}: it is saved when evicted, when
+ * invalidated or on {@link #flush()}. A file being written back is not read again before the write completes. A
+ * configuration is only modified safely while it is in the cache: {@link #pin(File) pinned} configurations are never
+ * evicted. An evicted configuration which cannot be saved is put back in the cache, still dirty, even if the cache
+ * is then over its capacity, so that its changes are not lost: it is written back again when next evicted.
+ * <p>
+ * Loading, saving and writing back are done on the calling thread, outside of the cache lock. Concurrent gets of the
+ * same file wait for a single load.
+ *
+ * @param <C> Configuration class
+ */
+public final class ConfigurationCache<C extends AbstractConfiguration<C, ?>> {
+
+    /**
+     * Weight of a configuration in the cache
+     *
+     * @param <C> Configuration class
+     */
+    @FunctionalInterface
+    public interface Weigher<C> {
+        /**
+         * Gets the weight of a configuration
+         *
+         * @param file          Configuration file
+         * @param configuration Loaded configuration
+         * @return Weight, at least 0
+         */
+        long weigh(File file, C configuration);
+    }
+
+    private final CheckedFunction<File, C, ConfigurateException> factory;
+    private final long capacity;
+    private final Weigher<? super C> weigher;
+
+    /**
+     * Entries, least recently used first. Guarded by itself, as every mutable field of the entries.
+     */
+    private final Map<Path, Entry<C>> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    /**
+     * Write backs of evicted entries. Guarded by {@link #entries}.
+     */
+    private final Map<Path, CompletableFuture<Void>> writing = new HashMap<>();
+
+    /**
+     * Total weight of the loaded entries. Guarded by {@link #entries}.
+     */
+    private long weight;
+
+    private volatile BiConsumer<File, ConfigurateException> writeBackFailure = (file, error) -> {
+    };
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder writeBacks = new LongAdder();
+    private final LongAdder writeBackFailures = new LongAdder();
+
+    private ConfigurationCache(CheckedFunction<File, C, ConfigurateException> factory, long capacity, Weigher<? super C> weigher) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.factory = Objects.requireNonNull(factory, "factory");
+        this.capacity = capacity;
+        this.weigher = Objects.requireNonNull(weigher, "weigher");
+    }
+
+    /**
+     * Create a cache holding up to a number of configurations
+     *
+     * @param factory  Create the configuration of a file, usually the constructor taking the file
+     * @param capacity Maximum number of configurations
+     * @param <C>      Configuration class
+     * @return Cache
+     */
+    public static <C extends AbstractConfiguration<C, ?>> ConfigurationCache<C> of(@NonNull CheckedFunction<File, C, ConfigurateException> factory, long capacity) {
+        return new ConfigurationCache<>(factory, capacity, (file, configuration) -> 1);
+    }
+
+    /**
+     * Create a cache holding configurations up to a total weight
+     *
+     * @param factory  Create the configuration of a file, usually the constructor taking the file
+     * @param capacity Maximum total weight
+     * @param weigher  Weight of a configuration, computed once loaded
+     * @param <C>      Configuration class
+     * @return Cache
+     */
+    public static <C extends AbstractConfiguration<C, ?>> ConfigurationCache<C> of(@NonNull CheckedFunction<File, C, ConfigurateException> factory, long capacity, @NonNull Weigher<? super C> weigher) {
+        return new ConfigurationCache<>(factory, capacity, weigher);
+    }
+
+    /**
+     * Set the action called when an evicted configuration cannot be saved.
+     * <p>
+     * Errors of explicit calls ({@link #invalidate(File)}, {@link #flush()}...) are thrown instead.
+     *
+     * @param action Called with the file and the error
+     * @return This cache
+     */
+    public ConfigurationCache<C> onWriteBackFailure(@NonNull BiConsumer<File, ConfigurateException> action) {
+        this.writeBackFailure = Objects.requireNonNull(action, "action");
+        return this;
+    }
+
+    /**
+     * Gets a configuration, loading it if it is not in the cache
+     *
+     * @param file Configuration file
+     * @return Configuration
+     * @throws ConfigurateException if the configuration cannot be loaded
+     */
+    public C get(@NonNull File file) throws ConfigurateException {
+        return acquire(file, false);
+    }
+
+    /**
+     * Gets a configuration if it is in the cache
+     *
+     * @param file Configuration file
+     * @return Configuration, or null if not loaded
+     */
+    public @Nullable C getIfPresent(@NonNull File file) {
+        synchronized (entries) {
+            Entry<C> entry = entries.get(key(file));
+            if (entry == null || entry.value == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.value;
+        }
+    }
+
+    /**
+     * Add a configuration to the cache, replacing the cached one if any.
+     * <p>
+     * The configuration is marked dirty, to be saved when evicted. If the file is being loaded, the load is completed
+     * with this configuration: concurrent gets of the file return it, and the loaded configuration is dropped.
+     *
+     * @param file          Configuration file
+     * @param configuration Configuration
+     */
+    public void put(@NonNull File file, @NonNull C configuration) {
+        Path key = key(file);
+        long added = weigher.weigh(file, configuration);
+        List<Entry<C>> evicted;
+        synchronized (entries) {
+            Entry<C> entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry<>(key, file);
+                entries.put(key, entry);
+            }
+
+            // Complete a load in flight, waiters get this configuration
+            entry.loaded.complete(configuration);
+            weight -= entry.weight;
+            entry.value = configuration;
+            entry.weight = added;
+            entry.dirty = true;
+            weight += added;
+            evicted = evict();
+        }
+        writeBack(evicted);
+    }
+
+    /**
+     * Mark a cached configuration as changed, to be saved when evicted
+     *
+     * @param file Configuration file
+     * @return true if the configuration is in the cache
+     */
+    public boolean markDirty(@NonNull File file) {
+        synchronized (entries) {
+            Entry<C> entry = entries.get(key(file));
+            if (entry == null || entry.value == null) {
+                return false;
+            }
+            entry.dirty = true;
+            return true;
+        }
+    }
+
+    /**
+     * Gets a configuration and pin it, so that it is not evicted until {@link #unpin(File) unpinned}.
+     * <p>
+     * A configuration pinned several times must be unpinned as many times.
+     *
+     * @param file Configuration file
+     * @return Configuration
+     * @throws ConfigurateException if the configuration cannot be loaded
+     */
+    public C pin(@NonNull File file) throws ConfigurateException {
+        return acquire(file, true);
+    }
+
+    /**
+     * Unpin a configuration, evicting configurations if the cache is over its capacity
+     *
+     * @param file Configuration file
+     */
+    public void unpin(@NonNull File file) {
+        List<Entry<C>> evicted;
+        synchronized (entries) {
+            Entry<C> entry = entries.get(key(file));
+            if (entry == null || entry.pins == 0) {
+                throw new IllegalStateException("Configuration is not pinned: " + file.getName());
+            }
+            entry.pins--;
+            evicted = evict();
+        }
+        writeBack(evicted);
+    }
+
+    /**
+     * Remove a configuration from the cache, saving it if it is dirty.
+     * <p>
+     * Pinned configurations are removed as well.
+     *
+     * @param file Configuration file
+     * @throws ConfigurateException if the configuration cannot be saved
+     */
+    public void invalidate(@NonNull File file) throws ConfigurateException {
+        Entry<C> entry;
+        boolean dirty;
+        synchronized (entries) {
+            entry = entries.get(key(file));
+            if (entry == null || entry.value == null) {
+                return;
+            }
+            dirty = remove(entry);
+        }
+        if (dirty) {
+            save(entry, true);
+        }
+    }
+
+    /**
+     * Remove every configuration from the cache, saving the dirty ones.
+     * <p>
+     * Every dirty configuration is saved even if one fails.
+     *
+     * @throws ConfigurateException if a configuration cannot be saved
+     */
+    public void invalidateAll() throws ConfigurateException {
+        List<Entry<C>> removed = new ArrayList<>();
+        synchronized (entries) {
+            for (Entry<C> entry : new ArrayList<>(entries.values())) {
+                if (entry.value != null && remove(entry)) {
+                    removed.add(entry);
+                }
+            }
+        }
+        saveAll(removed);
+    }
+
+    /**
+     * Save every dirty configuration, keeping them in the cache.
+     * <p>
+     * Every dirty configuration is saved even if one fails.
+     *
+     * @throws ConfigurateException if a configuration cannot be saved
+     */
+    public void flush() throws ConfigurateException {
+        List<Entry<C>> dirty = new ArrayList<>();
+        synchronized (entries) {
+            for (Entry<C> entry : entries.values()) {
+                if (entry.dirty && entry.writing == null) {
+                    entry.dirty = false;
+                    entry.writing = new CompletableFuture<>();
+                    dirty.add(entry);
+                }
+            }
+        }
+        saveAll(dirty);
+    }
+
+    /**
+     * Gets the number of configurations in the cache
+     *
+     * @return Number of configurations
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Gets the statistics of the cache
+     *
+     * @return Statistics since the cache was created
+     */
+    public Stats stats() {
+        long weight;
+        synchronized (entries) {
+            weight = this.weight;
+        }
+        return new Stats(hits.sum(), misses.sum(), loadFailures.sum(), evictions.sum(), writeBacks.sum(), writeBackFailures.sum(), weight);
+    }
+
+    private C acquire(File file, boolean pin) throws ConfigurateException {
+        Path key = key(file);
+        Entry<C> entry;
+        boolean added = false;
+        while (true) {
+            CompletableFuture<Void> written;
+            synchronized (entries) {
+                entry = entries.get(key);
+                if (entry != null) {
+                    hits.increment();
+                    entry.pins += pin ? 1 : 0;
+                    if (entry.value != null) {
+                        // Loaded, or replaced by put()
+                        return entry.value;
+                    }
+                    break;
+                }
+                written = writing.get(key);
+                if (written == null) {
+                    misses.increment();
+                    entry = new Entry<>(key, file);
+                    entry.pins += pin ? 1 : 0;
+                    entries.put(key, entry);
+                    added = true;
+                    break;
+                }
+            }
+            // Evicted, wait for the file to be written before reading it again
+            written.join();
+        }
+        if (added) {
+            // Load outside of the cache lock, gets of the same file wait for it
+            return load(entry);
+        }
+
+        try {
+            return entry.loaded.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ConfigurateException) {
+                throw new ConfigurateException(cause.getMessage(), cause);
+            }
+            throw new ConfigurateException("Unable to load file: " + file.getName(), cause);
+        }
+    }
+
+    /**
+     * Load the configuration of an entry added to the cache, outside of the cache lock
+     */
+    private C load(Entry<C> entry) throws ConfigurateException {
+        C configuration;
+        try {
+            configuration = factory.apply(entry.file).loadFrom(entry.file);
+            if (configuration == null) {
+                throw new ConfigurateException("Configuration class cannot be created: " + entry.file.getName());
+            }
+        } catch (ConfigurateException | RuntimeException e) {
+            loadFailures.increment();
+            synchronized (entries) {
+                if (entry.value != null) {
+                    // Replaced by put() while loading
+                    return entry.value;
+                }
+                entries.remove(entry.key, entry);
+            }
+            entry.loaded.completeExceptionally(e);
+            throw e;
+        }
+
+        long added = weigher.weigh(entry.file, configuration);
+        List<Entry<C>> evicted;
+        synchronized (entries) {
+            if (entry.value != null) {
+                // Replaced by put() while loading, keep the configuration put
+                return entry.value;
+            }
+            if (entries.get(entry.key) == entry) {
+                entry.value = configuration;
+                entry.weight = added;
+                weight += added;
+            }
+            evicted = evict();
+        }
+        entry.loaded.complete(configuration);
+        writeBack(evicted);
+        return configuration;
+    }
+
+    /**
+     * Remove least recently used entries until the cache is within its capacity. Called with the cache lock.
+     *
+     * @return Evicted entries to write back
+     */
+    private List<Entry<C>> evict() {
+        List<Entry<C>> evicted = Collections.emptyList();
+        Iterator<Entry<C>> iterator = entries.values().iterator();
+        while (weight > capacity && iterator.hasNext()) {
+            Entry<C> entry = iterator.next();
+            if (entry.pins > 0 || entry.value == null) {
+                continue;
+            }
+            iterator.remove();
+            evictions.increment();
+            if (removed(entry)) {
+                evicted = evicted.isEmpty() ? new ArrayList<>() : evicted;
+                evicted.add(entry);
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Remove an entry. Called with the cache lock.
+     *
+     * @return true if the entry must be saved by the caller
+     */
+    private boolean remove(Entry<C> entry) {
+        entries.remove(entry.key);
+        return removed(entry);
+    }
+
+    /**
+     * Update the cache for a removed entry, registering its write back if dirty. Called with the cache lock.
+     * <p>
+     * An entry already being saved by {@link #flush()} is not saved again, but is not read again either
+     * before that save completes.
+     *
+     * @return true if the entry must be saved by the caller
+     */
+    private boolean removed(Entry<C> entry) {
+        weight -= entry.weight;
+        boolean save = entry.dirty && entry.writing == null;
+        if (save) {
+            entry.dirty = false;
+            entry.writing = new CompletableFuture<>();
+        }
+        if (entry.writing != null) {
+            writing.put(entry.key, entry.writing);
+        }
+        return save;
+    }
+
+    private void writeBack(List<Entry<C>> evicted) {
+        for (Entry<C> entry : evicted) {
+            try {
+                save(entry, false);
+            } catch (ConfigurateException e) {
+                writeBackFailure.accept(entry.file, e);
+            }
+        }
+    }
+
+    private void saveAll(List<Entry<C>> dirty) throws ConfigurateException {
+        ConfigurateException error = null;
+        for (Entry<C> entry : dirty) {
+            try {
+                save(entry, true);
+            } catch (ConfigurateException e) {
+                if (error == null) {
+                    error = e;
+                } else {
+                    error.addSuppressed(e);
+                }
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Save a dirty entry, outside of the cache lock
+     *
+     * @param entry    Entry, with its write registered
+     * @param explicit Whether the save was requested, or is a write back
+     */
+    private void save(Entry<C> entry, boolean explicit) throws ConfigurateException {
+        try {
+            entry.value.save();
+            if (!explicit) {
+                writeBacks.increment();
+            }
+        } catch (ConfigurateException | RuntimeException e) {
+            if (!explicit) {
+                writeBackFailures.increment();
+            }
+            synchronized (entries) {
+                // Keep it dirty, back in the cache if evicted and not replaced by put() meanwhile
+                entry.dirty = true;
+                if (!explicit && !entries.containsKey(entry.key)) {
+                    entries.put(entry.key, entry);
+                    weight += entry.weight;
+                }
+            }
+            throw e instanceof ConfigurateException ? (ConfigurateException) e : new ConfigurateException("Unable to save file: " + entry.file.getName(), e);
+        } finally {
+            CompletableFuture<Void> written;
+            synchronized (entries) {
+                written = entry.writing;
+                entry.writing = null;
+                writing.remove(entry.key, written);
+            }
+            written.complete(null);
+        }
+    }
+
+    private static Path key(File file) {
+        return file.toPath().toAbsolutePath().normalize();
+    }
+
+    /**
+     * Cached configuration
+     */
+    private static final class Entry<C> {
+        private final Path key;
+        private final File file;
+        private final CompletableFuture<C> loaded = new CompletableFuture<>();
+        private @Nullable C value;
+        private long weight;
+        private int pins;
+        private boolean dirty;
+        private @Nullable CompletableFuture<Void> writing;
+
+        private Entry(Path key, File file) {
+            this.key = key;
+            this.file = file;
+        }
+    }
+
+    /**
+     * Statistics of a {@link ConfigurationCache}
+     */
+    public static final class Stats {
+        private final long hits;
+        private final long misses;
+        private final long loadFailures;
+        private final long evictions;
+        private final long writeBacks;
+        private final long writeBackFailures;
+        private final long weight;
+
+        private Stats(long hits, long misses, long loadFailures, long evictions, long writeBacks, long writeBackFailures, long weight) {
+            this.hits = hits;
+            this.misses = misses;
+            this.loadFailures = loadFailures;
+            this.evictions = evictions;
+            this.writeBacks = writeBacks;
+            this.writeBackFailures = writeBackFailures;
+            this.weight = weight;
+        }
+
+        /**
+         * Gets the number of lookups finding the configuration in the cache
+         *
+         * @return Number of hits
+         */
+        public long hits() {
+            return hits;
+        }
+
+        /**
+         * Gets the number of lookups not finding the configuration in the cache
+         *
+         * @return Number of misses
+         */
+        public long misses() {
+            return misses;
+        }
+
+        /**
+         * Gets the ratio of lookups finding the configuration in the cache
+         *
+         * @return Hit rate, 1 if there was no lookup
+         */
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 1 : (double) hits / lookups;
+        }
+
+        /**
+         * Gets the number of configurations which failed to load
+         *
+         * @return Number of load failures
+         */
+        public long loadFailures() {
+            return loadFailures;
+        }
+
+        /**
+         * Gets the number of configurations evicted to stay within the capacity
+         *
+         * @return Number of evictions
+         */
+        public long evictions() {
+            return evictions;
+        }
+
+        /**
+         * Gets the number of dirty configurations saved when evicted
+         *
+         * @return Number of write backs
+         */
+        public long writeBacks() {
+            return writeBacks;
+        }
+
+        /**
+         * Gets the number of dirty configurations which failed to save when evicted
+         *
+         * @return Number of failed write backs
+         */
+        public long writeBackFailures() {
+            return writeBackFailures;
+        }
+
+        /**
+         * Gets the total weight of the cached configurations
+         *
+         * @return Weight
+         */
+        public long weight() {
+            return weight;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{hits=" + hits + ", misses=" + misses + ", loadFailures=" + loadFailures + ", evictions=" + evictions
+                    + ", writeBacks=" + writeBacks + ", writeBackFailures=" + writeBackFailures + ", weight=" + weight + '}';
+        }
+    }
+}
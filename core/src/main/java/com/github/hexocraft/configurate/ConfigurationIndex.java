@@ -0,0 +1,399 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.spongepowered.configurate.ConfigurationNode;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Flat index of the leaf values of a {@link ConfigurationSnapshot}, by dotted path.
+ * <p>
+ * Paths are the node keys joined with dots, list elements are indexed by position, such as
+ * {@code "database.host"} or {@code "servers.0.port"}. Numbers and booleans are converted once
+ * when the index is built, so that {@link #getInt}, {@link #getLong}, {@link #getDouble} and
+ * {@link #getBoolean} neither box nor parse.
+ * <p>
+ * An index is never modified, a new index is built for every snapshot. Building it compares each
+ * top level section with the previous snapshot, and reuses the converted values of the sections
+ * which did not change instead of converting them again. Hit and miss counters are kept across
+ * snapshots.
+ */
+public final class ConfigurationIndex {
+
+    /**
+     * Leaf values by path
+     */
+    private final Map<String, Leaf> leaves;
+
+    /**
+     * Leaf values by top level section, reused by the next index when unchanged
+     */
+    private final Map<Object, Map<String, Leaf>> sections;
+
+    /**
+     * Reads of defined values
+     */
+    private final LongAdder hits;
+
+    /**
+     * Reads of undefined values
+     */
+    private final LongAdder misses;
+
+    private ConfigurationIndex(Map<String, Leaf> leaves, Map<Object, Map<String, Leaf>> sections, LongAdder hits, LongAdder misses) {
+        this.leaves = leaves;
+        this.sections = sections;
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    /**
+     * Build the index of a node tree
+     *
+     * @param root     Root node
+     * @param previous Previous snapshot, the values of its unchanged sections are reused
+     * @return Index
+     */
+    static ConfigurationIndex build(@NonNull ConfigurationNode root, @Nullable ConfigurationSnapshot<?> previous) {
+        ConfigurationIndex index = previous != null ? previous.index() : null;
+        Map<Object, ? extends ConfigurationNode> before = index != null ? previous.root().childrenMap() : null;
+
+        Map<String, Leaf> leaves = new HashMap<>();
+        Map<Object, Map<String, Leaf>> sections = new HashMap<>();
+        for (Map.Entry<Object, ? extends ConfigurationNode> child : root.childrenMap().entrySet()) {
+            Map<String, Leaf> section = null;
+
+            // Reuse unchanged sections
+            if (before != null) {
+                ConfigurationNode old = before.get(child.getKey());
+                if (old != null && IncrementalMapper.same(old, child.getValue())) {
+                    section = index.sections.get(child.getKey());
+                }
+            }
+
+            if (section == null) {
+                section = new HashMap<>();
+                collect(String.valueOf(child.getKey()), child.getValue(), section);
+            }
+            sections.put(child.getKey(), section);
+            leaves.putAll(section);
+        }
+
+        return index != null
+                ? new ConfigurationIndex(leaves, sections, index.hits, index.misses)
+                : new ConfigurationIndex(leaves, sections, new LongAdder(), new LongAdder());
+    }
+
+    /**
+     * Collect the leaf values of a node
+     *
+     * @param path   Path of the node
+     * @param node   Node
+     * @param leaves Leaf values by path
+     */
+    private static void collect(String path, ConfigurationNode node, Map<String, Leaf> leaves) {
+        if (node.isMap()) {
+            for (Map.Entry<Object, ? extends ConfigurationNode> child : node.childrenMap().entrySet()) {
+                collect(path + '.' + child.getKey(), child.getValue(), leaves);
+            }
+        } else if (node.isList()) {
+            List<? extends ConfigurationNode> children = node.childrenList();
+            for (int i = 0; i < children.size(); i++) {
+                collect(path + '.' + i, children.get(i), leaves);
+            }
+        } else if (node.rawScalar() != null) {
+            leaves.put(path, new Leaf(node.rawScalar()));
+        }
+    }
+
+    /**
+     * Gets the leaf at a path, counting the hit or miss
+     *
+     * @param path Path
+     * @param kind Required conversion, or 0 for none
+     * @return Leaf, or null if not defined or not convertible
+     */
+    private @Nullable Leaf leaf(String path, int kind) {
+        Leaf leaf = leaves.get(path);
+        if (leaf == null || (leaf.kinds & kind) != kind) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return leaf;
+    }
+
+    /**
+     * Gets the raw value at a path
+     *
+     * @param path Dotted path
+     * @return Value, or null if not defined
+     */
+    public @Nullable Object get(@NonNull String path) {
+        Leaf leaf = leaf(path, 0);
+        return leaf != null ? leaf.value : null;
+    }
+
+    /**
+     * Gets the value at a path as a string
+     *
+     * @param path Dotted path
+     * @param def  Value returned if not defined
+     * @return Value
+     */
+    public @Nullable String getString(@NonNull String path, @Nullable String def) {
+        Leaf leaf = leaf(path, 0);
+        return leaf != null ? leaf.value.toString() : def;
+    }
+
+    /**
+     * Gets the value at a path as an int
+     *
+     * @param path Dotted path
+     * @param def  Value returned if not defined or not a number
+     * @return Value
+     * @throws ArithmeticException if the value is a number out of the int range
+     */
+    public int getInt(@NonNull String path, int def) {
+        Leaf leaf = leaf(path, Leaf.LONG);
+        if (leaf == null) {
+            return def;
+        }
+        if (leaf.longValue != (int) leaf.longValue) {
+            throw new ArithmeticException("Value at " + path + " is out of the int range: " + leaf.longValue);
+        }
+        return (int) leaf.longValue;
+    }
+
+    /**
+     * Gets the value at a path as a long
+     *
+     * @param path Dotted path
+     * @param def  Value returned if not defined or not a number
+     * @return Value
+     */
+    public long getLong(@NonNull String path, long def) {
+        Leaf leaf = leaf(path, Leaf.LONG);
+        return leaf != null ? leaf.longValue : def;
+    }
+
+    /**
+     * Gets the value at a path as a double
+     *
+     * @param path Dotted path
+     * @param def  Value returned if not defined or not a number
+     * @return Value
+     */
+    public double getDouble(@NonNull String path, double def) {
+        Leaf leaf = leaf(path, Leaf.DOUBLE);
+        return leaf != null ? leaf.doubleValue : def;
+    }
+
+    /**
+     * Gets the value at a path as a boolean
+     *
+     * @param path Dotted path
+     * @param def  Value returned if not defined or not a boolean
+     * @return Value
+     */
+    public boolean getBoolean(@NonNull String path, boolean def) {
+        Leaf leaf = leaf(path, Leaf.BOOLEAN);
+        return leaf != null ? leaf.longValue != 0 : def;
+    }
+
+    /**
+     * Gets whether a value is defined at a path
+     *
+     * @param path Dotted path
+     * @return true if defined
+     */
+    public boolean contains(@NonNull String path) {
+        return leaves.containsKey(path);
+    }
+
+    /**
+     * Gets the number of indexed values
+     *
+     * @return Size
+     */
+    public int size() {
+        return leaves.size();
+    }
+
+    /**
+     * Gets the number of reads of defined values
+     *
+     * @return Hits
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of reads of undefined or not convertible values
+     *
+     * @return Misses
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * Indexed leaf value, with its primitive conversions
+     */
+    private static final class Leaf {
+        private static final int LONG = 1;
+        private static final int DOUBLE = 2;
+        private static final int BOOLEAN = 4;
+
+        private final Object value;
+        private final int kinds;
+        private final long longValue;
+        private final double doubleValue;
+
+        private Leaf(Object value) {
+            int kinds = 0;
+            long longValue = 0;
+            double doubleValue = 0;
+
+            if (value instanceof Boolean) {
+                kinds = BOOLEAN;
+                longValue = (Boolean) value ? 1 : 0;
+            } else if (value instanceof Number) {
+                Number number = (Number) value;
+                kinds = DOUBLE;
+                doubleValue = number.doubleValue();
+                if (isLong(number, doubleValue)) {
+                    kinds |= LONG;
+                    longValue = number.longValue();
+                }
+            } else {
+                // Scalars read as strings, such as XML values
+                String string = value.toString().trim();
+                if (string.equalsIgnoreCase("true") || string.equalsIgnoreCase("false")) {
+                    kinds = BOOLEAN;
+                    longValue = string.equalsIgnoreCase("true") ? 1 : 0;
+                } else {
+                    // Only parse strings which are numbers
+                    int number = number(string);
+                    if (number == LONG) {
+                        longValue = Long.parseLong(string);
+                        doubleValue = longValue;
+                        kinds = LONG | DOUBLE;
+                    } else if (number == DOUBLE) {
+                        doubleValue = Double.parseDouble(string);
+                        kinds = DOUBLE;
+                    }
+                }
+            }
+
+            this.value = value;
+            this.kinds = kinds;
+            this.longValue = longValue;
+            this.doubleValue = doubleValue;
+        }
+
+        /**
+         * Check whether a string is a decimal number, without parsing it
+         *
+         * @param string Trimmed string
+         * @return {@link #LONG} for an integer within the long range, {@link #DOUBLE} for another number, 0 otherwise
+         */
+        private static int number(String string) {
+            int length = string.length();
+            int i = length > 0 && (string.charAt(0) == '-' || string.charAt(0) == '+') ? 1 : 0;
+            int start = i;
+            while (i < length && isDigit(string.charAt(i))) {
+                i++;
+            }
+            int digits = i - start;
+
+            // Integer, unless too large for a long
+            if (i == length) {
+                if (digits == 0) {
+                    return 0;
+                }
+                while (start < length - 1 && string.charAt(start) == '0') {
+                    start++;
+                }
+                int significant = length - start;
+                if (significant < 19) {
+                    return LONG;
+                }
+                String limit = string.charAt(0) == '-' ? "9223372036854775808" : "9223372036854775807";
+                return significant == 19 && string.substring(start).compareTo(limit) <= 0 ? LONG : DOUBLE;
+            }
+
+            // Fraction
+            if (string.charAt(i) == '.') {
+                int fraction = ++i;
+                while (i < length && isDigit(string.charAt(i))) {
+                    i++;
+                }
+                digits += i - fraction;
+            }
+            if (digits == 0) {
+                return 0;
+            }
+
+            // Exponent
+            if (i < length && (string.charAt(i) == 'e' || string.charAt(i) == 'E')) {
+                i++;
+                if (i < length && (string.charAt(i) == '-' || string.charAt(i) == '+')) {
+                    i++;
+                }
+                int exponent = i;
+                while (i < length && isDigit(string.charAt(i))) {
+                    i++;
+                }
+                if (i == exponent) {
+                    return 0;
+                }
+            }
+            return i == length ? DOUBLE : 0;
+        }
+
+        /**
+         * Check whether a number is an integer within the long range, so that it converts without loss
+         *
+         * @param number      Number
+         * @param doubleValue Number as a double
+         * @return true if {@link Number#longValue()} is the number
+         */
+        private static boolean isLong(Number number, double doubleValue) {
+            if (number instanceof Long || number instanceof Integer || number instanceof Short || number instanceof Byte) {
+                return true;
+            }
+            if (number instanceof BigInteger) {
+                return ((BigInteger) number).bitLength() < 64;
+            }
+            // Integral values within [-2^63, 2^63)
+            return doubleValue == Math.rint(doubleValue) && doubleValue >= -0x1p63 && doubleValue < 0x1p63;
+        }
+
+        private static boolean isDigit(char c) {
+            return c >= '0' && c <= '9';
+        }
+    }
+}
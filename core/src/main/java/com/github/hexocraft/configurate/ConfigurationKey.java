@@ -0,0 +1,261 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate;
+
+import io.leangen.geantyref.GenericTypeReflector;
+import io.leangen.geantyref.TypeToken;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.spongepowered.configurate.ConfigurationNode;
+import org.spongepowered.configurate.serialize.SerializationException;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Typed path to a value of a configuration.
+ * <p>
+ * The dotted path is split once when the key is created. Keys are meant to be created once
+ * and kept in constants, then read with {@link AbstractConfiguration#get(ConfigurationKey)}.
+ * <p>
+ * The node and the value resolved from a {@link ConfigurationSnapshot} are cached in the snapshot, so
+ * reading a key again from the same snapshot does not walk the node tree nor allocate, whatever the
+ * number of configurations the key is read from. Cached values are shared by every read: lists, sets
+ * and maps are returned unmodifiable, and other mutable values must not be modified.
+ *
+ * <pre>{@code
+ * static final ConfigurationKey<String> DB_HOST = ConfigurationKey.of("db.host", String.class);
+ *
+ * String host = config.get(DB_HOST);
+ * }</pre>
+ *
+ * @param <V> Value type
+ */
+@SuppressWarnings("unchecked")
+public final class ConfigurationKey<V> {
+
+    /**
+     * Dotted path
+     */
+    private final String path;
+
+    /**
+     * Path elements
+     */
+    private final Object[] elements;
+
+    /**
+     * Value type
+     */
+    private final Type type;
+
+    /**
+     * Value returned when the node is not defined
+     */
+    private final @Nullable V def;
+
+    private ConfigurationKey(String path, Type type, @Nullable V def) {
+        this.path = path;
+        this.elements = split(path);
+        this.type = type;
+        this.def = def;
+    }
+
+    /**
+     * Create a key
+     *
+     * @param path Dotted path, such as {@code "db.host"}
+     * @param type Value type
+     * @return Key
+     */
+    public static <V> ConfigurationKey<V> of(@NonNull String path, @NonNull Class<V> type) {
+        return new ConfigurationKey<>(path, type, null);
+    }
+
+    /**
+     * Create a key with a default value
+     *
+     * @param path Dotted path, such as {@code "db.host"}
+     * @param type Value type
+     * @param def  Value returned when the node is not defined
+     * @return Key
+     */
+    public static <V> ConfigurationKey<V> of(@NonNull String path, @NonNull Class<V> type, @Nullable V def) {
+        return new ConfigurationKey<>(path, type, def);
+    }
+
+    /**
+     * Create a key
+     *
+     * @param path Dotted path, such as {@code "db.host"}
+     * @param type Token holding the value type
+     * @return Key
+     */
+    public static <V> ConfigurationKey<V> of(@NonNull String path, @NonNull TypeToken<V> type) {
+        return new ConfigurationKey<>(path, type.getType(), null);
+    }
+
+    /**
+     * Create a key with a default value
+     *
+     * @param path Dotted path, such as {@code "db.host"}
+     * @param type Token holding the value type
+     * @param def  Value returned when the node is not defined
+     * @return Key
+     */
+    public static <V> ConfigurationKey<V> of(@NonNull String path, @NonNull TypeToken<V> type, @Nullable V def) {
+        return new ConfigurationKey<>(path, type.getType(), def);
+    }
+
+    /**
+     * Split a dotted path
+     *
+     * @param path Dotted path
+     * @return Path elements
+     */
+    private static Object[] split(String path) {
+        List<String> elements = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i <= path.length(); i++) {
+            if (i == path.length() || path.charAt(i) == '.') {
+                if (i == start) {
+                    throw new IllegalArgumentException("Invalid configuration path: " + path);
+                }
+                elements.add(path.substring(start, i));
+                start = i + 1;
+            }
+        }
+        return elements.toArray();
+    }
+
+    /**
+     * Gets the dotted path
+     *
+     * @return Path
+     */
+    public String path() {
+        return path;
+    }
+
+    /**
+     * Gets the node of this key
+     *
+     * @param root Root node
+     * @return Node
+     */
+    public ConfigurationNode node(@NonNull ConfigurationNode root) {
+        return root.node(elements);
+    }
+
+    /**
+     * Gets the value of this key
+     *
+     * @param root Root node
+     * @return Value, or the default value if the node is not defined
+     * @throws SerializationException if the value cannot be deserialized
+     */
+    public @Nullable V get(@NonNull ConfigurationNode root) throws SerializationException {
+        return (V) root.node(elements).get(type, def);
+    }
+
+    /**
+     * Gets the value of this key from the current snapshot of a configuration
+     *
+     * @param config Configuration
+     * @return Value, or the default value if the node is not defined or the configuration is not loaded
+     * @throws SerializationException if the value cannot be deserialized
+     */
+    public @Nullable V get(@NonNull AbstractConfiguration<?, ?> config) throws SerializationException {
+        Resolved<V> current = resolve(config.getSnapshot());
+        return current != null ? current.value : def;
+    }
+
+    /**
+     * Gets the node of this key from the current snapshot of a configuration
+     *
+     * @param config Configuration
+     * @return Node, must not be modified, or null if the configuration is not loaded
+     * @throws SerializationException if the value cannot be deserialized
+     */
+    public @Nullable ConfigurationNode node(@NonNull AbstractConfiguration<?, ?> config) throws SerializationException {
+        Resolved<V> current = resolve(config.getSnapshot());
+        return current != null ? current.node : null;
+    }
+
+    /**
+     * Resolve this key from a snapshot, using the result cached in the snapshot
+     *
+     * @param snapshot Snapshot
+     * @return Resolved node and value, or null if there is no snapshot
+     * @throws SerializationException if the value cannot be deserialized
+     */
+    private @Nullable Resolved<V> resolve(@Nullable ConfigurationSnapshot<?> snapshot) throws SerializationException {
+        if (snapshot == null) {
+            return null;
+        }
+
+        Resolved<V> current = (Resolved<V>) snapshot.resolved(this);
+        if (current == null) {
+            ConfigurationNode node = node(snapshot.root());
+            current = (Resolved<V>) snapshot.resolved(this, new Resolved<>(node, readOnly(node.get(type, def))));
+        }
+        return current;
+    }
+
+    /**
+     * Wrap a shared collection value so that it cannot be modified
+     *
+     * @param value Value
+     * @return Unmodifiable view for lists, sets, maps and collections, the value itself otherwise
+     */
+    private @Nullable V readOnly(@Nullable Object value) {
+        Class<?> erased = GenericTypeReflector.erase(type);
+        if (erased == List.class && value instanceof List) {
+            return (V) Collections.unmodifiableList((List<?>) value);
+        } else if (erased == Set.class && value instanceof Set) {
+            return (V) Collections.unmodifiableSet((Set<?>) value);
+        } else if (erased == Map.class && value instanceof Map) {
+            return (V) Collections.unmodifiableMap((Map<?, ?>) value);
+        } else if (erased == Collection.class && value instanceof Collection) {
+            return (V) Collections.unmodifiableCollection((Collection<?>) value);
+        }
+        return (V) value;
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+
+    /**
+     * Node and value resolved from a snapshot
+     */
+    private static final class Resolved<V> {
+        private final ConfigurationNode node;
+        private final @Nullable V value;
+
+        private Resolved(ConfigurationNode node, @Nullable V value) {
+            this.node = node;
+            this.value = value;
+        }
+    }
+}
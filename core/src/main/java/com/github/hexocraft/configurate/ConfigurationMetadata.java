@@ -0,0 +1,302 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate;
+
+import com.github.hexocraft.configurate.annotations.Configuration;
+import com.github.hexocraft.configurate.annotations.ConfigurationClass;
+import com.github.hexocraft.configurate.annotations.ConfigurationFile;
+import com.github.hexocraft.configurate.annotations.ConfigurationHeader;
+import io.leangen.geantyref.TypeToken;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.spongepowered.configurate.ConfigurationNode;
+import org.spongepowered.configurate.ConfigurationOptions;
+import org.spongepowered.configurate.loader.ConfigurationLoader;
+import org.spongepowered.configurate.loader.HeaderMode;
+import org.spongepowered.configurate.objectmapping.ObjectMapper;
+import org.spongepowered.configurate.serialize.SerializationException;
+
+import java.io.File;
+import java.lang.reflect.Type;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Class level metadata of an {@link AbstractConfiguration}.
+ * <p>
+ * Annotations are read once per class, from the code generated by the configuration
+ * processor when present, and the result is shared by every instance of that class.
+ * Metadata is held in a {@link ClassValue} so that it does not prevent the class from
+ * being unloaded, along with the loaders shared by the instances of the class.
+ */
+@SuppressWarnings("unchecked")
+final class ConfigurationMetadata {
+
+    /**
+     * Maximum number of loaders shared by the instances of a class
+     */
+    static final int LOADERS = 256;
+
+    private static final ClassValue<ConfigurationMetadata> CACHE = new ClassValue<ConfigurationMetadata>() {
+        @Override
+        protected ConfigurationMetadata computeValue(Class<?> type) {
+            return new ConfigurationMetadata(type);
+        }
+    };
+
+    /**
+     * Token holding the class type to map, as defined by annotations
+     */
+    private final @Nullable TypeToken<?> type;
+
+    /**
+     * Configuration file, as defined by annotations
+     */
+    private final @Nullable File file;
+
+    /**
+     * Comment header, as defined by annotations
+     */
+    private final String header;
+
+    /**
+     * Format name, reported to {@link ConfigurationMetrics}
+     */
+    private final String format;
+
+    /**
+     * Options derived from the options given to the constructor
+     */
+    private final ConcurrentMap<ConfigurationOptions, ConfigurationOptions> options = new ConcurrentHashMap<>();
+
+    /**
+     * Options derived from the options given to the constructor, with the annotated header
+     */
+    private final ConcurrentMap<ConfigurationOptions, ConfigurationOptions> headerOptions = new ConcurrentHashMap<>();
+
+    /**
+     * Mappers by mapped type
+     */
+    private final ConcurrentMap<Type, ObjectMapper<?>> mappers = new ConcurrentHashMap<>();
+
+    /**
+     * Loaders shared by the instances of this class, least recently used first
+     */
+    private final Map<LoaderKey, ConfigurationLoader<? extends ConfigurationNode>> loaders = new LinkedHashMap<LoaderKey, ConfigurationLoader<? extends ConfigurationNode>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<LoaderKey, ConfigurationLoader<? extends ConfigurationNode>> eldest) {
+            return size() > LOADERS;
+        }
+    };
+
+    private ConfigurationMetadata(Class<?> clazz) {
+        ClassAnnotations annotations = ClassAnnotations.of(clazz);
+
+        // The format is the class directly extending AbstractConfiguration, such as YamlConfiguration
+        Class<?> format = clazz;
+        while (format.getSuperclass() != null && format.getSuperclass() != AbstractConfiguration.class) {
+            format = format.getSuperclass();
+        }
+        format = format.getSuperclass() != null ? format : clazz;
+        String name = format.getSimpleName();
+        this.format = name.endsWith("Configuration") && name.length() > "Configuration".length()
+                ? name.substring(0, name.length() - "Configuration".length())
+                : name;
+
+        if (annotations.has(ConfigurationClass.class)) {
+            this.type = TypeToken.get(annotations.<Class<?>>value(ConfigurationClass.class, "value"));
+        } else if (annotations.has(Configuration.class)) {
+            this.type = TypeToken.get(annotations.<Class<?>>value(Configuration.class, "clazz"));
+        } else {
+            this.type = null;
+        }
+
+        if (annotations.has(ConfigurationFile.class)) {
+            this.file = new File(annotations.<String>value(ConfigurationFile.class, "value"));
+        } else if (annotations.has(Configuration.class)) {
+            this.file = new File(annotations.<String>value(Configuration.class, "file"));
+        } else {
+            this.file = null;
+        }
+
+        if (annotations.has(ConfigurationHeader.class)) {
+            this.header = annotations.value(ConfigurationHeader.class, "value");
+        } else if (annotations.has(Configuration.class)) {
+            this.header = annotations.value(Configuration.class, "header");
+        } else {
+            this.header = "";
+        }
+    }
+
+    /**
+     * Gets the metadata of a configuration class
+     *
+     * @param clazz Configuration class
+     * @return Metadata
+     */
+    static ConfigurationMetadata of(@NonNull Class<?> clazz) {
+        return CACHE.get(clazz);
+    }
+
+    /**
+     * Gets the token holding the class type to map from annotation
+     *
+     * @return token, or null if neither {@link ConfigurationClass} nor {@link Configuration} is defined
+     */
+    <C> @Nullable TypeToken<C> type() {
+        return (TypeToken<C>) type;
+    }
+
+    /**
+     * Gets file to load and/or save from annotation
+     *
+     * @return File, or null if neither {@link ConfigurationFile} nor {@link Configuration} is defined
+     */
+    @Nullable File file() {
+        return file;
+    }
+
+    /**
+     * Gets header comment from annotation
+     *
+     * @return Header comment, empty if not defined
+     */
+    String header() {
+        return header;
+    }
+
+    /**
+     * Gets the format name, such as {@code Yaml}
+     *
+     * @return Format name
+     */
+    String format() {
+        return format;
+    }
+
+    /**
+     * Gets the options to use for the given options.
+     * <p>
+     * The serializers are the {@link ConfigurationSerializers} and, if requested, the annotated header is set.
+     * Results are shared between instances.
+     *
+     * @param base   Options given to the constructor
+     * @param header Whether the annotated header must be set
+     * @return Options to use
+     */
+    ConfigurationOptions options(@NonNull ConfigurationOptions base, boolean header) {
+        ConcurrentMap<ConfigurationOptions, ConfigurationOptions> cache = header ? headerOptions : options;
+        ConfigurationOptions derived = cache.get(base);
+        if (derived == null) {
+            derived = base.serializers(ConfigurationSerializers.serializers(base.serializers()));
+            derived = header ? derived.header(this.header) : derived;
+            ConfigurationOptions previous = cache.putIfAbsent(base, derived);
+            derived = previous != null ? previous : derived;
+        }
+        return derived;
+    }
+
+    /**
+     * Gets the mapper for the given type
+     *
+     * @param type Token holding the class type to map
+     * @return Mapper
+     * @throws SerializationException if the type cannot be mapped
+     */
+    <C> ObjectMapper<C> mapper(@NonNull TypeToken<C> type) throws SerializationException {
+        ObjectMapper<?> mapper = mappers.get(type.getType());
+        if (mapper == null) {
+            mapper = AccessorFieldDiscoverer.FACTORY.get(type);
+            ObjectMapper<?> previous = mappers.putIfAbsent(type.getType(), mapper);
+            mapper = previous != null ? previous : mapper;
+        }
+        return (ObjectMapper<C>) mapper;
+    }
+
+    /**
+     * Gets the loader shared by the instances of this class using the same file, options, header mode
+     * and save mode.
+     * <p>
+     * Loaders are immutable once built. The least recently used loaders are dropped beyond {@link #LOADERS}.
+     *
+     * @param file       The configuration file
+     * @param options    Configuration options
+     * @param headerMode HeaderMode to use
+     * @param saveMode   SaveMode to use
+     * @param factory    Create the loader if it is not shared yet
+     * @return ConfigurationLoader
+     */
+    ConfigurationLoader<? extends ConfigurationNode> loader(@Nullable File file, @NonNull ConfigurationOptions options, @NonNull HeaderMode headerMode, @NonNull SaveMode saveMode, @NonNull Supplier<ConfigurationLoader<? extends ConfigurationNode>> factory) {
+        LoaderKey key = new LoaderKey(file, options, headerMode, saveMode);
+        ConfigurationLoader<? extends ConfigurationNode> loader;
+        synchronized (loaders) {
+            loader = loaders.get(key);
+        }
+        if (loader == null) {
+            // Build outside of the lock, loaders are cheap enough to be built twice on a race
+            loader = Objects.requireNonNull(factory.get());
+            synchronized (loaders) {
+                ConfigurationLoader<? extends ConfigurationNode> previous = loaders.putIfAbsent(key, loader);
+                loader = previous != null ? previous : loader;
+            }
+        }
+        return loader;
+    }
+
+    /**
+     * Key of a shared loader
+     */
+    private static final class LoaderKey {
+        private final @Nullable File file;
+        private final ConfigurationOptions options;
+        private final HeaderMode headerMode;
+        private final SaveMode saveMode;
+        private final int hash;
+
+        private LoaderKey(@Nullable File file, ConfigurationOptions options, HeaderMode headerMode, SaveMode saveMode) {
+            this.file = file;
+            this.options = options;
+            this.headerMode = headerMode;
+            this.saveMode = saveMode;
+            int hash = Objects.hashCode(file);
+            hash = 31 * hash + options.hashCode();
+            hash = 31 * hash + headerMode.hashCode();
+            hash = 31 * hash + saveMode.hashCode();
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof LoaderKey)) return false;
+            LoaderKey key = (LoaderKey) o;
+            return headerMode == key.headerMode
+                    && saveMode == key.saveMode
+                    && Objects.equals(file, key.file)
+                    && options.equals(key.options);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Receive the timings of the loads and saves of every {@link AbstractConfiguration}.
+ * <p>
+ * The metrics of the application are set with {@link AbstractConfiguration#setMetrics(ConfigurationMetrics)}. The
+ * implementations registered as {@link java.util.ServiceLoader services}, such as the Java Flight Recorder metrics,
+ * are used in addition to them. Several metrics are combined with {@link #combine(ConfigurationMetrics...)}. While
+ * metrics are not {@link #enabled()}, configurations do not read the clock.
+ * <p>
+ * The bytes of a {@link Phase#READ} are the bytes read from the configuration file or from its {@link BinaryCache}
+ * file. The bytes of a {@link Phase#WRITE} are the bytes written, even if the file is then kept because its content
+ * did not change, or replaced later by a group commit. Formats reading the file without
+ * {@link AbstractConfiguration#openSource(File)} report 0.
+ * <p>
+ * Implementations are called from any thread, on the thread doing the work.
+ *
+ * @see HistogramMetrics
+ */
+public interface ConfigurationMetrics {
+
+    /**
+     * Metrics ignoring everything
+     */
+    ConfigurationMetrics NONE = new ConfigurationMetrics() {
+        @Override
+        public boolean enabled() {
+            return false;
+        }
+
+        @Override
+        public void recorded(@NonNull Class<?> configuration, @NonNull String format, @NonNull Phase phase, long nanos, long bytes) {
+        }
+
+        @Override
+        public void failed(@NonNull Class<?> configuration, @NonNull String format, @NonNull Phase phase, @NonNull Throwable error) {
+        }
+    };
+
+    /**
+     * Combine several metrics, each phase being reported to all the metrics enabled when it starts
+     *
+     * @param metrics Metrics
+     * @return Combined metrics, {@link #NONE} if none is given
+     */
+    static ConfigurationMetrics combine(@NonNull ConfigurationMetrics... metrics) {
+        List<ConfigurationMetrics> combined = new ArrayList<>();
+        for (ConfigurationMetrics metric : metrics) {
+            if (metric != NONE) {
+                combined.add(Objects.requireNonNull(metric, "metrics"));
+            }
+        }
+        if (combined.isEmpty()) {
+            return NONE;
+        }
+        return combined.size() == 1 ? combined.get(0) : new CompositeMetrics(combined.toArray(new ConfigurationMetrics[0]));
+    }
+
+    /**
+     * Step of a load or a save
+     */
+    enum Phase {
+        /**
+         * Create the configuration object, resolving its class metadata, loader and mapper
+         */
+        CREATE,
+
+        /**
+         * Read and parse the file into nodes. When streaming, values are also bound to the object in this phase.
+         */
+        READ,
+
+        /**
+         * Map the nodes to the object
+         */
+        MAP,
+
+        /**
+         * Map the object to the nodes
+         */
+        SERIALIZE,
+
+        /**
+         * Write the nodes to the file
+         */
+        WRITE
+    }
+
+    /**
+     * Whether phases are measured.
+     * <p>
+     * Checked before each phase, so that metrics can be turned off and on at runtime.
+     *
+     * @return true to measure phases
+     */
+    default boolean enabled() {
+        return true;
+    }
+
+    /**
+     * Called when a phase starts, on the thread doing the work
+     *
+     * @param configuration Configuration class
+     * @param phase         Phase
+     * @param file          Configuration file, or null if not known yet
+     * @return Context given back when the phase completes, or null
+     */
+    default @Nullable Object started(@NonNull Class<?> configuration, @NonNull Phase phase, @Nullable File file) {
+        return null;
+    }
+
+    /**
+     * Called when a phase completed, with the context returned when it started
+     *
+     * @param context       Context returned by {@link #started(Class, Phase, File)}
+     * @param configuration Configuration class
+     * @param format        Configuration format, such as {@code Yaml}
+     * @param phase         Phase
+     * @param nanos         Duration, in nanoseconds
+     * @param bytes         Bytes read or written, 0 for the other phases
+     */
+    default void recorded(@Nullable Object context, @NonNull Class<?> configuration, @NonNull String format, @NonNull Phase phase, long nanos, long bytes) {
+        recorded(configuration, format, phase, nanos, bytes);
+    }
+
+    /**
+     * Called when a phase failed, with the context returned when it started
+     *
+     * @param context       Context returned by {@link #started(Class, Phase, File)}
+     * @param configuration Configuration class
+     * @param format        Configuration format, such as {@code Yaml}
+     * @param phase         Phase
+     * @param error         Error
+     */
+    default void failed(@Nullable Object context, @NonNull Class<?> configuration, @NonNull String format, @NonNull Phase phase, @NonNull Throwable error) {
+        failed(configuration, format, phase, error);
+    }
+
+    /**
+     * Called when a phase completed
+     *
+     * @param configuration Configuration class
+     * @param format        Configuration format, such as {@code Yaml}
+     * @param phase         Phase
+     * @param nanos         Duration, in nanoseconds
+     * @param bytes         Bytes read or written, 0 for the other phases
+     */
+    void recorded(@NonNull Class<?> configuration, @NonNull String format, @NonNull Phase phase, long nanos, long bytes);
+
+    /**
+     * Called when a phase failed
+     *
+     * @param configuration Configuration class
+     * @param format        Configuration format, such as {@code Yaml}
+     * @param phase         Phase
+     * @param error         Error
+     */
+    void failed(@NonNull Class<?> configuration, @NonNull String format, @NonNull Phase phase, @NonNull Throwable error);
+}
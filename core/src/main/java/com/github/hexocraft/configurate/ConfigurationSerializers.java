@@ -0,0 +1,128 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate;
+
+import com.github.hexocraft.configurate.serialize.ColorSerializer;
+import io.leangen.geantyref.GenericTypeReflector;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.spongepowered.configurate.objectmapping.ConfigSerializable;
+import org.spongepowered.configurate.serialize.TypeSerializerCollection;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Serializers shared by every configuration.
+ * <p>
+ * The {@link ColorSerializer}, the {@link Lazy} serializer and the annotated objects mapped with
+ * {@link AccessorFieldDiscoverer#FACTORY} are registered once, in front of the Configurate defaults, in a single
+ * collection without parent. A {@link TypeSerializerCollection} caches the serializer it resolves for each type, but a
+ * child collection does not remember the types it leaves to its parent: keeping every serializer in one collection
+ * makes each lookup a single hit in that cache, whatever the type.
+ * <p>
+ * Custom serializer collections keep precedence over the built-in serializers: the color serializer and the annotated
+ * objects mapper are only used for the types a custom collection leaves to the Configurate defaults.
+ */
+public final class ConfigurationSerializers {
+
+    private static final TypeSerializerCollection SERIALIZERS = register(TypeSerializerCollection.builder())
+            .registerAll(TypeSerializerCollection.defaults())
+            .build();
+
+    /**
+     * Collections derived from custom serializer collections.
+     * <p>
+     * Both are weakly held, a derived collection referencing its custom collection as parent: the entry is kept as
+     * long as options use the derived collection, and does not pin custom collections nor the classes they serialize.
+     */
+    private static final Map<TypeSerializerCollection, WeakReference<TypeSerializerCollection>> DERIVED = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private ConfigurationSerializers() {
+    }
+
+    /**
+     * Gets the shared serializers, holding the built-in serializers and the Configurate defaults
+     *
+     * @return Serializers
+     */
+    public static TypeSerializerCollection serializers() {
+        return SERIALIZERS;
+    }
+
+    /**
+     * Gets the serializers to use on top of the given serializers.
+     * <p>
+     * Returns the shared serializers for the Configurate defaults, and a child collection of any other collection,
+     * built once per collection as long as it is used. The serializers of the given collection are used before the
+     * built-in ones, except for {@link Lazy} values.
+     *
+     * @param serializers Serializers given with the options
+     * @return Serializers to use
+     */
+    public static TypeSerializerCollection serializers(@NonNull TypeSerializerCollection serializers) {
+        if (serializers == SERIALIZERS || serializers == TypeSerializerCollection.defaults()) {
+            return SERIALIZERS;
+        }
+        WeakReference<TypeSerializerCollection> reference = DERIVED.get(serializers);
+        TypeSerializerCollection derived = reference != null ? reference.get() : null;
+        if (derived == null) {
+            derived = serializers.childBuilder()
+                    .register(LazySerializer::accepts, LazySerializer.INSTANCE)
+                    .register(inherited(serializers, type -> GenericTypeReflector.isSuperType(ColorSerializer.TYPE, type)), ColorSerializer.INSTANCE)
+                    .register(inherited(serializers, ConfigurationSerializers::isAnnotated), AccessorFieldDiscoverer.FACTORY.asTypeSerializer())
+                    .build();
+            synchronized (DERIVED) {
+                reference = DERIVED.get(serializers);
+                TypeSerializerCollection previous = reference != null ? reference.get() : null;
+                if (previous != null) {
+                    return previous;
+                }
+                DERIVED.put(serializers, new WeakReference<>(derived));
+            }
+        }
+        return derived;
+    }
+
+    private static TypeSerializerCollection.Builder register(TypeSerializerCollection.Builder builder) {
+        return builder
+                .register(ColorSerializer.TYPE, ColorSerializer.INSTANCE)
+                .register(LazySerializer::accepts, LazySerializer.INSTANCE)
+                .registerAnnotatedObjects(AccessorFieldDiscoverer.FACTORY);
+    }
+
+    /**
+     * Restrict a built-in serializer to the types a custom collection does not serialize itself
+     *
+     * @param custom  Custom serializers
+     * @param accepts Types accepted by the built-in serializer
+     * @return Types to use the built-in serializer for
+     */
+    private static Predicate<Type> inherited(TypeSerializerCollection custom, Predicate<Type> accepts) {
+        return type -> accepts.test(type) && custom.get(type) == TypeSerializerCollection.defaults().get(type);
+    }
+
+    /**
+     * Check whether a type is mapped as an annotated object
+     */
+    private static boolean isAnnotated(Type type) {
+        return GenericTypeReflector.erase(type).isAnnotationPresent(ConfigSerializable.class);
+    }
+}
@@ -0,0 +1,413 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Writers used by configuration loaders to save a configuration file.
+ * <p>
+ * The writer targets a temporary file in the same directory as the configuration file, with the
+ * same permissions and owner. Loaders close the writer even when they fail, so closing it does not
+ * replace the configuration file: the file is replaced by {@link #commit()} once the loader returned,
+ * or the temporary file deleted by {@link #discard()} if it failed. The configuration file is then
+ * replaced according to the {@link SaveMode}, unless it already has the same content.
+ */
+final class ConfigurationSink {
+
+    private static final CompletableFuture<Void> COMMITTED = CompletableFuture.completedFuture(null);
+
+    /**
+     * Last file written by a sink on each thread, until committed or discarded
+     */
+    private static final ThreadLocal<Pending> PENDING = new ThreadLocal<>();
+
+    private ConfigurationSink() {
+    }
+
+    /**
+     * Replace the configuration file with the last file written by a sink on the current thread.
+     * <p>
+     * Loaders write the file on the thread calling them, so this is the file of the last save of the
+     * calling thread. It must only be called once the loader returned, so that the whole node tree
+     * is written.
+     *
+     * @return Outcome, or null if no file was written
+     * @throws IOException if the configuration file cannot be replaced
+     */
+    static @Nullable Written commit() throws IOException {
+        Pending pending = PENDING.get();
+        PENDING.remove();
+        if (pending == null) {
+            return null;
+        }
+
+        if (pending.unchanged) {
+            Files.deleteIfExists(pending.temporary);
+            return new Written(false, COMMITTED);
+        }
+
+        CompletableFuture<Void> committed = COMMITTED;
+        try {
+            switch (pending.mode) {
+                case GROUP_COMMIT:
+                    committed = GroupCommit.submit(pending.temporary, pending.file);
+                    break;
+                case SYNC:
+                    move(pending.temporary, pending.file);
+                    syncDirectory(pending.file.getParent());
+                    break;
+                default:
+                    move(pending.temporary, pending.file);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(pending.temporary);
+            throw e;
+        }
+        return new Written(true, committed);
+    }
+
+    /**
+     * Delete the last file written by a sink on the current thread, keeping the configuration file as is.
+     * <p>
+     * Used when the loader failed, as the file may only hold part of the node tree.
+     */
+    static void discard() {
+        Pending pending = PENDING.get();
+        PENDING.remove();
+        if (pending != null) {
+            try {
+                Files.deleteIfExists(pending.temporary);
+            } catch (IOException ignored) {
+                // Left behind, but never moved over the configuration file
+            }
+        }
+    }
+
+    /**
+     * Create a sink writing to the given file
+     *
+     * @param target Configuration file
+     * @param mode   Save mode
+     * @return Sink
+     */
+    static Callable<BufferedWriter> of(@NonNull Path target, @NonNull SaveMode mode) {
+        final Path absolute = target.toAbsolutePath();
+        return () -> open(absolute, mode);
+    }
+
+    /**
+     * Open a writer to a temporary file which replaces the target file once committed
+     *
+     * @param target Configuration file
+     * @param mode   Save mode
+     * @return Writer
+     * @throws IOException if the temporary file cannot be created
+     */
+    private static BufferedWriter open(Path target, SaveMode mode) throws IOException {
+        // Write through symbolic links, as the configuration file may be linked elsewhere
+        final Path file = Files.isSymbolicLink(target) ? target.resolveSibling(Files.readSymbolicLink(target)) : target;
+        final Path directory = file.getParent();
+        Files.createDirectories(directory);
+
+        final Path temporary = createTemporary(directory, file);
+        final FileOutputStream stream;
+        try {
+            stream = new FileOutputStream(temporary.toFile());
+        } catch (IOException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+
+        return new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8)) {
+            private boolean closed = false;
+
+            @Override
+            public void close() throws IOException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+
+                boolean unchanged;
+                try {
+                    flush();
+                    TransferredBytes.add(stream.getChannel().position());
+
+                    // Keep the file if its content is the same, unless a different content is about to be committed
+                    unchanged = (mode != SaveMode.GROUP_COMMIT || !GroupCommit.isPending(file)) && sameContent(temporary, file);
+                    if (!unchanged && mode == SaveMode.SYNC) {
+                        stream.getChannel().force(true);
+                    }
+                } catch (IOException e) {
+                    super.close();
+                    Files.deleteIfExists(temporary);
+                    throw e;
+                }
+                super.close();
+
+                // Replaced once the loader returned, as it closes the writer even if it failed
+                discard();
+                PENDING.set(new Pending(temporary, file, mode, unchanged));
+            }
+        };
+    }
+
+    /**
+     * Create an empty temporary file next to the configuration file.
+     * <p>
+     * The file gets the permissions and owner of the configuration file if it exists, so that
+     * replacing the configuration file does not change them. Otherwise it gets the default
+     * permissions of new files. This is done before anything is written to it.
+     *
+     * @param directory Directory of the configuration file
+     * @param file      Configuration file
+     * @return Temporary file
+     * @throws IOException if the file cannot be created
+     */
+    private static Path createTemporary(Path directory, Path file) throws IOException {
+        Path temporary;
+        while (true) {
+            temporary = directory.resolve("." + file.getFileName() + Long.toUnsignedString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+            try {
+                Files.createFile(temporary);
+                break;
+            } catch (FileAlreadyExistsException ignored) {
+                // Try another name
+            }
+        }
+
+        try {
+            copyAttributes(file, temporary);
+        } catch (IOException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        return temporary;
+    }
+
+    /**
+     * Copy the POSIX permissions, owner and group of a file to another file.
+     * <p>
+     * Nothing is copied if the source does not exist or the file system is not POSIX. The owner
+     * and group are only copied when allowed, as when copying a file with its attributes.
+     *
+     * @param source File to copy from
+     * @param target File to copy to
+     * @throws IOException if the permissions cannot be copied
+     */
+    static void copyAttributes(Path source, Path target) throws IOException {
+        PosixFileAttributeView sourceView = Files.getFileAttributeView(source, PosixFileAttributeView.class);
+        PosixFileAttributeView targetView = Files.getFileAttributeView(target, PosixFileAttributeView.class);
+        if (sourceView == null || targetView == null) {
+            return;
+        }
+
+        PosixFileAttributes attributes;
+        try {
+            attributes = sourceView.readAttributes();
+        } catch (NoSuchFileException e) {
+            return;
+        }
+
+        targetView.setPermissions(attributes.permissions());
+        try {
+            PosixFileAttributes current = targetView.readAttributes();
+            if (!attributes.owner().equals(current.owner())) {
+                targetView.setOwner(attributes.owner());
+            }
+            if (!attributes.group().equals(current.group())) {
+                targetView.setGroup(attributes.group());
+            }
+        } catch (IOException ignored) {
+            // Not allowed to change the owner, keep ours
+        }
+    }
+
+    /**
+     * Compare the content of the temporary file with the configuration file
+     *
+     * @param temporary Temporary file
+     * @param file      Configuration file
+     * @return true if both files have the same content
+     * @throws IOException if the temporary file cannot be read
+     */
+    private static boolean sameContent(Path temporary, Path file) throws IOException {
+        try {
+            if (Files.size(temporary) != Files.size(file)) {
+                return false;
+            }
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+
+        try (InputStream written = Files.newInputStream(temporary); InputStream current = Files.newInputStream(file)) {
+            byte[] first = new byte[8192];
+            byte[] second = new byte[8192];
+            while (true) {
+                int length = read(written, first);
+                if (length != read(current, second)) {
+                    return false;
+                }
+                if (length == 0) {
+                    return true;
+                }
+                for (int i = 0; i < length; i++) {
+                    if (first[i] != second[i]) {
+                        return false;
+                    }
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Fill a buffer from a stream
+     *
+     * @param stream Stream
+     * @param buffer Buffer
+     * @return Number of bytes read, less than the buffer length only at the end of the stream
+     * @throws IOException if the stream cannot be read
+     */
+    private static int read(InputStream stream, byte[] buffer) throws IOException {
+        int length = 0;
+        while (length < buffer.length) {
+            int read = stream.read(buffer, length, buffer.length - length);
+            if (read < 0) {
+                break;
+            }
+            length += read;
+        }
+        return length;
+    }
+
+    /**
+     * Move the temporary file over the configuration file, atomically when supported
+     *
+     * @param temporary Temporary file
+     * @param target    Configuration file
+     * @throws IOException if the file cannot be moved
+     */
+    static void move(Path temporary, Path target) throws IOException {
+        try {
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Force a file to disk
+     *
+     * @param file File
+     * @throws IOException if the file cannot be forced
+     */
+    static void sync(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Force a directory to disk, so that renames in this directory are durable.
+     * <p>
+     * Some platforms cannot open directories, in which case this is a no-op.
+     *
+     * @param directory Directory
+     */
+    static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+            // Not supported on this platform
+        }
+    }
+
+    /**
+     * Temporary file written, waiting for {@link #commit()} or {@link #discard()}
+     */
+    private static final class Pending {
+
+        private final Path temporary;
+        private final Path file;
+        private final SaveMode mode;
+        private final boolean unchanged;
+
+        private Pending(Path temporary, Path file, SaveMode mode, boolean unchanged) {
+            this.temporary = temporary;
+            this.file = file;
+            this.mode = mode;
+            this.unchanged = unchanged;
+        }
+    }
+
+    /**
+     * Outcome of writing a configuration file
+     */
+    static final class Written {
+
+        private final boolean changed;
+        private final CompletableFuture<Void> committed;
+
+        private Written(boolean changed, CompletableFuture<Void> committed) {
+            this.changed = changed;
+            this.committed = committed;
+        }
+
+        /**
+         * Gets whether the configuration file is replaced
+         *
+         * @return false if the file already had the same content and is kept as is
+         */
+        boolean changed() {
+            return changed;
+        }
+
+        /**
+         * Gets when the configuration file is in place
+         *
+         * @return Future completed once the file is replaced. It is already completed unless the file is handed
+         * over to {@link GroupCommit}, and cancelled if a later save of the same window replaces it.
+         */
+        CompletableFuture<Void> committed() {
+            return committed;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.spongepowered.configurate.ConfigurationNode;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Node tree of a configuration, as last loaded from or saved to its file.
+ * <p>
+ * A snapshot is published as a whole once its tree is complete, and the tree is never
+ * modified afterwards: saves are mapped to a copy which is published as a new snapshot.
+ * Readers on any thread can therefore use a snapshot without locking. The tree must be
+ * treated as read-only, use {@link ConfigurationNode#copy()} to get a modifiable tree.
+ *
+ * @param <N> Node type
+ */
+public final class ConfigurationSnapshot<N extends ConfigurationNode> {
+
+    /**
+     * Root node
+     */
+    private final N root;
+
+    /**
+     * Fingerprint of the node tree, used to skip saves which would not change the file
+     */
+    private final long fingerprint;
+
+    /**
+     * Flat index of the leaf values, if enabled
+     */
+    private final @Nullable ConfigurationIndex index;
+
+    /**
+     * Values resolved by {@link ConfigurationKey}s from this snapshot
+     */
+    private final ConcurrentMap<ConfigurationKey<?>, Object> resolved = new ConcurrentHashMap<>();
+
+    ConfigurationSnapshot(@NonNull N root) {
+        this(root, NodeFingerprint.of(root), null);
+    }
+
+    ConfigurationSnapshot(@NonNull N root, long fingerprint, @Nullable ConfigurationIndex index) {
+        this.root = root;
+        this.fingerprint = fingerprint;
+        this.index = index;
+    }
+
+    /**
+     * Gets the root node
+     *
+     * @return Root node, must not be modified
+     */
+    public N root() {
+        return root;
+    }
+
+    /**
+     * Gets a node from the root node
+     *
+     * @param path Path of the node
+     * @return Node, must not be modified
+     */
+    public ConfigurationNode node(Object... path) {
+        return root.node(path);
+    }
+
+    /**
+     * Gets the flat index of the leaf values
+     *
+     * @return Index, or null if the configuration is not indexed
+     * @see AbstractConfiguration#setIndexed(boolean)
+     */
+    public @Nullable ConfigurationIndex index() {
+        return index;
+    }
+
+    /**
+     * Gets the value resolved by a key from this snapshot
+     *
+     * @param key Key
+     * @return Resolved value, or null if the key has not been read from this snapshot yet
+     */
+    @Nullable Object resolved(@NonNull ConfigurationKey<?> key) {
+        return resolved.get(key);
+    }
+
+    /**
+     * Remember the value resolved by a key from this snapshot
+     *
+     * @param key   Key
+     * @param value Resolved value
+     * @return Value to use, resolved by another thread first if any
+     */
+    Object resolved(@NonNull ConfigurationKey<?> key, @NonNull Object value) {
+        Object previous = resolved.putIfAbsent(key, value);
+        return previous != null ? previous : value;
+    }
+
+    /**
+     * Gets the fingerprint of the node tree
+     *
+     * @return Fingerprint
+     */
+    long fingerprint() {
+        return fingerprint;
+    }
+}
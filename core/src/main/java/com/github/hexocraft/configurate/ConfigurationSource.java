@@ -0,0 +1,108 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+
+/**
+ * Source of the configuration file read by loaders and streaming readers.
+ * <p>
+ * The file is decoded as UTF-8, rejecting malformed input as Configurate does. The bytes read are counted and
+ * reported to the {@link ConfigurationMetrics} once the reader is closed.
+ */
+final class ConfigurationSource {
+
+    private ConfigurationSource() {
+    }
+
+    /**
+     * Create a source reading the given file
+     *
+     * @param file Configuration file
+     * @return Source
+     */
+    static Callable<BufferedReader> of(@NonNull Path file) {
+        return () -> open(file);
+    }
+
+    /**
+     * Open a reader of the given file
+     *
+     * @param file Configuration file
+     * @return Reader
+     * @throws IOException if the file cannot be opened
+     */
+    static BufferedReader open(@NonNull Path file) throws IOException {
+        return new BufferedReader(new InputStreamReader(new CountingInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8.newDecoder()));
+    }
+
+    /**
+     * Stream counting the bytes read, added to the {@link TransferredBytes} of the thread closing it
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long bytes;
+        private boolean closed;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+            if (read >= 0) {
+                bytes++;
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                bytes += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            bytes += skipped;
+            return skipped;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                TransferredBytes.add(bytes);
+            }
+            super.close();
+        }
+    }
+}
@@ -0,0 +1,373 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.spongepowered.configurate.ConfigurateException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Reload configurations when their file changes.
+ * <p>
+ * A single {@link WatchService} is used for every watched configuration, with one registration
+ * per directory. Events are debounced per file, so that the bursts of events produced by editors
+ * while saving result in a single reload. Writes made by {@link AbstractConfiguration#save()}
+ * are recognised and do not trigger a reload.
+ */
+public final class ConfigurationWatcher implements AutoCloseable {
+
+    /**
+     * Default debounce delay, in milliseconds
+     */
+    public static final long DEFAULT_DEBOUNCE = 100;
+
+    private static volatile @Nullable ConfigurationWatcher shared = null;
+
+    /**
+     * Last modification time and size of files written by configurations, for watched files only
+     */
+    private static final Map<Path, long[]> WRITES = new ConcurrentHashMap<>();
+
+    private final Object lock = new Object();
+    private final long debounce;
+    private final WatchService service;
+    private final ScheduledExecutorService scheduler;
+    private final Thread thread;
+
+    /**
+     * Watched directories
+     */
+    private final Map<Path, Directory> directories = new HashMap<>();
+
+    /**
+     * Scheduled reloads by file
+     */
+    private final Map<Path, ScheduledFuture<?>> reloads = new HashMap<>();
+
+    private volatile boolean closed = false;
+
+    /**
+     * Create a watcher
+     *
+     * @param debounce Delay without event before a changed file is reloaded
+     * @param unit     Delay unit
+     * @throws ConfigurateException if the watch service cannot be created
+     */
+    public ConfigurationWatcher(long debounce, @NonNull TimeUnit unit) throws ConfigurateException {
+        try {
+            this.debounce = unit.toNanos(debounce);
+            this.service = FileSystems.getDefault().newWatchService();
+        } catch (IOException e) {
+            throw new ConfigurateException("Unable to create watch service", e);
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread reload = new Thread(runnable, "Configurate watcher reload");
+            reload.setDaemon(true);
+            return reload;
+        });
+        this.thread = new Thread(this::poll, "Configurate watcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Gets the watcher shared by configurations, with the default debounce delay
+     *
+     * @return Shared watcher
+     * @throws ConfigurateException if the watch service cannot be created
+     */
+    public static ConfigurationWatcher shared() throws ConfigurateException {
+        ConfigurationWatcher watcher = shared;
+        if (watcher == null) {
+            synchronized (ConfigurationWatcher.class) {
+                watcher = shared;
+                if (watcher == null) {
+                    watcher = new ConfigurationWatcher(DEFAULT_DEBOUNCE, TimeUnit.MILLISECONDS);
+                    shared = watcher;
+                }
+            }
+        }
+        return watcher;
+    }
+
+    /**
+     * Reload a configuration when its file changes
+     *
+     * @param config   Configuration to watch
+     * @param listener Called with the reloaded configuration
+     * @return Registration, close it to stop watching
+     * @throws ConfigurateException if the configuration has no file or if its directory cannot be watched
+     */
+    public <C extends AbstractConfiguration<?, ?>> Registration watch(@NonNull AbstractConfiguration<C, ?> config, @NonNull Consumer<? super C> listener) throws ConfigurateException {
+        return watch(config, listener, error -> {
+        });
+    }
+
+    /**
+     * Reload a configuration when its file changes
+     *
+     * @param config   Configuration to watch
+     * @param listener Called with the reloaded configuration
+     * @param errors   Called when the configuration cannot be reloaded
+     * @return Registration, close it to stop watching
+     * @throws ConfigurateException if the configuration has no file or if its directory cannot be watched
+     */
+    public <C extends AbstractConfiguration<?, ?>> Registration watch(@NonNull AbstractConfiguration<C, ?> config, @NonNull Consumer<? super C> listener, @NonNull Consumer<? super ConfigurateException> errors) throws ConfigurateException {
+        File file = config.getFile();
+        if (file == null) {
+            throw new ConfigurateException("Configuration file is not defined");
+        }
+        if (closed) {
+            throw new ConfigurateException("Watcher is closed");
+        }
+
+        Path path = path(file);
+        Path directory = path.getParent();
+        Registration registration = new Registration(path, () -> {
+            try {
+                listener.accept(config.load());
+            } catch (ConfigurateException e) {
+                errors.accept(e);
+            }
+        });
+
+        synchronized (lock) {
+            Directory watched = directories.get(directory);
+            if (watched == null) {
+                try {
+                    Files.createDirectories(directory);
+                    WatchKey key = directory.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+                    watched = new Directory(key);
+                    directories.put(directory, watched);
+                } catch (IOException e) {
+                    throw new ConfigurateException("Unable to watch directory: " + directory, e);
+                }
+            }
+            watched.files.computeIfAbsent(path.getFileName(), name -> new ArrayList<>()).add(registration);
+            WRITES.putIfAbsent(path, new long[]{-1, -1});
+        }
+        return registration;
+    }
+
+    /**
+     * Stop watching every configuration
+     */
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (ConfigurationWatcher.class) {
+            if (shared == this) {
+                shared = null;
+            }
+        }
+        synchronized (lock) {
+            for (Directory directory : directories.values()) {
+                directory.key.cancel();
+                for (List<Registration> registrations : directory.files.values()) {
+                    for (Registration registration : registrations) {
+                        WRITES.remove(registration.file);
+                    }
+                }
+            }
+            directories.clear();
+        }
+        scheduler.shutdownNow();
+        try {
+            service.close();
+        } catch (IOException ignored) {
+            // Already closed
+        }
+    }
+
+    /**
+     * Remember that a configuration wrote its file, so that the resulting events are ignored
+     *
+     * @param file Configuration file
+     */
+    static void written(@NonNull File file) {
+        Path path = path(file);
+        if (WRITES.containsKey(path)) {
+            WRITES.put(path, new long[]{file.lastModified(), file.length()});
+        }
+    }
+
+    private static Path path(File file) {
+        return file.getAbsoluteFile().toPath().normalize();
+    }
+
+    /**
+     * Watch service loop
+     */
+    private void poll() {
+        while (!closed) {
+            WatchKey key;
+            try {
+                key = service.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            Path directory = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    changedAll(directory);
+                } else {
+                    changed(directory.resolve((Path) event.context()));
+                }
+            }
+            key.reset();
+        }
+    }
+
+    /**
+     * Events were lost, consider every watched file of the directory as changed
+     *
+     * @param directory Directory
+     */
+    private void changedAll(Path directory) {
+        List<Path> files = new ArrayList<>();
+        synchronized (lock) {
+            Directory watched = directories.get(directory);
+            if (watched != null) {
+                for (Path name : watched.files.keySet()) {
+                    files.add(directory.resolve(name));
+                }
+            }
+        }
+        files.forEach(this::changed);
+    }
+
+    /**
+     * A file changed, schedule its reload once events stop
+     *
+     * @param file File
+     */
+    private void changed(Path file) {
+        synchronized (lock) {
+            Directory watched = directories.get(file.getParent());
+            if (watched == null || !watched.files.containsKey(file.getFileName())) {
+                return;
+            }
+
+            ScheduledFuture<?> previous = reloads.remove(file);
+            if (previous != null) {
+                previous.cancel(false);
+            }
+            if (!closed) {
+                reloads.put(file, scheduler.schedule(() -> reload(file), debounce, TimeUnit.NANOSECONDS));
+            }
+        }
+    }
+
+    /**
+     * Reload every configuration of a file, unless the file was written by a configuration
+     *
+     * @param file File
+     */
+    private void reload(Path file) {
+        List<Registration> registrations;
+        synchronized (lock) {
+            reloads.remove(file);
+            Directory watched = directories.get(file.getParent());
+            List<Registration> files = watched != null ? watched.files.get(file.getFileName()) : null;
+            if (files == null) {
+                return;
+            }
+            registrations = new ArrayList<>(files);
+        }
+
+        // Ignore our own writes
+        File changed = file.toFile();
+        long[] written = WRITES.get(file);
+        if (written != null && written[0] == changed.lastModified() && written[1] == changed.length()) {
+            return;
+        }
+
+        for (Registration registration : registrations) {
+            registration.reload.run();
+        }
+    }
+
+    /**
+     * Watched files of a directory
+     */
+    private static final class Directory {
+        private final WatchKey key;
+        private final Map<Path, List<Registration>> files = new HashMap<>();
+
+        private Directory(WatchKey key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * Registration of a watched configuration
+     */
+    public final class Registration implements AutoCloseable {
+        private final Path file;
+        private final Runnable reload;
+
+        private Registration(Path file, Runnable reload) {
+            this.file = file;
+            this.reload = reload;
+        }
+
+        /**
+         * Stop watching the configuration
+         */
+        @Override
+        public void close() {
+            synchronized (lock) {
+                Path directory = file.getParent();
+                Directory watched = directories.get(directory);
+                if (watched == null) {
+                    return;
+                }
+                List<Registration> registrations = watched.files.get(file.getFileName());
+                if (registrations != null && registrations.remove(this) && registrations.isEmpty()) {
+                    watched.files.remove(file.getFileName());
+                    WRITES.remove(file);
+                }
+                if (watched.files.isEmpty()) {
+                    watched.key.cancel();
+                    directories.remove(directory);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate;
+
+import org.spongepowered.configurate.serialize.SerializationException;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Reflective access to the fields of mapped objects, by the name given by their {@code FieldData}.
+ */
+final class FieldAccess {
+
+    /**
+     * Reflected fields by class and name
+     */
+    private static final ClassValue<ConcurrentMap<String, Field>> FIELDS = new ClassValue<ConcurrentMap<String, Field>>() {
+        @Override
+        protected ConcurrentMap<String, Field> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private FieldAccess() {
+    }
+
+    /**
+     * Gets a mapped field by name, searching the class hierarchy
+     *
+     * @param clazz Class of the mapped object
+     * @param name  Field name
+     * @return Field
+     * @throws SerializationException if the field does not exist
+     */
+    static Field field(Class<?> clazz, String name) throws SerializationException {
+        ConcurrentMap<String, Field> fields = FIELDS.get(clazz);
+        Field field = fields.get(name);
+        if (field == null) {
+            for (Class<?> current = clazz; current != null && field == null; current = current.getSuperclass()) {
+                for (Field declared : current.getDeclaredFields()) {
+                    if (declared.getName().equals(name) && !Modifier.isStatic(declared.getModifiers())) {
+                        field = declared;
+                        break;
+                    }
+                }
+            }
+            if (field == null) {
+                throw new SerializationException("Unable to find field " + name + " in " + clazz.getName());
+            }
+            field.setAccessible(true);
+            fields.putIfAbsent(name, field);
+        }
+        return field;
+    }
+
+    /**
+     * Gets the value of a field
+     *
+     * @param field  Field
+     * @param target Mapped object
+     * @return Value
+     * @throws SerializationException if the field cannot be read
+     */
+    static Object get(Field field, Object target) throws SerializationException {
+        try {
+            return field.get(target);
+        } catch (IllegalAccessException e) {
+            throw new SerializationException(e);
+        }
+    }
+
+    /**
+     * Sets the value of a field
+     *
+     * @param field  Field
+     * @param target Mapped object
+     * @param value  Value
+     * @throws SerializationException if the field cannot be written
+     */
+    static void set(Field field, Object target, Object value) throws SerializationException {
+        try {
+            field.set(target, value);
+        } catch (IllegalAccessException e) {
+            throw new SerializationException(e);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.lang.reflect.Type;
+
+/**
+ * Base class of the code generated at compile time by the configuration processor for a
+ * {@code @ConfigSerializable} class.
+ * <p>
+ * The generated class is named after the binary name of the mapped class followed by
+ * {@value #SUFFIX}. It holds the values of the configuration annotations of the class and, when
+ * the mapped fields and the empty constructor are accessible from the package of the class,
+ * direct access to them. Anything not generated is read by reflection.
+ *
+ * @param <T> Mapped class
+ */
+public abstract class GeneratedConfiguration<T> {
+
+    /**
+     * Suffix appended to the binary name of the mapped class to name the generated class
+     */
+    public static final String SUFFIX = "$$Configuration";
+
+    /**
+     * Generated code by mapped class, null if there is none
+     */
+    private static final ClassValue<GeneratedConfiguration<?>> GENERATED = new ClassValue<GeneratedConfiguration<?>>() {
+        @Override
+        protected @Nullable GeneratedConfiguration<?> computeValue(Class<?> type) {
+            try {
+                Class<?> generated = Class.forName(type.getName() + SUFFIX, true, type.getClassLoader());
+                if (!GeneratedConfiguration.class.isAssignableFrom(generated)) {
+                    return null;
+                }
+                GeneratedConfiguration<?> instance = (GeneratedConfiguration<?>) generated.getConstructor().newInstance();
+                return instance.type == type ? instance : null;
+            } catch (ReflectiveOperationException | LinkageError e) {
+                return null;
+            }
+        }
+    };
+
+    private final Class<T> type;
+
+    /**
+     * Create the generated code of a class
+     *
+     * @param type Mapped class
+     */
+    protected GeneratedConfiguration(Class<T> type) {
+        this.type = type;
+    }
+
+    /**
+     * Gets the code generated for a class
+     *
+     * @param clazz Mapped class
+     * @return Generated code, or null if the class has not been processed
+     */
+    static @Nullable GeneratedConfiguration<?> of(Class<?> clazz) {
+        return GENERATED.get(clazz);
+    }
+
+    /**
+     * Gets the mapped class
+     *
+     * @return Mapped class
+     */
+    final Class<T> type() {
+        return type;
+    }
+
+    /**
+     * Gets whether the mapped class is annotated
+     *
+     * @param annotation Qualified name of the annotation
+     * @return true if the class is annotated
+     */
+    protected abstract boolean annotated(String annotation);
+
+    /**
+     * Gets the value of an annotation member, or its default value
+     *
+     * @param annotation Qualified name of the annotation
+     * @param member     Name of the member
+     * @return Value, or null if the class is not annotated
+     */
+    protected abstract @Nullable Object value(String annotation, String member);
+
+    /**
+     * Gets the mapped fields, in the order they are discovered by reflection: fields of the
+     * class first, then fields of each superclass.
+     *
+     * @return Fields, or null if they cannot be accessed by generated code
+     */
+    protected MappedField[] fields() {
+        return null;
+    }
+
+    /**
+     * Gets whether instances can be created
+     *
+     * @return true if the class has an empty constructor
+     */
+    protected boolean canCreate() {
+        return false;
+    }
+
+    /**
+     * Create an instance with the empty constructor
+     *
+     * @return Instance
+     * @throws Exception if the constructor fails
+     */
+    protected T create() throws Exception {
+        throw new UnsupportedOperationException(type.getName() + " cannot be created by generated code");
+    }
+
+    /**
+     * Gets the value of a mapped field
+     *
+     * @param instance Mapped object
+     * @param field    Index of the field in {@link #fields()}
+     * @return Value
+     */
+    protected @Nullable Object get(T instance, int field) {
+        throw new UnsupportedOperationException(type.getName() + " cannot be read by generated code");
+    }
+
+    /**
+     * Sets the value of a mapped field
+     *
+     * @param instance Mapped object
+     * @param field    Index of the field in {@link #fields()}
+     * @param value    Value
+     */
+    protected void set(T instance, int field, @Nullable Object value) {
+        throw new UnsupportedOperationException(type.getName() + " cannot be written by generated code");
+    }
+
+    /**
+     * Field mapped by generated code
+     */
+    public static final class MappedField {
+
+        private final Class<?> declaringClass;
+        private final String name;
+        private final Type type;
+
+        /**
+         * Create a mapped field
+         *
+         * @param declaringClass Class declaring the field
+         * @param name           Field name
+         * @param type           Field type, with the type arguments of the mapped class resolved
+         */
+        public MappedField(Class<?> declaringClass, String name, Type type) {
+            this.declaringClass = declaringClass;
+            this.name = name;
+            this.type = type;
+        }
+
+        Class<?> declaringClass() {
+            return declaringClass;
+        }
+
+        String name() {
+            return name;
+        }
+
+        Type type() {
+            return type;
+        }
+    }
+}
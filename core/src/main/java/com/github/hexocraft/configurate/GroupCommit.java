@@ -0,0 +1,384 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Commit configurations saved with {@link SaveMode#GROUP_COMMIT} in batches.
+ * <p>
+ * Saves submitted during a window are committed together: every temporary file is forced
+ * to disk concurrently, then renamed over its configuration file, then each parent directory
+ * is forced once. When the same file is saved several times in a window, only the last save is
+ * committed.
+ * <p>
+ * Errors are reported by {@link #flush()}. Pending saves are flushed on JVM shutdown.
+ */
+public final class GroupCommit {
+
+    /**
+     * Default commit window, in milliseconds
+     */
+    public static final long DEFAULT_WINDOW = 10;
+
+    /**
+     * Default number of files forced to disk at the same time
+     */
+    public static final int DEFAULT_PARALLELISM = 16;
+
+    private static final Object LOCK = new Object();
+
+    private static final ScheduledExecutorService COMMITTER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Configurate group commit");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final ThreadPoolExecutor FORCER = new ThreadPoolExecutor(DEFAULT_PARALLELISM, DEFAULT_PARALLELISM, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+        Thread thread = new Thread(runnable, "Configurate group commit force");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        FORCER.allowCoreThreadTimeOut(true);
+    }
+
+    private static volatile long window = TimeUnit.MILLISECONDS.toNanos(DEFAULT_WINDOW);
+
+    private static volatile int parallelism = DEFAULT_PARALLELISM;
+
+    /**
+     * Batch collecting saves of the current window
+     */
+    private static @Nullable Batch pending = null;
+
+    /**
+     * Last scheduled batch
+     */
+    private static CompletableFuture<Void> last = CompletableFuture.completedFuture(null);
+
+    /**
+     * Number of batches not committed yet by configuration file
+     */
+    private static final Map<Path, Integer> UNCOMMITTED = new HashMap<>();
+
+    /**
+     * Errors of committed batches not yet reported by {@link #flush()}
+     */
+    private static @Nullable IOException failure = null;
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                flush();
+            } catch (IOException ignored) {
+                // Nothing left to report to
+            }
+        }, "Configurate group commit shutdown"));
+    }
+
+    private GroupCommit() {
+    }
+
+    /**
+     * Sets the commit window
+     *
+     * @param duration Window duration
+     * @param unit     Window duration unit
+     */
+    public static void window(long duration, @NonNull TimeUnit unit) {
+        if (duration < 0) {
+            throw new IllegalArgumentException("Window must be positive");
+        }
+        window = unit.toNanos(duration);
+    }
+
+    /**
+     * Sets the number of files forced to disk at the same time when a window is committed
+     *
+     * @param threads Number of files, 1 to force them one after the other
+     */
+    public static void parallelism(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        parallelism = threads;
+    }
+
+    /**
+     * Commit pending saves now and wait until every save submitted before this call is durable.
+     *
+     * @throws IOException if a save failed since the last flush
+     */
+    public static void flush() throws IOException {
+        CompletableFuture<Void> future;
+        synchronized (LOCK) {
+            Batch batch = pending;
+            pending = null;
+            if (batch != null) {
+                last = batch.future;
+                COMMITTER.execute(batch::commit);
+            }
+            future = last;
+        }
+
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for group commit", e);
+        } catch (ExecutionException ignored) {
+            // Reported below
+        }
+
+        IOException error;
+        synchronized (LOCK) {
+            error = failure;
+            failure = null;
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Submit a temporary file to be committed over its configuration file
+     *
+     * @param temporary Temporary file
+     * @param target    Configuration file
+     * @return Future completed once the configuration file is replaced, or cancelled if a later
+     * save of the same file replaces this one before the commit
+     */
+    static CompletableFuture<Void> submit(@NonNull Path temporary, @NonNull Path target) {
+        synchronized (LOCK) {
+            if (pending == null) {
+                Batch batch = new Batch();
+                pending = batch;
+                last = batch.future;
+                COMMITTER.schedule(() -> {
+                    synchronized (LOCK) {
+                        if (pending == batch) {
+                            pending = null;
+                        }
+                    }
+                    batch.commit();
+                }, window, TimeUnit.NANOSECONDS);
+            }
+            CompletableFuture<Void> committed = new CompletableFuture<>();
+            Path previous = pending.files.put(target, temporary);
+            CompletableFuture<Void> superseded = pending.commits.put(target, committed);
+            if (previous == null) {
+                UNCOMMITTED.merge(target, 1, Integer::sum);
+            } else {
+                superseded.cancel(false);
+                try {
+                    Files.deleteIfExists(previous);
+                } catch (IOException ignored) {
+                    // Stale temporary file, left behind
+                }
+            }
+            return committed;
+        }
+    }
+
+    /**
+     * Gets whether a save of a configuration file is waiting to be committed
+     *
+     * @param target Configuration file
+     * @return true if the file is in a window not committed yet
+     */
+    static boolean isPending(@NonNull Path target) {
+        synchronized (LOCK) {
+            return UNCOMMITTED.containsKey(target);
+        }
+    }
+
+    /**
+     * Record an error to be reported by {@link #flush()}
+     *
+     * @param error Error
+     */
+    private static void fail(IOException error) {
+        synchronized (LOCK) {
+            if (failure == null) {
+                failure = error;
+            } else {
+                failure.addSuppressed(error);
+            }
+        }
+    }
+
+    /**
+     * Saves of one window
+     */
+    private static final class Batch {
+
+        /**
+         * Temporary files by configuration file
+         */
+        private final Map<Path, Path> files = new LinkedHashMap<>();
+
+        /**
+         * Commit futures by configuration file
+         */
+        private final Map<Path, CompletableFuture<Void>> commits = new LinkedHashMap<>();
+
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private boolean committed = false;
+
+        /**
+         * Commit the batch. Executed by the committer thread only.
+         */
+        private void commit() {
+            Map<Path, Path> files;
+            Map<Path, CompletableFuture<Void>> commits;
+            synchronized (LOCK) {
+                if (committed) {
+                    return;
+                }
+                committed = true;
+                files = new LinkedHashMap<>(this.files);
+                commits = new LinkedHashMap<>(this.commits);
+            }
+
+            // Force every temporary file at once, then rename the ones which are durable
+            Map<Path, IOException> failures = force(files.values(), false);
+            Set<Path> directories = new LinkedHashSet<>();
+            for (Map.Entry<Path, Path> entry : files.entrySet()) {
+                Path target = entry.getKey();
+                Path temporary = entry.getValue();
+                try {
+                    IOException failure = failures.get(temporary);
+                    if (failure != null) {
+                        throw failure;
+                    }
+                    ConfigurationSink.move(temporary, target);
+                    directories.add(target.getParent());
+                } catch (IOException e) {
+                    IOException error = new IOException("Unable to commit file: " + target, e);
+                    fail(error);
+                    commits.remove(target).completeExceptionally(error);
+                    try {
+                        Files.deleteIfExists(temporary);
+                    } catch (IOException ignored) {
+                        // Stale temporary file, left behind
+                    }
+                }
+            }
+
+            // Directories make the renames durable
+            force(directories, true);
+            synchronized (LOCK) {
+                for (Path target : files.keySet()) {
+                    UNCOMMITTED.computeIfPresent(target, (path, count) -> count > 1 ? count - 1 : null);
+                }
+            }
+            for (CompletableFuture<Void> commit : commits.values()) {
+                commit.complete(null);
+            }
+            future.complete(null);
+        }
+    }
+
+    /**
+     * Force files or directories to disk, using up to {@link #parallelism(int) parallelism} threads.
+     * <p>
+     * File systems process concurrent forces together, so forcing many files at once costs
+     * little more than forcing one.
+     *
+     * @param paths       Files or directories
+     * @param directories Whether the paths are directories
+     * @return Errors by file, directories errors are ignored
+     */
+    private static Map<Path, IOException> force(Collection<Path> paths, boolean directories) {
+        Map<Path, IOException> failures = new ConcurrentHashMap<>();
+        if (paths.size() <= 1 || parallelism == 1) {
+            for (Path path : paths) {
+                force(path, directories, failures);
+            }
+            return failures;
+        }
+
+        List<CompletableFuture<Void>> forces = new ArrayList<>(paths.size());
+        for (Path path : paths) {
+            forces.add(CompletableFuture.runAsync(() -> force(path, directories, failures), forcer()));
+        }
+        CompletableFuture.allOf(forces.toArray(new CompletableFuture<?>[0])).join();
+        return failures;
+    }
+
+    /**
+     * Force a file or directory to disk
+     *
+     * @param path      File or directory
+     * @param directory Whether the path is a directory
+     * @param failures  Errors by file
+     */
+    private static void force(Path path, boolean directory, Map<Path, IOException> failures) {
+        if (directory) {
+            ConfigurationSink.syncDirectory(path);
+            return;
+        }
+        try {
+            ConfigurationSink.sync(path);
+        } catch (IOException e) {
+            failures.put(path, e);
+        }
+    }
+
+    /**
+     * Gets the executor forcing files, sized for the current parallelism
+     *
+     * @return Executor
+     */
+    private static ThreadPoolExecutor forcer() {
+        int threads = parallelism;
+        if (FORCER.getMaximumPoolSize() != threads) {
+            if (threads > FORCER.getMaximumPoolSize()) {
+                FORCER.setMaximumPoolSize(threads);
+                FORCER.setCorePoolSize(threads);
+            } else {
+                FORCER.setCorePoolSize(threads);
+                FORCER.setMaximumPoolSize(threads);
+            }
+        }
+        return FORCER;
+    }
+}
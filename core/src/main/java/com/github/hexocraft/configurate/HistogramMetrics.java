@@ -0,0 +1,260 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link ConfigurationMetrics} kept in memory, per configuration class and per format.
+ * <p>
+ * Durations are recorded in {@link Histogram}s, with the bytes read or written and the number of errors of each
+ * {@link Phase}.
+ *
+ * <pre>{@code
+ * HistogramMetrics metrics = new HistogramMetrics();
+ * AbstractConfiguration.setMetrics(metrics);
+ * ...
+ * long p99 = metrics.get("Yaml", Phase.READ).durations().percentile(99);
+ * }</pre>
+ */
+public final class HistogramMetrics implements ConfigurationMetrics {
+
+    private static final int PHASES = Phase.values().length;
+
+    /**
+     * Metrics per configuration class, held by the class so that they do not prevent it from being unloaded
+     */
+    private final ClassValue<Metrics[]> configurations = new ClassValue<Metrics[]>() {
+        @Override
+        protected Metrics[] computeValue(Class<?> type) {
+            return phases();
+        }
+    };
+
+    private final ConcurrentMap<String, Metrics[]> formats = new ConcurrentHashMap<>();
+
+    @Override
+    public void recorded(@NonNull Class<?> configuration, @NonNull String format, @NonNull Phase phase, long nanos, long bytes) {
+        get(configuration, phase).record(nanos, bytes);
+        get(format, phase).record(nanos, bytes);
+    }
+
+    @Override
+    public void failed(@NonNull Class<?> configuration, @NonNull String format, @NonNull Phase phase, @NonNull Throwable error) {
+        get(configuration, phase).errors.increment();
+        get(format, phase).errors.increment();
+    }
+
+    /**
+     * Gets the metrics of a configuration class
+     *
+     * @param configuration Configuration class
+     * @param phase         Phase
+     * @return Metrics, empty if nothing was recorded
+     */
+    public Metrics get(@NonNull Class<?> configuration, @NonNull Phase phase) {
+        return configurations.get(configuration)[phase.ordinal()];
+    }
+
+    /**
+     * Gets the metrics of a format
+     *
+     * @param format Format, such as {@code Yaml}
+     * @param phase  Phase
+     * @return Metrics, empty if nothing was recorded
+     */
+    public Metrics get(@NonNull String format, @NonNull Phase phase) {
+        return metrics(formats, format)[phase.ordinal()];
+    }
+
+    private static <K> Metrics[] metrics(ConcurrentMap<K, Metrics[]> map, K key) {
+        Metrics[] metrics = map.get(key);
+        if (metrics == null) {
+            metrics = phases();
+            Metrics[] previous = map.putIfAbsent(key, metrics);
+            metrics = previous != null ? previous : metrics;
+        }
+        return metrics;
+    }
+
+    private static Metrics[] phases() {
+        Metrics[] metrics = new Metrics[PHASES];
+        for (int i = 0; i < PHASES; i++) {
+            metrics[i] = new Metrics();
+        }
+        return metrics;
+    }
+
+    /**
+     * Metrics of a phase
+     */
+    public static final class Metrics {
+        private final Histogram durations = new Histogram();
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+
+        private Metrics() {
+        }
+
+        private void record(long nanos, long bytes) {
+            durations.record(nanos);
+            this.bytes.add(bytes);
+        }
+
+        /**
+         * Gets the durations, in nanoseconds
+         *
+         * @return Histogram of the durations
+         */
+        public Histogram durations() {
+            return durations;
+        }
+
+        /**
+         * Gets the total size of the files read or written
+         *
+         * @return Bytes
+         */
+        public long bytes() {
+            return bytes.sum();
+        }
+
+        /**
+         * Gets the number of failures
+         *
+         * @return Errors
+         */
+        public long errors() {
+            return errors.sum();
+        }
+    }
+
+    /**
+     * Histogram of positive values, such as durations.
+     * <p>
+     * As an HDR histogram, values are counted in buckets growing with the value: each power of two is split in 32
+     * buckets, so that percentiles are within about 3% of the recorded values, whatever their magnitude. Recording is
+     * lock free and does not allocate.
+     */
+    public static final class Histogram {
+
+        private static final int SUB_BUCKET_BITS = 5;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final int BUCKETS = ((64 - SUB_BUCKET_BITS) << SUB_BUCKET_BITS) + SUB_BUCKETS;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        /**
+         * Record a value
+         *
+         * @param value Value, negative values are recorded as 0
+         */
+        public void record(long value) {
+            value = Math.max(0, value);
+            counts.incrementAndGet(index(value));
+            count.increment();
+            sum.add(value);
+            max.accumulate(value);
+        }
+
+        /**
+         * Gets the number of recorded values
+         *
+         * @return Count
+         */
+        public long count() {
+            return count.sum();
+        }
+
+        /**
+         * Gets the mean of the recorded values
+         *
+         * @return Mean, 0 if nothing was recorded
+         */
+        public double mean() {
+            long count = count();
+            return count == 0 ? 0 : (double) sum.sum() / count;
+        }
+
+        /**
+         * Gets the highest recorded value
+         *
+         * @return Maximum, 0 if nothing was recorded
+         */
+        public long max() {
+            return max.get();
+        }
+
+        /**
+         * Gets the value below which a percentage of the recorded values fall
+         *
+         * @param percentile Percentile, between 0 and 100
+         * @return Value, 0 if nothing was recorded
+         */
+        public long percentile(double percentile) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+            }
+            long[] snapshot = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                snapshot[i] = counts.get(i);
+                total += snapshot[i];
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) {
+                    return Math.min(highest(i), max());
+                }
+            }
+            return 0;
+        }
+
+        private static int index(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+            return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+        }
+
+        private static long highest(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int shift = (index >>> SUB_BUCKET_BITS) - 1;
+            long top = (index & (SUB_BUCKETS - 1)) + SUB_BUCKETS;
+            return ((top + 1) << shift) - 1;
+        }
+
+        @Override
+        public String toString() {
+            return "Histogram{count=" + count() + ", mean=" + (long) mean() + ", p50=" + percentile(50) + ", p99=" + percentile(99) + ", max=" + max() + '}';
+        }
+    }
+}
@@ -0,0 +1,316 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate;
+
+import io.leangen.geantyref.GenericTypeReflector;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.spongepowered.configurate.BasicConfigurationNode;
+import org.spongepowered.configurate.ConfigurationNode;
+import org.spongepowered.configurate.objectmapping.ConfigSerializable;
+import org.spongepowered.configurate.objectmapping.FieldData;
+import org.spongepowered.configurate.objectmapping.ObjectMapper;
+import org.spongepowered.configurate.serialize.SerializationException;
+import org.spongepowered.configurate.util.CheckedSupplier;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Apply the differences between two node trees to an already mapped object.
+ * <p>
+ * Only the fields whose node changed are deserialized again. Unchanged values are kept as is,
+ * including their identity. Changes are applied recursively to {@link ConfigSerializable} objects
+ * and to maps with string keys, so that a single changed entry does not deserialize the whole map.
+ * Every changed value is deserialized before any field is set, and maps are replaced by updated
+ * copies instead of being modified.
+ */
+@SuppressWarnings({"unchecked", "rawtypes"})
+final class IncrementalMapper {
+
+    private IncrementalMapper() {
+    }
+
+    /**
+     * Apply the differences between two node trees to a mapped object.
+     * <p>
+     * Changed values are all deserialized and validated before any field is set, so that a failure
+     * leaves the object untouched. Maps are never modified: a changed map is copied, and the copy
+     * replaces the map once every value is ready.
+     *
+     * @param target   Object to update
+     * @param mapper   Mapper of the object
+     * @param previous Node tree the object currently reflects, or null to deserialize every field
+     * @param current  New node tree
+     * @return true if at least one field changed
+     * @throws SerializationException if a changed value cannot be deserialized
+     */
+    static <V> boolean apply(@NonNull V target, @NonNull ObjectMapper<V> mapper, @Nullable ConfigurationNode previous, @NonNull ConfigurationNode current) throws SerializationException {
+        Assignments assignments = new Assignments();
+        boolean changed = patchObject(target, mapper, previous, current, assignments);
+        assignments.run();
+        return changed;
+    }
+
+    /**
+     * Collect the assignments applying the differences between two node trees to a mapped object
+     *
+     * @param target      Object to update
+     * @param mapper      Mapper of the object
+     * @param previous    Node tree the object currently reflects, or null to deserialize every field
+     * @param current     New node tree
+     * @param assignments Assignments to complete
+     * @return true if at least one field changed
+     * @throws SerializationException if a changed value cannot be deserialized
+     */
+    private static <V> boolean patchObject(V target, ObjectMapper<V> mapper, @Nullable ConfigurationNode previous, ConfigurationNode current, Assignments assignments) throws SerializationException {
+        boolean changed = false;
+        for (FieldData<?, V> data : mapper.fields()) {
+            ConfigurationNode before = previous == null ? null : data.resolveNode(previous);
+            ConfigurationNode after = data.resolveNode(current);
+
+            // Unchanged, or removed from the file: keep the current value
+            if ((before != null && same(before, after)) || after.virtual()) {
+                continue;
+            }
+
+            Field field = FieldAccess.field(target.getClass(), data.name());
+            Type type = data.resolvedType().getType();
+            Object value = FieldAccess.get(field, target);
+            Object updated = before == null || before.virtual() || value == null ? null : patch(value, type, before, after, assignments);
+            if (updated == null) {
+                updated = after.get(type);
+                data.validate(updated);
+            }
+            if (updated != value) {
+                assignments.add(field, target, updated);
+            }
+            changed = true;
+        }
+        return changed;
+    }
+
+    /**
+     * Collect the assignments applying the differences between two nodes to a value
+     *
+     * @param value       Current value
+     * @param type        Type of the value
+     * @param before      Node the value currently reflects
+     * @param after       New node
+     * @param assignments Assignments to complete
+     * @return Value to use, the current value updated in place or a copy, or null if it must be deserialized again
+     * @throws SerializationException if a changed value cannot be deserialized
+     */
+    private static @Nullable Object patch(Object value, Type type, ConfigurationNode before, ConfigurationNode after, Assignments assignments) throws SerializationException {
+        if (!before.isMap() || !after.isMap()) {
+            return null;
+        }
+
+        Class<?> erased = GenericTypeReflector.erase(type);
+        if (erased.isAnnotationPresent(ConfigSerializable.class) && erased.isInstance(value)) {
+            patchObject(value, (ObjectMapper<Object>) AccessorFieldDiscoverer.FACTORY.get(type), before, after, assignments);
+            return value;
+        }
+
+        if (value instanceof Map && type instanceof ParameterizedType && erased.isAssignableFrom(LinkedHashMap.class)) {
+            Type[] arguments = ((ParameterizedType) type).getActualTypeArguments();
+            if (arguments.length == 2 && arguments[0] == String.class) {
+                return patchMap((Map<String, Object>) value, arguments[1], before, after, assignments);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Replace the values of a mapped object by the values of a node tree.
+     * <p>
+     * Every field is set from the node tree, as in a new instance, and fields missing from the node tree
+     * are reset to their default value. A current value which already serializes to its node is kept
+     * with its identity instead of being deserialized again.
+     * <p>
+     * Values are all deserialized and validated before any field is set, so that a failure leaves the
+     * object untouched. Values are replaced as a whole, never modified.
+     *
+     * @param target   Object to update
+     * @param mapper   Mapper of the object
+     * @param current  New node tree
+     * @param defaults Create an object holding the default values, called at most once
+     * @return true if at least one field changed
+     * @throws SerializationException if a value cannot be deserialized
+     */
+    static <V> boolean swap(@NonNull V target, @NonNull ObjectMapper<V> mapper, @NonNull ConfigurationNode current, @NonNull CheckedSupplier<V, SerializationException> defaults) throws SerializationException {
+        Assignments assignments = new Assignments();
+        V initial = null;
+        for (FieldData<?, V> data : mapper.fields()) {
+            ConfigurationNode after = data.resolveNode(current);
+            Field field = FieldAccess.field(target.getClass(), data.name());
+            Type type = data.resolvedType().getType();
+            Object value = FieldAccess.get(field, target);
+
+            Object updated;
+            if (after.virtual()) {
+                // Missing from the file: reset to the default value
+                initial = initial != null ? initial : defaults.get();
+                updated = FieldAccess.get(field, initial);
+                if (Objects.equals(updated, value)) {
+                    continue;
+                }
+            } else if (value != null && serializesTo(value, type, after)) {
+                // Unchanged: keep the current value
+                continue;
+            } else {
+                updated = after.get(type);
+                data.validate(updated);
+            }
+            assignments.add(field, target, updated);
+        }
+        assignments.run();
+        return !assignments.isEmpty();
+    }
+
+    /**
+     * Check whether a value serializes to a node
+     *
+     * @param value Value
+     * @param type  Type of the value
+     * @param node  Node
+     * @return true if the value serializes to the same value as the node
+     */
+    private static boolean serializesTo(Object value, Type type, ConfigurationNode node) {
+        BasicConfigurationNode serialized = BasicConfigurationNode.root(node.options());
+        try {
+            serialized.set(type, value);
+        } catch (SerializationException e) {
+            return false;
+        }
+        return same(serialized, node);
+    }
+
+    /**
+     * Copy a map, applying the differences between two map nodes.
+     * <p>
+     * Unchanged values are kept with their identity, and changed objects are updated in place.
+     *
+     * @param map         Current map, not modified
+     * @param valueType   Type of the map values
+     * @param before      Node the map currently reflects
+     * @param after       New node
+     * @param assignments Assignments to complete
+     * @return Updated copy of the map
+     * @throws SerializationException if a changed value cannot be deserialized
+     */
+    private static Map<String, Object> patchMap(Map<String, Object> map, Type valueType, ConfigurationNode before, ConfigurationNode after, Assignments assignments) throws SerializationException {
+        Map<Object, ? extends ConfigurationNode> previous = before.childrenMap();
+        Map<Object, ? extends ConfigurationNode> current = after.childrenMap();
+        Map<String, Object> copy = new LinkedHashMap<>(map);
+        for (Map.Entry<Object, ? extends ConfigurationNode> entry : current.entrySet()) {
+            String key = String.valueOf(entry.getKey());
+            ConfigurationNode child = entry.getValue();
+            ConfigurationNode old = previous.get(entry.getKey());
+            if (old != null && same(old, child)) {
+                continue;
+            }
+
+            Object existing = copy.get(key);
+            Object updated = old == null || existing == null ? null : patch(existing, valueType, old, child, assignments);
+            copy.put(key, updated != null ? updated : child.get(valueType));
+        }
+        for (Object key : previous.keySet()) {
+            if (!current.containsKey(key)) {
+                copy.remove(String.valueOf(key));
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Compare the values of two nodes.
+     * <p>
+     * Comments are ignored, and scalars are compared by their string form so that values
+     * read back from the file match the values written by the mapper.
+     *
+     * @param a First node
+     * @param b Second node
+     * @return true if both nodes hold the same value
+     */
+    static boolean same(ConfigurationNode a, ConfigurationNode b) {
+        if (a.isMap() || b.isMap()) {
+            Map<Object, ? extends ConfigurationNode> first = a.childrenMap();
+            Map<Object, ? extends ConfigurationNode> second = b.childrenMap();
+            if (first.size() != second.size()) {
+                return false;
+            }
+            for (Map.Entry<Object, ? extends ConfigurationNode> entry : first.entrySet()) {
+                ConfigurationNode other = second.get(entry.getKey());
+                if (other == null || !same(entry.getValue(), other)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        if (a.isList() || b.isList()) {
+            List<? extends ConfigurationNode> first = a.childrenList();
+            List<? extends ConfigurationNode> second = b.childrenList();
+            if (first.size() != second.size()) {
+                return false;
+            }
+            for (int i = 0; i < first.size(); i++) {
+                if (!same(first.get(i), second.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        Object first = a.rawScalar();
+        Object second = b.rawScalar();
+        return first == second || (first != null && second != null && first.toString().equals(second.toString()));
+    }
+
+    /**
+     * Field values to set once every changed value is deserialized
+     */
+    private static final class Assignments {
+        private final List<Field> fields = new ArrayList<>();
+        private final List<Object> targets = new ArrayList<>();
+        private final List<Object> values = new ArrayList<>();
+
+        private void add(Field field, Object target, Object value) {
+            fields.add(field);
+            targets.add(target);
+            values.add(value);
+        }
+
+        private boolean isEmpty() {
+            return fields.isEmpty();
+        }
+
+        private void run() throws SerializationException {
+            for (int i = 0; i < fields.size(); i++) {
+                FieldAccess.set(fields.get(i), targets.get(i), values.get(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.spongepowered.configurate.ConfigurationNode;
+import org.spongepowered.configurate.serialize.SerializationException;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * Value of a mapped field, read when first used.
+ * <p>
+ * Declare a field as {@code Lazy<Section>} to defer a large section of the file until
+ * {@link #get()} is called. When the file is streamed (see {@link StreamMode}) by a format able to
+ * read a part of the file again, the section is skipped while loading and only its text is kept.
+ * Otherwise the section is parsed with the file and only deserialized on first use. Either way,
+ * the section is read as it was when the file was loaded, even if the file changed since.
+ * <p>
+ * Sections never used are saved back as they were read.
+ *
+ * @param <V> Type of the value
+ */
+public final class Lazy<V> {
+
+    /**
+     * Source of a section not read yet
+     */
+    interface Source {
+        /**
+         * Read the section as a node
+         *
+         * @return Node of the section
+         * @throws IOException if the section cannot be read
+         */
+        ConfigurationNode read() throws IOException;
+
+        /**
+         * Read the value of the section
+         *
+         * @param unknown Node collecting the values not mapped to the value, or null to skip them
+         * @return Value
+         * @throws IOException if the section cannot be read or the value cannot be deserialized
+         */
+        @Nullable Object bind(@Nullable ConfigurationNode unknown) throws IOException;
+    }
+
+    private final @Nullable Type type;
+
+    /**
+     * Section to read, null once read
+     */
+    private @Nullable Source source;
+
+    /**
+     * Node the value is deserialized from, or node saved under the value
+     */
+    private @Nullable ConfigurationNode node;
+
+    private @Nullable V value;
+    private volatile boolean loaded;
+
+    private Lazy(@Nullable Type type, @Nullable Source source, @Nullable ConfigurationNode node, @Nullable V value, boolean loaded) {
+        this.type = type;
+        this.source = source;
+        this.node = node;
+        this.value = value;
+        this.loaded = loaded;
+    }
+
+    /**
+     * Create a value already loaded, such as the default value of a field
+     *
+     * @param value Value
+     * @param <V>   Type of the value
+     * @return Lazy value
+     */
+    public static <V> Lazy<V> of(@Nullable V value) {
+        return new Lazy<>(null, null, null, value, true);
+    }
+
+    /**
+     * Create a value deserialized from a node when first used
+     */
+    static <V> Lazy<V> of(Type type, ConfigurationNode node) {
+        return new Lazy<>(type, null, node, null, false);
+    }
+
+    /**
+     * Create a value read from a section of the file when first used
+     *
+     * @param type    Type of the value
+     * @param source  Section holding the value
+     * @param unknown Node collecting the values of the section not mapped to the value, or null to skip them
+     */
+    static <V> Lazy<V> of(Type type, Source source, @Nullable ConfigurationNode unknown) {
+        return new Lazy<>(type, source, unknown, null, false);
+    }
+
+    /**
+     * Gets the value, reading it on first use
+     *
+     * @return Value
+     * @throws SerializationException if the section cannot be read or deserialized
+     */
+    @SuppressWarnings("unchecked")
+    public @Nullable V get() throws SerializationException {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    if (source != null) {
+                        try {
+                            value = (V) source.bind(node);
+                        } catch (SerializationException e) {
+                            throw e;
+                        } catch (IOException e) {
+                            throw new SerializationException(type, e);
+                        }
+                        source = null;
+                    } else {
+                        value = (V) node.get(type);
+                    }
+                    loaded = true;
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Replace the value
+     *
+     * @param value Value
+     */
+    public synchronized void set(@Nullable V value) {
+        this.value = value;
+        this.loaded = true;
+    }
+
+    /**
+     * Gets whether the value has been read
+     *
+     * @return true if the value has been read or set
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Gets whether the section is still to be read from the file
+     *
+     * @return true if the section has been skipped while streaming and not read since
+     */
+    synchronized boolean isUnread() {
+        return source != null;
+    }
+
+    /**
+     * Gets the node to save under the value: the node the value is read from, reading the
+     * section if the value is not loaded, or the values of the section not mapped to the value.
+     *
+     * @return Node, null if there is nothing to save besides the value
+     * @throws SerializationException if the section cannot be read
+     */
+    synchronized @Nullable ConfigurationNode base() throws SerializationException {
+        if (source != null && !loaded) {
+            try {
+                node = source.read();
+            } catch (IOException e) {
+                throw new SerializationException(type, e);
+            }
+            source = null;
+        }
+        return node;
+    }
+
+    @Override
+    public String toString() {
+        return loaded ? "Lazy{" + value + "}" : "Lazy{not loaded}";
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate;
+
+import io.leangen.geantyref.GenericTypeReflector;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.spongepowered.configurate.ConfigurationNode;
+import org.spongepowered.configurate.serialize.SerializationException;
+import org.spongepowered.configurate.serialize.TypeSerializer;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+
+/**
+ * Serializer of {@link Lazy} values.
+ * <p>
+ * Values are deserialized when first used. Values never used are saved from the node they were
+ * read from, and used values are saved over it, keeping the keys they do not map.
+ */
+final class LazySerializer implements TypeSerializer<Lazy<?>> {
+
+    static final LazySerializer INSTANCE = new LazySerializer();
+
+    private LazySerializer() {
+    }
+
+    /**
+     * Gets whether a type is serialized by this serializer
+     *
+     * @param type Type
+     * @return true for {@link Lazy} types
+     */
+    static boolean accepts(Type type) {
+        return GenericTypeReflector.erase(type) == Lazy.class;
+    }
+
+    /**
+     * Gets the type of the value of a {@link Lazy} type
+     */
+    private static Type valueType(Type type) throws SerializationException {
+        if (type instanceof ParameterizedType) {
+            return ((ParameterizedType) type).getActualTypeArguments()[0];
+        }
+        throw new SerializationException(type, "Raw Lazy type, the type of the value is required");
+    }
+
+    @Override
+    public Lazy<?> deserialize(Type type, ConfigurationNode node) throws SerializationException {
+        return Lazy.of(valueType(type), node);
+    }
+
+    @Override
+    public void serialize(Type type, @Nullable Lazy<?> obj, ConfigurationNode node) throws SerializationException {
+        if (obj == null) {
+            node.raw(null);
+            return;
+        }
+        ConfigurationNode base = obj.base();
+        if (base != null && base != node) {
+            node.from(base);
+        }
+        if (obj.isLoaded()) {
+            node.set(valueType(type), obj.get());
+        }
+    }
+}
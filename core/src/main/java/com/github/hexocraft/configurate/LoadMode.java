@@ -0,0 +1,39 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate;
+
+/**
+ * Modes which {@link AbstractConfiguration#load()} can use to populate the configuration object.
+ */
+public enum LoadMode {
+
+    /**
+     * Create a new configuration object from the file. The object the method is called on is not modified.
+     */
+    NEW_INSTANCE,
+
+    /**
+     * Update the configuration object the method is called on, and return it.
+     * <p>
+     * The object ends up with the same values as a new instance: values missing from the file are reset
+     * to their default value, and values changed in memory are overwritten. Values are deserialized first,
+     * then swapped into the object field by field, so that a failure leaves the object untouched. Nested
+     * objects are replaced as a whole, never modified. Values which already match the file are kept with
+     * their identity.
+     */
+    IN_PLACE
+}
@@ -0,0 +1,101 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.spongepowered.configurate.CommentedConfigurationNodeIntermediary;
+import org.spongepowered.configurate.ConfigurationNode;
+
+import java.util.Map;
+
+/**
+ * 64 bits fingerprint of a node tree.
+ * <p>
+ * The fingerprint covers structure, keys, values and comments, in order. Two trees with
+ * the same fingerprint are emitted the same way by a configuration loader.
+ */
+final class NodeFingerprint {
+
+    private static final long OFFSET = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    private static final int NULL = 0;
+    private static final int MAP = 1;
+    private static final int LIST = 2;
+    private static final int SCALAR = 3;
+    private static final int END = 4;
+
+    private NodeFingerprint() {
+    }
+
+    /**
+     * Compute the fingerprint of a node tree
+     *
+     * @param node Root node
+     * @return Fingerprint
+     */
+    static long of(@NonNull ConfigurationNode node) {
+        return hash(OFFSET, node);
+    }
+
+    private static long hash(long hash, ConfigurationNode node) {
+        if (node instanceof CommentedConfigurationNodeIntermediary<?>) {
+            hash = hash(hash, ((CommentedConfigurationNodeIntermediary<?>) node).comment());
+        }
+
+        if (node.isMap()) {
+            hash = mix(hash, MAP);
+            for (Map.Entry<Object, ? extends ConfigurationNode> child : node.childrenMap().entrySet()) {
+                hash = hash(hash, String.valueOf(child.getKey()));
+                hash = hash(hash, child.getValue());
+            }
+            return mix(hash, END);
+        }
+
+        if (node.isList()) {
+            hash = mix(hash, LIST);
+            for (ConfigurationNode child : node.childrenList()) {
+                hash = hash(hash, child);
+            }
+            return mix(hash, END);
+        }
+
+        Object value = node.rawScalar();
+        if (value == null) {
+            return mix(hash, NULL);
+        }
+        hash = mix(hash, SCALAR);
+        hash = hash(hash, value.getClass().getName());
+        return hash(hash, value.toString());
+    }
+
+    private static long hash(long hash, @Nullable String value) {
+        if (value == null) {
+            return mix(hash, NULL);
+        }
+        hash = mix(hash, value.length() + END);
+        for (int i = 0; i < value.length(); i++) {
+            hash = mix(hash, value.charAt(i));
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, int value) {
+        return (hash ^ value) * PRIME;
+    }
+}
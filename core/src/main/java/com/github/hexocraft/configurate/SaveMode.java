@@ -0,0 +1,47 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate;
+
+/**
+ * Modes which {@link AbstractConfiguration#save()} can use to write the configuration file.
+ * <p>
+ * Every mode first writes a temporary file next to the configuration file, then moves it
+ * over the configuration file with an atomic rename. A crash while writing never leaves a
+ * truncated configuration file behind. Modes only differ in durability.
+ */
+public enum SaveMode {
+
+    /**
+     * Write a temporary file then rename it. Data is flushed to disk whenever the operating system decides.
+     */
+    ATOMIC,
+
+    /**
+     * Write a temporary file, force it to disk, rename it then force the parent directory to disk.
+     * The configuration is durable when {@link AbstractConfiguration#save()} returns.
+     */
+    SYNC,
+
+    /**
+     * Write a temporary file and hand it over to {@link GroupCommit}.
+     * <p>
+     * Temporary files saved in the same window are forced to disk and renamed together, and each
+     * parent directory is forced once per window. The configuration file is replaced when the
+     * window is committed, use {@link GroupCommit#flush()} to wait for it.
+     */
+    GROUP_COMMIT
+}
@@ -0,0 +1,49 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate;
+
+/**
+ * Modes which {@link AbstractConfiguration#load()} can use to read the configuration file.
+ * <p>
+ * When streaming, values are bound to the configuration object while the file is read, entry by
+ * entry for maps and lists, instead of building the whole node tree first. Only formats providing
+ * a {@link StreamingReader} can stream, others are always loaded as a node tree.
+ * <p>
+ * The snapshot of a streamed configuration only holds the values which are not mapped to a field,
+ * until the configuration is saved. Mapping the bound values back to nodes would hold the whole tree
+ * along with the configuration object and read every {@link Lazy} section, which streaming avoids.
+ * Until then, {@link AbstractConfiguration#getRoot()}, {@link ConfigurationKey}s and the
+ * {@link ConfigurationIndex} do not see the mapped values, and the first save compares the file
+ * content instead of the snapshot to find out whether the configuration changed.
+ */
+public enum StreamMode {
+
+    /**
+     * Build the whole node tree, then map it
+     */
+    DISABLED,
+
+    /**
+     * Bind values while reading, and keep the values which are not mapped to a field so that they are saved back
+     */
+    KEEP_UNKNOWN,
+
+    /**
+     * Bind values while reading, and skip the values which are not mapped to a field
+     */
+    SKIP_UNKNOWN
+}
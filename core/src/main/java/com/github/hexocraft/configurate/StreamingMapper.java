@@ -0,0 +1,479 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate;
+
+import io.leangen.geantyref.GenericTypeReflector;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.spongepowered.configurate.BasicConfigurationNode;
+import org.spongepowered.configurate.ConfigurationNode;
+import org.spongepowered.configurate.ConfigurationOptions;
+import org.spongepowered.configurate.objectmapping.ConfigSerializable;
+import org.spongepowered.configurate.objectmapping.FieldData;
+import org.spongepowered.configurate.objectmapping.ObjectMapper;
+import org.spongepowered.configurate.serialize.SerializationException;
+import org.spongepowered.configurate.serialize.TypeSerializer;
+import org.spongepowered.configurate.serialize.TypeSerializerCollection;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Bind the values of a {@link StreamingReader} to a mapped object while they are read.
+ * <p>
+ * {@link ConfigSerializable} objects are bound field by field, and maps with string keys and lists
+ * entry by entry, so that only the node of a single value is built at a time. Other values are read
+ * as a node, then deserialized with the serializers of the options. So are {@link ConfigSerializable}
+ * objects which the serializers of the options do not map with {@link AccessorFieldDiscoverer#FACTORY}.
+ * <p>
+ * How each type is read is resolved once per mapped class, and shared by every read of that class. Plans are held
+ * in a {@link ClassValue} of the mapped class, so that they do not prevent the classes they refer to from being
+ * unloaded along with it.
+ */
+@SuppressWarnings({"unchecked", "rawtypes"})
+final class StreamingMapper {
+
+    /**
+     * Plans by type, for each mapped class
+     */
+    private static final ClassValue<ConcurrentMap<Type, Plan>> PLANS = new ClassValue<ConcurrentMap<Type, Plan>>() {
+        @Override
+        protected ConcurrentMap<Type, Plan> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private StreamingMapper() {
+    }
+
+    /**
+     * Bind a map of the reader to a mapped object
+     *
+     * @param target  Object to populate
+     * @param mapper  Mapper of the object
+     * @param reader  Reader, positioned on a map or at the end of an empty document
+     * @param options Options holding the serializers
+     * @param unknown Node collecting the values not mapped to a field, or null to skip them
+     * @throws IOException if the file cannot be read or a value cannot be deserialized
+     */
+    static <V> void bind(@NonNull V target, @NonNull ObjectMapper<V> mapper, @NonNull StreamingReader reader, @NonNull ConfigurationOptions options, @Nullable ConfigurationNode unknown) throws IOException {
+        Plan plan = plan(PLANS.get(GenericTypeReflector.erase(mapper.mappedType())), mapper.mappedType());
+        if (plan.fields == null) {
+            throw new SerializationException(mapper.mappedType(), "Type cannot be streamed");
+        }
+        if (reader.peek() == StreamingReader.Token.END_DOCUMENT) {
+            return; // Empty file
+        }
+        bind(target, plan, reader, options, unknown);
+    }
+
+    /**
+     * Bind a map of the reader to an object
+     */
+    private static void bind(Object target, Plan plan, StreamingReader reader, ConfigurationOptions options, @Nullable ConfigurationNode unknown) throws IOException {
+        ConfigurationNode pending = null;
+
+        reader.beginMap();
+        while (reader.peek() != StreamingReader.Token.END_MAP) {
+            String key = reader.nextKey();
+            Binding binding = plan.fields.get(key);
+            if (binding != null) {
+                Object value = read(reader, binding.plan(), options, unknown != null ? unknown.node(key) : null);
+                binding.data.validate(value);
+                FieldAccess.set(binding.field, target, value);
+            } else if (plan.prefixes.contains(key)) {
+                // Field with a nested path, resolved once the whole map is read
+                pending = pending != null ? pending : BasicConfigurationNode.root(options);
+                readNode(reader, pending.node(key));
+            } else if (unknown != null) {
+                readNode(reader, unknown.node(key));
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endMap();
+
+        if (pending != null) {
+            for (Binding binding : plan.nested) {
+                ConfigurationNode node = binding.data.resolveNode(pending);
+                if (!node.virtual()) {
+                    Object value = node.get(binding.data.resolvedType().getType());
+                    binding.data.validate(value);
+                    FieldAccess.set(binding.field, target, value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Read a value
+     *
+     * @param reader  Reader
+     * @param plan    Plan of the value type
+     * @param options Options holding the serializers
+     * @param unknown Node collecting the values not mapped to a field, or null to skip them
+     * @return Value
+     * @throws IOException if the file cannot be read or the value cannot be deserialized
+     */
+    private static @Nullable Object read(StreamingReader reader, Plan plan, ConfigurationOptions options, @Nullable ConfigurationNode unknown) throws IOException {
+        if (plan.kind == Plan.LAZY) {
+            return lazy(reader, plan, options, unknown);
+        }
+
+        StreamingReader.Token token = reader.peek();
+
+        if (token == StreamingReader.Token.BEGIN_MAP && plan.fields != null && plan.binds(options.serializers())) {
+            Object value = plan.instance(options);
+            bind(value, plan, reader, options, unknown);
+            return value;
+        }
+
+        if (token == StreamingReader.Token.BEGIN_MAP && plan.kind == Plan.MAP) {
+            Plan element = plan.element();
+            Map<String, Object> map = new LinkedHashMap<>();
+            reader.beginMap();
+            while (reader.peek() != StreamingReader.Token.END_MAP) {
+                String key = reader.nextKey();
+                map.put(key, read(reader, element, options, null));
+            }
+            reader.endMap();
+            return map;
+        }
+
+        if (token == StreamingReader.Token.BEGIN_LIST && plan.kind == Plan.LIST) {
+            Plan element = plan.element();
+            List<Object> list = new ArrayList<>();
+            reader.beginList();
+            while (reader.peek() != StreamingReader.Token.END_LIST) {
+                list.add(read(reader, element, options, null));
+            }
+            reader.endList();
+            return list;
+        }
+
+        ConfigurationNode node = BasicConfigurationNode.root(options);
+        readNode(reader, node);
+        return plan.deserialize(node);
+    }
+
+    /**
+     * Read a {@link Lazy} value, keeping only the position of its section when the reader allows it
+     */
+    private static Lazy<?> lazy(StreamingReader reader, Plan plan, ConfigurationOptions options, @Nullable ConfigurationNode unknown) throws IOException {
+        StreamingReader.Section section = reader.section();
+        if (section == null) {
+            ConfigurationNode node = BasicConfigurationNode.root(options);
+            readNode(reader, node);
+            return Lazy.of(plan.elementType, node);
+        }
+
+        return Lazy.of(plan.elementType, new Lazy.Source() {
+            @Override
+            public ConfigurationNode read() throws IOException {
+                try (StreamingReader sectionReader = section.open()) {
+                    ConfigurationNode node = BasicConfigurationNode.root(options);
+                    readNode(sectionReader, node);
+                    return node;
+                }
+            }
+
+            @Override
+            public @Nullable Object bind(@Nullable ConfigurationNode unknown) throws IOException {
+                try (StreamingReader sectionReader = section.open()) {
+                    return StreamingMapper.read(sectionReader, plan.element(), options, unknown);
+                }
+            }
+        }, unknown != null ? BasicConfigurationNode.root(options) : null);
+    }
+
+    /**
+     * Read a value as a node
+     *
+     * @param reader Reader
+     * @param node   Node to populate
+     * @throws IOException if the file cannot be read
+     */
+    static void readNode(@NonNull StreamingReader reader, @NonNull ConfigurationNode node) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_MAP:
+                reader.beginMap();
+                if (reader.peek() == StreamingReader.Token.END_MAP) {
+                    node.raw(Collections.emptyMap());
+                }
+                while (reader.peek() != StreamingReader.Token.END_MAP) {
+                    String key = reader.nextKey();
+                    readNode(reader, node.node(key));
+                }
+                reader.endMap();
+                break;
+            case BEGIN_LIST:
+                reader.beginList();
+                if (reader.peek() == StreamingReader.Token.END_LIST) {
+                    node.raw(Collections.emptyList());
+                }
+                while (reader.peek() != StreamingReader.Token.END_LIST) {
+                    readNode(reader, node.appendListNode());
+                }
+                reader.endList();
+                break;
+            case SCALAR:
+                node.raw(reader.nextScalar());
+                break;
+            default:
+                throw new IOException("Unexpected token: " + reader.peek());
+        }
+    }
+
+    /**
+     * Gets the plan of a type
+     *
+     * @param plans Plans of the mapped class
+     * @param type  Type
+     * @return Plan
+     */
+    private static Plan plan(ConcurrentMap<Type, Plan> plans, Type type) {
+        Plan plan = plans.get(type);
+        if (plan == null) {
+            plan = new Plan(plans, type);
+            Plan previous = plans.putIfAbsent(type, plan);
+            plan = previous != null ? previous : plan;
+        }
+        return plan;
+    }
+
+    /**
+     * How values of a type are read
+     */
+    private static final class Plan {
+        private static final int VALUE = 0;
+        private static final int MAP = 1;
+        private static final int LIST = 2;
+        private static final int LAZY = 3;
+
+        /**
+         * Plans of the mapped class, holding the plans of the element and field types
+         */
+        private final ConcurrentMap<Type, Plan> plans;
+
+        private final Type type;
+        private final int kind;
+
+        /**
+         * Element type of maps and lists, value type of lazy values
+         */
+        private final @Nullable Type elementType;
+
+        /**
+         * Mapper of {@link ConfigSerializable} objects
+         */
+        private final @Nullable ObjectMapper<Object> mapper;
+
+        /**
+         * No argument constructor of {@link ConfigSerializable} objects, if any
+         */
+        private final @Nullable Constructor<?> constructor;
+
+        /**
+         * Fields of {@link ConfigSerializable} objects stored directly under a key
+         */
+        private final @Nullable Map<String, Binding> fields;
+
+        /**
+         * Fields of {@link ConfigSerializable} objects stored under a nested path
+         */
+        private final List<Binding> nested = new ArrayList<>();
+
+        /**
+         * First keys of the nested paths
+         */
+        private final Set<String> prefixes = new HashSet<>();
+
+        private volatile @Nullable Plan element;
+        private volatile @Nullable Serializer serializer;
+
+        private Plan(ConcurrentMap<Type, Plan> plans, Type type) {
+            this.plans = plans;
+            Class<?> erased = GenericTypeReflector.erase(type);
+            Type[] arguments = type instanceof ParameterizedType ? ((ParameterizedType) type).getActualTypeArguments() : new Type[0];
+
+            this.type = type;
+            if (erased.isAssignableFrom(LinkedHashMap.class) && Map.class.isAssignableFrom(erased) && arguments.length == 2 && arguments[0] == String.class) {
+                this.kind = MAP;
+                this.elementType = arguments[1];
+            } else if (erased.isAssignableFrom(ArrayList.class) && List.class.isAssignableFrom(erased) && arguments.length == 1) {
+                this.kind = LIST;
+                this.elementType = arguments[0];
+            } else if (erased == Lazy.class && arguments.length == 1) {
+                this.kind = LAZY;
+                this.elementType = arguments[0];
+            } else {
+                this.kind = VALUE;
+                this.elementType = null;
+            }
+
+            ObjectMapper<Object> mapper = null;
+            Constructor<?> constructor = null;
+            Map<String, Binding> fields = null;
+            if (erased.isAnnotationPresent(ConfigSerializable.class)) {
+                try {
+                    mapper = (ObjectMapper<Object>) AccessorFieldDiscoverer.FACTORY.get(type);
+                    if (mapper.canCreateInstances()) {
+                        fields = new HashMap<>();
+                        for (FieldData<?, ?> data : mapper.fields()) {
+                            Binding binding = new Binding(plans, data, FieldAccess.field(erased, data.name()));
+                            Object[] path = data.resolveNode(BasicConfigurationNode.root()).path().array();
+                            if (path.length == 1) {
+                                fields.put(String.valueOf(path[0]), binding);
+                            } else if (path.length > 1) {
+                                nested.add(binding);
+                                prefixes.add(String.valueOf(path[0]));
+                            }
+                        }
+                        constructor = erased.getDeclaredConstructor();
+                        constructor.setAccessible(true);
+                    }
+                } catch (SerializationException e) {
+                    // Read as a node
+                    fields = null;
+                } catch (NoSuchMethodException | RuntimeException e) {
+                    // Instances are created by the mapper
+                    constructor = null;
+                }
+            }
+            this.mapper = mapper;
+            this.constructor = constructor;
+            this.fields = fields;
+        }
+
+        /**
+         * Gets the plan of the element type of maps and lists
+         */
+        private Plan element() {
+            Plan plan = element;
+            if (plan == null) {
+                plan = plan(plans, elementType);
+                element = plan;
+            }
+            return plan;
+        }
+
+        /**
+         * Create an instance of a {@link ConfigSerializable} object, holding its default values
+         */
+        private Object instance(ConfigurationOptions options) throws SerializationException {
+            if (constructor != null) {
+                try {
+                    return constructor.newInstance();
+                } catch (ReflectiveOperationException e) {
+                    throw new SerializationException(type, e);
+                }
+            }
+            return mapper.load(BasicConfigurationNode.root(options));
+        }
+
+        /**
+         * Check whether a {@link ConfigSerializable} object is bound field by field with the given serializers.
+         * <p>
+         * It is only when the serializers map it with {@link AccessorFieldDiscoverer#FACTORY}, as this plan does.
+         * Otherwise, such as with a custom serializer registered for its type, it is deserialized from a node.
+         *
+         * @param serializers Serializers of the options
+         * @return true to bind the object field by field
+         */
+        private boolean binds(TypeSerializerCollection serializers) {
+            return serializer(serializers).serializer == AccessorFieldDiscoverer.FACTORY.asTypeSerializer();
+        }
+
+        /**
+         * Deserialize a node, resolving the serializer once per serializer collection
+         */
+        private @Nullable Object deserialize(ConfigurationNode node) throws SerializationException {
+            if (node.rawScalar() == null && !node.isMap() && !node.isList()) {
+                return node.get(type);
+            }
+
+            Serializer current = serializer(node.options().serializers());
+            if (current.serializer == null) {
+                return node.get(type);
+            }
+            return current.serializer.deserialize(type, node);
+        }
+
+        /**
+         * Gets the serializer of this type in a serializer collection, resolved once per collection
+         */
+        private Serializer serializer(TypeSerializerCollection serializers) {
+            Serializer current = serializer;
+            if (current == null || current.serializers != serializers) {
+                current = new Serializer(serializers, serializers.get(type));
+                serializer = current;
+            }
+            return current;
+        }
+    }
+
+    /**
+     * Mapped field of a {@link ConfigSerializable} object
+     */
+    private static final class Binding {
+        private final ConcurrentMap<Type, Plan> plans;
+        private final FieldData<?, ?> data;
+        private final Field field;
+        private volatile @Nullable Plan plan;
+
+        private Binding(ConcurrentMap<Type, Plan> plans, FieldData<?, ?> data, Field field) {
+            this.plans = plans;
+            this.data = data;
+            this.field = field;
+        }
+
+        private Plan plan() {
+            Plan current = plan;
+            if (current == null) {
+                current = StreamingMapper.plan(plans, data.resolvedType().getType());
+                plan = current;
+            }
+            return current;
+        }
+    }
+
+    /**
+     * Serializer resolved from a serializer collection
+     */
+    private static final class Serializer {
+        private final TypeSerializerCollection serializers;
+        private final @Nullable TypeSerializer<?> serializer;
+
+        private Serializer(TypeSerializerCollection serializers, @Nullable TypeSerializer<?> serializer) {
+            this.serializers = serializers;
+            this.serializer = serializer;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Pull reader of a configuration file, used to bind values while the file is read.
+ * <p>
+ * Format modules provide a reader with {@link AbstractConfiguration#createReader(java.io.File)}.
+ * Values are read as a sequence of tokens: a map is read as {@link Token#BEGIN_MAP}, then a
+ * {@link Token#KEY} followed by a value for each entry, then {@link Token#END_MAP}.
+ *
+ * @see StreamMode
+ */
+public interface StreamingReader extends Closeable {
+
+    /**
+     * Tokens of a configuration file
+     */
+    enum Token {
+        BEGIN_MAP,
+        END_MAP,
+        BEGIN_LIST,
+        END_LIST,
+        KEY,
+        SCALAR,
+        END_DOCUMENT
+    }
+
+    /**
+     * Gets the next token, without consuming it
+     *
+     * @return Token
+     * @throws IOException if the file cannot be read
+     */
+    Token peek() throws IOException;
+
+    /**
+     * Consume a {@link Token#BEGIN_MAP} token
+     *
+     * @throws IOException if the file cannot be read or the next token is not the beginning of a map
+     */
+    void beginMap() throws IOException;
+
+    /**
+     * Consume a {@link Token#END_MAP} token
+     *
+     * @throws IOException if the file cannot be read or the next token is not the end of a map
+     */
+    void endMap() throws IOException;
+
+    /**
+     * Consume a {@link Token#BEGIN_LIST} token
+     *
+     * @throws IOException if the file cannot be read or the next token is not the beginning of a list
+     */
+    void beginList() throws IOException;
+
+    /**
+     * Consume a {@link Token#END_LIST} token
+     *
+     * @throws IOException if the file cannot be read or the next token is not the end of a list
+     */
+    void endList() throws IOException;
+
+    /**
+     * Consume a {@link Token#KEY} token
+     *
+     * @return Key
+     * @throws IOException if the file cannot be read or the next token is not a key
+     */
+    String nextKey() throws IOException;
+
+    /**
+     * Consume a {@link Token#SCALAR} token
+     *
+     * @return Value, such as a string, a number or a boolean
+     * @throws IOException if the file cannot be read or the next token is not a scalar
+     */
+    @Nullable Object nextScalar() throws IOException;
+
+    /**
+     * Skip the next value, keeping it to read it later.
+     * <p>
+     * Readers unable to read a part of the file again return null, without consuming the value.
+     *
+     * @return Section holding the value, or null if the value must be read now
+     * @throws IOException if the file cannot be read
+     * @see Lazy
+     */
+    default @Nullable Section section() throws IOException {
+        return null;
+    }
+
+    /**
+     * Part of a file holding a value, which can be read again even if the file changed since
+     */
+    interface Section {
+        /**
+         * Open a reader positioned on the value
+         *
+         * @return Reader
+         * @throws IOException if the section cannot be read
+         */
+        StreamingReader open() throws IOException;
+    }
+
+    /**
+     * Skip the next value, whatever its type
+     *
+     * @throws IOException if the file cannot be read
+     */
+    default void skipValue() throws IOException {
+        int depth = 0;
+        do {
+            switch (peek()) {
+                case BEGIN_MAP:
+                    beginMap();
+                    depth++;
+                    break;
+                case BEGIN_LIST:
+                    beginList();
+                    depth++;
+                    break;
+                case END_MAP:
+                    endMap();
+                    depth--;
+                    break;
+                case END_LIST:
+                    endList();
+                    depth--;
+                    break;
+                case KEY:
+                    nextKey();
+                    break;
+                case SCALAR:
+                    nextScalar();
+                    break;
+                default:
+                    throw new IOException("Unexpected end of document");
+            }
+        } while (depth > 0);
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate;
+
+/**
+ * Bytes read or written by the current thread, reported to the {@link ConfigurationMetrics}.
+ * <p>
+ * Sources, sinks and the {@link BinaryCache} add the bytes they transfer on the thread calling the loader, which is
+ * the thread measuring the phase.
+ */
+final class TransferredBytes {
+
+    private static final ThreadLocal<long[]> BYTES = ThreadLocal.withInitial(() -> new long[1]);
+
+    private TransferredBytes() {
+    }
+
+    /**
+     * Add bytes read or written by the current thread
+     *
+     * @param bytes Bytes
+     */
+    static void add(long bytes) {
+        BYTES.get()[0] += bytes;
+    }
+
+    /**
+     * Gets the bytes read or written by the current thread since the last call, and reset them
+     *
+     * @return Bytes
+     */
+    static long take() {
+        long[] bytes = BYTES.get();
+        long taken = bytes[0];
+        bytes[0] = 0;
+        return taken;
+    }
+}
@@ -0,0 +1,237 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Write-behind executor used by {@link AbstractConfiguration#saveAsync()}.
+ * <p>
+ * Writes are delayed by a window. Saves of the same file submitted during that window are
+ * coalesced into a single write of the latest state. Writes of the same file never run
+ * concurrently and run in submission order, writes of different files run in parallel.
+ * <p>
+ * Pending writes are flushed on JVM shutdown.
+ */
+public final class WriteBehind {
+
+    /**
+     * Default coalescing window, in milliseconds
+     */
+    public static final long DEFAULT_WINDOW = 50;
+
+    private static final Object LOCK = new Object();
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(threadFactory("Configurate write-behind scheduler"));
+
+    private static volatile Executor executor = Executors.newFixedThreadPool(Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors())), threadFactory("Configurate write-behind"));
+
+    private static volatile long window = TimeUnit.MILLISECONDS.toNanos(DEFAULT_WINDOW);
+
+    /**
+     * Write queues by file
+     */
+    private static final Map<Path, Queue> QUEUES = new HashMap<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            flush();
+            try {
+                GroupCommit.flush();
+            } catch (IOException ignored) {
+                // Nothing left to report to
+            }
+        }, "Configurate write-behind shutdown"));
+    }
+
+    private WriteBehind() {
+    }
+
+    /**
+     * Sets the coalescing window
+     *
+     * @param duration Window duration
+     * @param unit     Window duration unit
+     */
+    public static void window(long duration, @NonNull TimeUnit unit) {
+        if (duration < 0) {
+            throw new IllegalArgumentException("Window must be positive");
+        }
+        window = unit.toNanos(duration);
+    }
+
+    /**
+     * Sets the executor running serialization and writes
+     *
+     * @param executor Executor
+     */
+    public static void executor(@NonNull Executor executor) {
+        WriteBehind.executor = executor;
+    }
+
+    /**
+     * Start pending writes now and wait until every write submitted before this call completed.
+     * <p>
+     * Errors are reported by the futures returned by {@link AbstractConfiguration#saveAsync()}.
+     * Writes using {@link SaveMode#GROUP_COMMIT} may still need a {@link GroupCommit#flush()}.
+     */
+    public static void flush() {
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        synchronized (LOCK) {
+            for (Map.Entry<Path, Queue> entry : QUEUES.entrySet()) {
+                Queue queue = entry.getValue();
+                if (queue.running != null) futures.add(queue.running.future);
+                if (queue.pending != null) futures.add(queue.pending.future);
+            }
+            for (Path file : new ArrayList<>(QUEUES.keySet())) {
+                start(file);
+            }
+        }
+
+        for (CompletableFuture<Boolean> future : futures) {
+            try {
+                future.join();
+            } catch (RuntimeException ignored) {
+                // Reported by the future
+            }
+        }
+    }
+
+    /**
+     * Submit a write
+     *
+     * @param file  Configuration file
+     * @param write Serialize and write the configuration, returns whether the file has been written
+     * @return Future completed once the write is done
+     */
+    static CompletableFuture<Boolean> submit(@NonNull Path file, @NonNull Callable<Boolean> write) {
+        synchronized (LOCK) {
+            Queue queue = QUEUES.computeIfAbsent(file, key -> new Queue());
+
+            // Coalesce with the write waiting for its window
+            if (queue.pending != null) {
+                queue.pending.task = write;
+                return queue.pending.future;
+            }
+
+            Write pending = new Write(write);
+            queue.pending = pending;
+            if (queue.running == null) {
+                SCHEDULER.schedule(() -> {
+                    synchronized (LOCK) {
+                        start(file);
+                    }
+                }, window, TimeUnit.NANOSECONDS);
+            }
+            return pending.future;
+        }
+    }
+
+    /**
+     * Start the pending write of a file, unless a write of this file is already running.
+     * Must be called holding {@link #LOCK}.
+     *
+     * @param file Configuration file
+     */
+    private static void start(Path file) {
+        Queue queue = QUEUES.get(file);
+        if (queue == null || queue.running != null || queue.pending == null) {
+            return;
+        }
+
+        Write write = queue.pending;
+        queue.pending = null;
+        queue.running = write;
+        try {
+            executor.execute(() -> run(file, queue, write));
+        } catch (RejectedExecutionException e) {
+            queue.running = null;
+            write.future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Run a write then start the next pending write of the file
+     *
+     * @param file  Configuration file
+     * @param queue Writes of the file
+     * @param write Write to run
+     */
+    private static void run(Path file, Queue queue, Write write) {
+        try {
+            write.future.complete(write.task.call());
+        } catch (Throwable t) {
+            write.future.completeExceptionally(t);
+        } finally {
+            synchronized (LOCK) {
+                queue.running = null;
+                if (queue.pending != null) {
+                    // Its window elapsed while this write was running
+                    start(file);
+                } else {
+                    QUEUES.remove(file);
+                }
+            }
+        }
+    }
+
+    private static ThreadFactory threadFactory(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + " #" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Writes of one file
+     */
+    private static final class Queue {
+        private @Nullable Write running;
+        private @Nullable Write pending;
+    }
+
+    /**
+     * A write, shared by every coalesced save
+     */
+    private static final class Write {
+        private final CompletableFuture<Boolean> future = new CompletableFuture<>();
+        private Callable<Boolean> task;
+
+        private Write(Callable<Boolean> task) {
+            this.task = task;
+        }
+    }
+}
@@ -23,33 +23,279 @@ import org.spongepowered.configurate.serialize.TypeSerializer;
 
 import java.awt.*;
 import java.lang.reflect.Type;
+import java.math.BigInteger;
 
+/**
+ * Serialize {@link Color} as {@code #AARRGGBB}.
+ * <p>
+ * Colors are read from {@code #RRGGBB}, {@code #AARRGGBB}, {@code #RGB}, {@code #ARGB} (the {@code #} may be replaced by
+ * {@code 0x}, and {@code _} may separate digits), {@code rgb(r, g, b)}, {@code rgba(r, g, b, a)} where the alpha is
+ * either {@code 0-255} or {@code 0.0-1.0}, or the names of the {@link Color} constants. Integers, such as an unquoted
+ * {@code 112233} in YAML, are read from their digits as {@code RRGGBB} or {@code AARRGGBB}.
+ * <p>
+ * Parsing and formatting are done in a single pass without intermediate strings. Parsed texts, colors and their
+ * formatted form are kept in small fixed size caches, so that a configuration using the same colors again and again
+ * shares the same {@link Color} and {@link String} instances.
+ */
 public final class ColorSerializer implements TypeSerializer<Color> {
 
     public static final ColorSerializer INSTANCE = new ColorSerializer();
     public static final Class<Color> TYPE = Color.class;
 
+    private static final int CACHE_SIZE = 1 << 12;
+    private static final int CACHE_MASK = CACHE_SIZE - 1;
+    private static final long INVALID = -1L;
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private static final String[] NAMES = {
+            "white", "lightGray", "light_gray", "gray", "darkGray", "dark_gray", "black", "red", "pink", "orange",
+            "yellow", "green", "magenta", "cyan", "blue"
+    };
+    private static final Color[] NAMED = {
+            Color.WHITE, Color.LIGHT_GRAY, Color.LIGHT_GRAY, Color.GRAY, Color.DARK_GRAY, Color.DARK_GRAY, Color.BLACK,
+            Color.RED, Color.PINK, Color.ORANGE, Color.YELLOW, Color.GREEN, Color.MAGENTA, Color.CYAN, Color.BLUE
+    };
+
+    // Direct mapped caches: a slot is simply replaced on collision. Entries are immutable, so racy reads are safe.
+    private static final Parsed[] PARSED = new Parsed[CACHE_SIZE];
+    private static final Interned[] INTERNED = new Interned[CACHE_SIZE];
+
     @Override
     public Color deserialize(final Type type, final ConfigurationNode node) throws SerializationException {
-        String color = node.getString().replaceAll("#", "").replaceAll("0x", "").replaceAll("_", "");
-        if (color.length() == 6)
-            return new Color((int) Long.parseLong(color, 16), false);
-        else if (color.length() == 8)
-            return new Color((int) Long.parseLong(color, 16), true);
-        return null;
+        final Object value = node.rawScalar();
+        // Digits of an integer are hexadecimal digits written without quotes
+        if (value instanceof Number && !(value instanceof Long || value instanceof Integer || value instanceof Short
+                || value instanceof Byte || value instanceof BigInteger))
+            throw new SerializationException(type, "Invalid color: " + value);
+        final String text = value instanceof Number ? value.toString() : node.getString();
+        if (text == null)
+            return null;
+        final Color color = parse(text);
+        if (color == null)
+            throw new SerializationException(type, "Invalid color: " + text);
+        return color;
     }
 
     @Override
     public void serialize(final Type type, final @Nullable Color obj, final ConfigurationNode node) throws SerializationException {
-        String alpha = Integer.toHexString(obj.getAlpha());
-        String red = Integer.toHexString(obj.getRed());
-        String green = Integer.toHexString(obj.getGreen());
-        String blue = Integer.toHexString(obj.getBlue());
-        alpha = alpha.length() == 1 ? "0" + alpha : alpha;
-        red = red.length() == 1 ? "0" + red : red;
-        green = green.length() == 1 ? "0" + green : green;
-        blue = blue.length() == 1 ? "0" + blue : blue;
-        String argb = "#" + alpha.toUpperCase() + red.toUpperCase() + green.toUpperCase() + blue.toUpperCase();
-        node.raw(argb);
+        node.raw(obj == null ? null : format(obj));
+    }
+
+    /**
+     * Parse a color.
+     *
+     * @param text Color text, in any of the forms accepted by this serializer
+     * @return The color, or {@code null} if the text is not a color
+     */
+    public static @Nullable Color parse(final String text) {
+        final int slot = spread(text.hashCode()) & CACHE_MASK;
+        final Parsed cached = PARSED[slot];
+        if (cached != null && cached.text.equals(text))
+            return cached.color;
+
+        final long argb = parseArgb(text);
+        if (argb == INVALID)
+            return null;
+        final Color color = valueOf((int) argb);
+        PARSED[slot] = new Parsed(text, color);
+        return color;
+    }
+
+    /**
+     * Format a color as {@code #AARRGGBB}.
+     *
+     * @param color Color
+     * @return Formatted color
+     */
+    public static String format(final Color color) {
+        return interned(color.getRGB()).text;
+    }
+
+    /**
+     * Get the shared color instance of an ARGB value.
+     *
+     * @param argb Color as {@code 0xAARRGGBB}
+     * @return Color
+     */
+    public static Color valueOf(final int argb) {
+        return interned(argb).color;
+    }
+
+    private static Interned interned(final int argb) {
+        final int slot = spread(argb) & CACHE_MASK;
+        Interned interned = INTERNED[slot];
+        if (interned == null || interned.argb != argb)
+            INTERNED[slot] = interned = new Interned(argb);
+        return interned;
+    }
+
+    private static int spread(final int hash) {
+        return hash ^ (hash >>> 16) ^ (hash >>> 8);
+    }
+
+    private static long parseArgb(final String text) {
+        int start = 0;
+        int end = text.length();
+        while (start < end && text.charAt(start) <= ' ')
+            start++;
+        while (end > start && text.charAt(end - 1) <= ' ')
+            end--;
+        if (start == end)
+            return INVALID;
+
+        final char first = text.charAt(start);
+        if (first == '#')
+            return parseHex(text, start + 1, end, true);
+        if (first == '0' && end - start > 2 && (text.charAt(start + 1) == 'x' || text.charAt(start + 1) == 'X'))
+            return parseHex(text, start + 2, end, true);
+        if (text.regionMatches(true, start, "rgba(", 0, 5))
+            return parseFunction(text, start + 5, end);
+        if (text.regionMatches(true, start, "rgb(", 0, 4))
+            return parseFunction(text, start + 4, end);
+        for (int i = 0; i < NAMES.length; i++) {
+            final String name = NAMES[i];
+            if (name.length() == end - start && text.regionMatches(true, start, name, 0, name.length()))
+                return NAMED[i].getRGB() & 0xFFFFFFFFL;
+        }
+        // Without prefix, only the full forms are accepted
+        return parseHex(text, start, end, false);
+    }
+
+    private static long parseHex(final String text, final int start, final int end, final boolean shortForms) {
+        int value = 0;
+        int digits = 0;
+        for (int i = start; i < end; i++) {
+            final char c = text.charAt(i);
+            if (c == '_')
+                continue;
+            final int digit = Character.digit(c, 16);
+            if (digit < 0 || ++digits > 8)
+                return INVALID;
+            value = value << 4 | digit;
+        }
+        switch (digits) {
+            case 3:
+                // #RGB is #ARGB with an opaque alpha
+                return shortForms ? expand(value | 0xF000) : INVALID;
+            case 4:
+                return shortForms ? expand(value) : INVALID;
+            case 6:
+                return (value | 0xFF000000) & 0xFFFFFFFFL;
+            case 8:
+                return value & 0xFFFFFFFFL;
+            default:
+                return INVALID;
+        }
+    }
+
+    private static long expand(final int argb) {
+        return (expandDigit(argb >>> 12) << 24 | expandDigit(argb >>> 8) << 16 | expandDigit(argb >>> 4) << 8 | expandDigit(argb))
+                & 0xFFFFFFFFL;
+    }
+
+    private static int expandDigit(final int digit) {
+        return (digit & 0xF) * 0x11;
+    }
+
+    private static long parseFunction(final String text, final int start, final int end) {
+        if (text.charAt(end - 1) != ')')
+            return INVALID;
+        int rgb = 0;
+        int alpha = 0xFF;
+        int components = 0;
+        int i = start;
+        while (true) {
+            while (i < end - 1 && text.charAt(i) == ' ')
+                i++;
+            int next = i;
+            while (next < end - 1 && text.charAt(next) != ',')
+                next++;
+            int last = next;
+            while (last > i && text.charAt(last - 1) == ' ')
+                last--;
+
+            final int component = components < 3 ? parseByte(text, i, last) : parseAlpha(text, i, last);
+            if (component < 0)
+                return INVALID;
+            if (components < 3)
+                rgb = rgb << 8 | component;
+            else
+                alpha = component;
+            components++;
+
+            if (next == end - 1)
+                break;
+            if (components == 4)
+                return INVALID;
+            i = next + 1;
+        }
+        if (components < 3)
+            return INVALID;
+        return (alpha << 24 | rgb) & 0xFFFFFFFFL;
+    }
+
+    private static int parseByte(final String text, final int start, final int end) {
+        if (start == end || end - start > 3)
+            return -1;
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            final char c = text.charAt(i);
+            if (c < '0' || c > '9')
+                return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value > 255 ? -1 : value;
+    }
+
+    private static int parseAlpha(final String text, final int start, final int end) {
+        int dot = start;
+        while (dot < end && text.charAt(dot) != '.')
+            dot++;
+        if (dot == end)
+            return parseByte(text, start, end);
+
+        // Decimal alpha between 0 and 1
+        if (dot - start > 1 || end - dot > 10 || (dot == start && end - dot == 1))
+            return -1;
+        if (dot > start && text.charAt(start) != '0' && text.charAt(start) != '1')
+            return -1;
+        long numerator = dot > start ? text.charAt(start) - '0' : 0;
+        long denominator = 1;
+        for (int i = dot + 1; i < end; i++) {
+            final char c = text.charAt(i);
+            if (c < '0' || c > '9')
+                return -1;
+            numerator = numerator * 10 + (c - '0');
+            denominator *= 10;
+        }
+        if (numerator > denominator)
+            return -1;
+        return (int) ((numerator * 255 + denominator / 2) / denominator);
+    }
+
+    private static final class Parsed {
+        private final String text;
+        private final Color color;
+
+        private Parsed(final String text, final Color color) {
+            this.text = text;
+            this.color = color;
+        }
+    }
+
+    private static final class Interned {
+        private final int argb;
+        private final Color color;
+        private final String text;
+
+        private Interned(final int argb) {
+            this.argb = argb;
+            this.color = new Color(argb, true);
+            final char[] chars = new char[9];
+            chars[0] = '#';
+            for (int i = 8; i > 0; i--)
+                chars[i] = HEX[(argb >>> ((8 - i) * 4)) & 0xF];
+            this.text = new String(chars);
+        }
     }
 }
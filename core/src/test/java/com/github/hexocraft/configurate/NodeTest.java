@@ -17,10 +17,23 @@
 package com.github.hexocraft.configurate;
 
 
+import com.github.hexocraft.configurate.serialize.ColorSerializer;
 import io.leangen.geantyref.TypeToken;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.spongepowered.configurate.BasicConfigurationNode;
+import org.spongepowered.configurate.ConfigurationNode;
+import org.spongepowered.configurate.ConfigurationOptions;
+import org.spongepowered.configurate.objectmapping.ConfigSerializable;
+import org.spongepowered.configurate.objectmapping.ObjectMapper;
+import org.spongepowered.configurate.serialize.SerializationException;
+import org.spongepowered.configurate.serialize.TypeSerializer;
+import org.spongepowered.configurate.serialize.TypeSerializerCollection;
+
+import java.awt.*;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -68,6 +81,21 @@ class NodeTest {
         });
     }
 
+    @Test
+    public void KeyNodeTest() {
+        Assertions.assertDoesNotThrow(() -> {
+            BasicConfigurationNode root = BasicConfigurationNode.root();
+
+            root.node("db").node("host").set("localhost");
+            root.node("db").node("port").set(3306);
+
+            assertEquals("localhost", ConfigurationKey.of("db.host", String.class).get(root));
+            assertEquals(3306, ConfigurationKey.of("db.port", int.class).get(root));
+            assertEquals(10, ConfigurationKey.of("db.pool.size", Integer.class, 10).get(root));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> ConfigurationKey.of("db..host", String.class));
+        });
+    }
+
     @Test
     public void ParentNodeTest() {
         Assertions.assertDoesNotThrow(() -> {
@@ -100,4 +128,124 @@ class NodeTest {
             assertEquals(3306, root.node("db").node("port").get(TypeToken.get(int.class)));
         });
     }
-}
\ No newline at end of file
+
+    @ConfigSerializable
+    static class BaseSection {
+        private String name = "base";
+    }
+
+    @ConfigSerializable
+    static class Section extends BaseSection {
+        private int port = 3306;
+        private List<String> hosts = new ArrayList<>();
+        private transient String cached = "cached";
+        private BaseSection child;
+    }
+
+    @Test
+    public void AccessorMapperNodeTest() {
+        Assertions.assertDoesNotThrow(() -> {
+            BasicConfigurationNode root = BasicConfigurationNode.root();
+            root.node("name").set("db");
+            root.node("port").set(5432);
+            root.node("hosts").appendListNode().set("localhost");
+            root.node("child", "name").set("replica");
+
+            ObjectMapper<Section> mapper = AccessorFieldDiscoverer.FACTORY.get(Section.class);
+            Section section = mapper.load(root);
+            assertEquals("db", ((BaseSection) section).name);
+            assertEquals(5432, section.port);
+            assertEquals("localhost", section.hosts.get(0));
+            assertEquals("cached", section.cached);
+            assertEquals("replica", section.child.name);
+
+            BasicConfigurationNode saved = BasicConfigurationNode.root();
+            mapper.save(section, saved);
+            BasicConfigurationNode expected = BasicConfigurationNode.root();
+            ObjectMapper.factory().get(Section.class).save(ObjectMapper.factory().get(Section.class).load(root), expected);
+            assertEquals(expected, saved);
+        });
+    }
+
+    @Test
+    public void CustomSerializersNodeTest() {
+        Assertions.assertDoesNotThrow(() -> {
+            TypeSerializer<BaseSection> custom = new TypeSerializer<BaseSection>() {
+                @Override
+                public BaseSection deserialize(Type type, ConfigurationNode node) {
+                    BaseSection section = new BaseSection();
+                    section.name = "custom-" + node.getString();
+                    return section;
+                }
+
+                @Override
+                public void serialize(Type type, BaseSection obj, ConfigurationNode node) throws SerializationException {
+                    node.set(obj != null ? obj.name : null);
+                }
+            };
+            TypeSerializerCollection customs = TypeSerializerCollection.defaults().childBuilder()
+                    .registerExact(BaseSection.class, custom)
+                    .build();
+            TypeSerializerCollection serializers = ConfigurationSerializers.serializers(customs);
+            Assertions.assertSame(serializers, ConfigurationSerializers.serializers(customs));
+
+            // Custom serializers are used before the built-in ones
+            assertEquals(custom, serializers.get(BaseSection.class));
+            BasicConfigurationNode root = BasicConfigurationNode.root(ConfigurationOptions.defaults().serializers(serializers));
+            root.node("child").set("replica");
+            assertEquals("custom-replica", root.node("child").get(BaseSection.class).name);
+
+            // Other types still use the built-in serializers
+            assertEquals(AccessorFieldDiscoverer.FACTORY.asTypeSerializer(), serializers.get(Section.class));
+            assertEquals(ColorSerializer.INSTANCE, serializers.get(Color.class));
+        });
+    }
+
+    @Test
+    public void ColorNodeTest() {
+        Assertions.assertDoesNotThrow(() -> {
+            Color color = new Color(13, 32, 64);
+            Color alphaColor = new Color(13, 32, 64, 128);
+
+            assertEquals(color, ColorSerializer.parse("#0D2040"));
+            assertEquals(color, ColorSerializer.parse("0x0d_20_40"));
+            assertEquals(color, ColorSerializer.parse("0D2040"));
+            assertEquals(color, ColorSerializer.parse("rgb(13, 32, 64)"));
+            assertEquals(alphaColor, ColorSerializer.parse("#800D2040"));
+            assertEquals(alphaColor, ColorSerializer.parse("rgba(13,32,64,128)"));
+            assertEquals(alphaColor, ColorSerializer.parse("RGBA(13, 32, 64, 0.5)"));
+            assertEquals(new Color(0x11, 0x22, 0x33), ColorSerializer.parse("#123"));
+            assertEquals(new Color(0x22, 0x33, 0x44, 0x11), ColorSerializer.parse("#1234"));
+            assertEquals(Color.LIGHT_GRAY, ColorSerializer.parse(" lightGray "));
+            assertEquals(Color.RED, ColorSerializer.parse("RED"));
+            Assertions.assertNull(ColorSerializer.parse("123"));
+            Assertions.assertNull(ColorSerializer.parse("rgb(13, 32)"));
+            Assertions.assertNull(ColorSerializer.parse("rgb(256, 32, 64)"));
+            Assertions.assertNull(ColorSerializer.parse("#0D20400"));
+
+            // Instances are shared
+            Assertions.assertSame(ColorSerializer.parse("#0D2040"), ColorSerializer.parse("rgb(13, 32, 64)"));
+            Assertions.assertSame(ColorSerializer.format(color), ColorSerializer.format(new Color(13, 32, 64)));
+
+            BasicConfigurationNode root = BasicConfigurationNode.root(ConfigurationOptions.defaults().serializers(build -> build.register(ColorSerializer.TYPE, ColorSerializer.INSTANCE)));
+            root.node("color").set(Color.class, alphaColor);
+            assertEquals("#800D2040", root.node("color").getString());
+            assertEquals(alphaColor, root.node("color").get(Color.class));
+            // Integers are read from their digits, as hexadecimal
+            root.node("color").raw(112233);
+            assertEquals(new Color(0x11, 0x22, 0x33), root.node("color").get(Color.class));
+            root.node("color").raw(112233L);
+            assertEquals(new Color(0x11, 0x22, 0x33), root.node("color").get(Color.class));
+            root.node("color").raw(10203040);
+            assertEquals(new Color(0x20, 0x30, 0x40, 0x10), root.node("color").get(Color.class));
+            root.node("color").raw(1.5);
+            Assertions.assertThrows(SerializationException.class, () -> root.node("color").get(Color.class));
+            root.node("color").raw(-112233);
+            Assertions.assertThrows(SerializationException.class, () -> root.node("color").get(Color.class));
+            root.node("color").raw("#00112233");
+            assertEquals(0, root.node("color").get(Color.class).getAlpha());
+            root.node("color").raw("blurple");
+            Assertions.assertThrows(SerializationException.class, () -> root.node("color").get(Color.class));
+        });
+    }
+}
@@ -17,7 +17,9 @@
 package com.github.hexocraft.configurate.gson;
 
 import com.github.hexocraft.configurate.AbstractConfiguration;
+import com.github.hexocraft.configurate.StreamingReader;
 import io.leangen.geantyref.TypeToken;
+import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.spongepowered.configurate.BasicConfigurationNode;
 import org.spongepowered.configurate.ConfigurateException;
@@ -28,6 +30,7 @@ import org.spongepowered.configurate.loader.ConfigurationLoader;
 import org.spongepowered.configurate.loader.HeaderMode;
 
 import java.io.File;
+import java.io.IOException;
 
 public abstract class GsonConfiguration<C extends AbstractConfiguration<?, ?>> extends AbstractConfiguration<C, BasicConfigurationNode> {
 
@@ -98,9 +101,21 @@ public abstract class GsonConfiguration<C extends AbstractConfiguration<?, ?>> e
      */
     protected ConfigurationLoader<? extends ConfigurationNode> createLoader(File file, ConfigurationOptions options, HeaderMode headerMode) {
         GsonConfigurationLoader.Builder builder = GsonConfigurationLoader.builder();
-        if (file != null) builder.file(file);
+        if (file != null) builder.file(file).source(createSource(file)).sink(createSink(file));
         if (options != null) builder.defaultOptions(options);
         if (headerMode != null) builder.headerMode(headerMode);
         return builder.build();
     }
+
+    /**
+     * Create a reader binding JSON values while the file is read, without building the node tree.
+     *
+     * @param file The configuration file
+     * @return StreamingReader
+     * @throws IOException if the file cannot be opened
+     */
+    @Override
+    protected StreamingReader createReader(@NonNull File file) throws IOException {
+        return new GsonStreamingReader(openSource(file));
+    }
 }
@@ -0,0 +1,134 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate.gson;
+
+import com.github.hexocraft.configurate.StreamingReader;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * {@link StreamingReader} of JSON files, backed by Gson {@link JsonReader}.
+ * <p>
+ * Numbers are read as {@code GsonConfigurationLoader} does: decimals as doubles, other numbers
+ * as integers when they fit, or longs.
+ */
+final class GsonStreamingReader implements StreamingReader {
+
+    private final JsonReader reader;
+
+    GsonStreamingReader(Reader reader) {
+        this.reader = new JsonReader(reader);
+        this.reader.setLenient(true);
+    }
+
+    @Override
+    public Token peek() throws IOException {
+        JsonToken token;
+        try {
+            token = reader.peek();
+        } catch (EOFException e) {
+            if (reader.getPath().equals("$")) {
+                return Token.END_DOCUMENT; // Empty file
+            }
+            throw e;
+        }
+        switch (token) {
+            case BEGIN_OBJECT:
+                return Token.BEGIN_MAP;
+            case END_OBJECT:
+                return Token.END_MAP;
+            case BEGIN_ARRAY:
+                return Token.BEGIN_LIST;
+            case END_ARRAY:
+                return Token.END_LIST;
+            case NAME:
+                return Token.KEY;
+            case END_DOCUMENT:
+                return Token.END_DOCUMENT;
+            default:
+                return Token.SCALAR;
+        }
+    }
+
+    @Override
+    public void beginMap() throws IOException {
+        reader.beginObject();
+    }
+
+    @Override
+    public void endMap() throws IOException {
+        reader.endObject();
+    }
+
+    @Override
+    public void beginList() throws IOException {
+        reader.beginArray();
+    }
+
+    @Override
+    public void endList() throws IOException {
+        reader.endArray();
+    }
+
+    @Override
+    public String nextKey() throws IOException {
+        return reader.nextName();
+    }
+
+    @Override
+    public @Nullable Object nextScalar() throws IOException {
+        switch (reader.peek()) {
+            case BOOLEAN:
+                return reader.nextBoolean();
+            case NULL:
+                reader.nextNull();
+                return null;
+            case NUMBER:
+                return number(reader.nextString());
+            case STRING:
+                return reader.nextString();
+            default:
+                throw new IOException("Expected a value but was " + reader.peek() + " at " + reader.getPath());
+        }
+    }
+
+    @Override
+    public void skipValue() throws IOException {
+        reader.skipValue();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private static Number number(String value) {
+        if (value.contains(".")) {
+            return Double.parseDouble(value);
+        }
+        long number = Long.parseLong(value);
+        if (number >= Integer.MIN_VALUE && number <= Integer.MAX_VALUE) {
+            return (int) number;
+        }
+        return number;
+    }
+}
@@ -23,6 +23,7 @@ import org.junit.jupiter.api.Test;
 import java.awt.*;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 
@@ -159,4 +160,78 @@ class GsonConfigurationTest {
         });
     }
 
+    @Test
+    public void CacheTest() {
+        Assertions.assertDoesNotThrow(() -> {
+            // Delete config and cache files
+            Files.deleteIfExists(output.toPath());
+            Files.deleteIfExists(BinaryCache.file(output));
+
+            GsonBaseConfig config = new GsonBaseConfig(output);
+            config.getDatabase().host = "cached";
+            config.save();
+
+            // The first load writes the cache file
+            GsonBaseConfig parsed = new GsonBaseConfig(output);
+            parsed.setCached(true);
+            parsed = parsed.load();
+            Assertions.assertTrue(Files.exists(BinaryCache.file(output)));
+
+            // The next load reads the same node tree from the cache file
+            GsonBaseConfig cached = new GsonBaseConfig(output);
+            cached.setCached(true);
+            cached = cached.load();
+            Assertions.assertEquals(parsed.getRoot(), cached.getRoot());
+            Assertions.assertEquals("cached", cached.getDatabase().host);
+
+            // A file changed with the same size and modification time is parsed again
+            long modified = output.lastModified();
+            String content = new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8);
+            Files.write(output.toPath(), content.replace("cached", "parsed").getBytes(StandardCharsets.UTF_8));
+            Assertions.assertTrue(output.setLastModified(modified));
+            cached = new GsonBaseConfig(output);
+            cached.setCached(true);
+            Assertions.assertEquals("parsed", cached.load().getDatabase().host);
+        });
+    }
+
+    @Test
+    public void StreamTest() {
+        Assertions.assertDoesNotThrow(() -> {
+            // Delete config file
+            Files.deleteIfExists(output.toPath());
+
+            GsonBaseConfig config = new GsonBaseConfig(output);
+            config.getDatabase().host = "streamed";
+            config.save();
+
+            // Add a value which is not mapped
+            String content = new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8);
+            Files.write(output.toPath(), content.replace("\"version\"", "\"extra\": {\"enabled\": true},\n  \"version\"").getBytes(StandardCharsets.UTF_8));
+
+            // Values are bound while reading, unknown values are kept
+            GsonBaseConfig streamed = new GsonBaseConfig(output);
+            streamed.setStreamMode(StreamMode.KEEP_UNKNOWN);
+            streamed = streamed.load();
+            Assertions.assertEquals("streamed", streamed.getDatabase().host);
+            Assertions.assertEquals(3306, streamed.getDatabase().port);
+            Assertions.assertEquals(config.color, streamed.color);
+            Assertions.assertTrue(streamed.getRoot().node("extra", "enabled").getBoolean());
+
+            // Unknown values are saved back
+            streamed.getDatabase().port = 3307;
+            streamed.save();
+            GsonBaseConfig loaded = new GsonBaseConfig(output).load();
+            Assertions.assertEquals(3307, loaded.getDatabase().port);
+            Assertions.assertTrue(loaded.getRoot().node("extra", "enabled").getBoolean());
+
+            // Unknown values can be skipped
+            GsonBaseConfig skipped = new GsonBaseConfig(output);
+            skipped.setStreamMode(StreamMode.SKIP_UNKNOWN);
+            skipped = skipped.load();
+            Assertions.assertEquals(3307, skipped.getDatabase().port);
+            Assertions.assertTrue(skipped.getRoot().node("extra").virtual());
+        });
+    }
+
 }
\ No newline at end of file
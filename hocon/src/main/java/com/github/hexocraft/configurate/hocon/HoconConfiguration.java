@@ -99,7 +99,7 @@ public abstract class HoconConfiguration<C extends AbstractConfiguration<?, ?>>
      */
     protected ConfigurationLoader<? extends ConfigurationNode> createLoader(File file, ConfigurationOptions options, HeaderMode headerMode) {
         HoconConfigurationLoader.Builder builder = HoconConfigurationLoader.builder();
-        if (file != null) builder.file(file);
+        if (file != null) builder.file(file).source(createSource(file)).sink(createSink(file));
         if (options != null) builder.defaultOptions(options);
         if (headerMode != null) builder.headerMode(headerMode);
         return builder.build();
@@ -24,6 +24,7 @@ import org.junit.jupiter.api.Test;
 import java.awt.*;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 
@@ -219,4 +220,39 @@ class HoconConfigurationTest {
         });
     }
 
+    @Test
+    public void CacheTest() {
+        Assertions.assertDoesNotThrow(() -> {
+            // Delete config and cache files
+            Files.deleteIfExists(output.toPath());
+            Files.deleteIfExists(BinaryCache.file(output));
+
+            HoconBaseConfig config = new HoconBaseConfig(output);
+            config.getDatabase().host = "cached";
+            config.save();
+
+            // The first load writes the cache file
+            HoconBaseConfig parsed = new HoconBaseConfig(output);
+            parsed.setCached(true);
+            parsed = parsed.load();
+            Assertions.assertTrue(Files.exists(BinaryCache.file(output)));
+
+            // The next load reads the same node tree from the cache file
+            HoconBaseConfig cached = new HoconBaseConfig(output);
+            cached.setCached(true);
+            cached = cached.load();
+            Assertions.assertEquals(parsed.getRoot(), cached.getRoot());
+            Assertions.assertEquals("cached", cached.getDatabase().host);
+
+            // A file changed with the same size and modification time is parsed again
+            long modified = output.lastModified();
+            String content = new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8);
+            Files.write(output.toPath(), content.replace("cached", "parsed").getBytes(StandardCharsets.UTF_8));
+            Assertions.assertTrue(output.setLastModified(modified));
+            cached = new HoconBaseConfig(output);
+            cached.setCached(true);
+            Assertions.assertEquals("parsed", cached.load().getDatabase().host);
+        });
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,58 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Phase of a load or a save of a configuration, recorded by {@link JfrMetrics}
+ */
+@Name(ConfigurationEvent.NAME)
+@Label("Configuration")
+@Category("Configurate")
+@Description("Phase of a load or a save of a configuration file")
+@StackTrace(false)
+final class ConfigurationEvent extends Event {
+
+    static final String NAME = "com.github.hexocraft.configurate.Configuration";
+
+    @Label("Configuration Class")
+    Class<?> configurationClass;
+
+    @Label("Format")
+    String format;
+
+    @Label("Phase")
+    String phase;
+
+    @Label("File")
+    String file;
+
+    @Label("Bytes")
+    @Description("Size of the file read or written")
+    @DataAmount
+    long bytes;
+
+    @Label("Error")
+    String error;
+}
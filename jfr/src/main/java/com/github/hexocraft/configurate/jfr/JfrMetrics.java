@@ -0,0 +1,92 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate.jfr;
+
+import com.github.hexocraft.configurate.AbstractConfiguration;
+import com.github.hexocraft.configurate.ConfigurationMetrics;
+import jdk.jfr.EventType;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.File;
+
+/**
+ * {@link ConfigurationMetrics} emitting Java Flight Recorder events.
+ * <p>
+ * Each phase of a load or a save is recorded as a {@code com.github.hexocraft.configurate.Configuration} event,
+ * holding the configuration class, the format, the file and the bytes read or written, so that slow loads show up in
+ * JDK Mission Control next to GC and I/O events.
+ * <p>
+ * Registered as a service, so that it is used as soon as this module is on the class path, in addition to the metrics
+ * set with {@link AbstractConfiguration#setMetrics(ConfigurationMetrics)}. Events are only {@link #enabled() enabled}
+ * while a recording of the event is running: otherwise they do not measure anything.
+ */
+public final class JfrMetrics implements ConfigurationMetrics {
+
+    private static final EventType TYPE = EventType.getEventType(ConfigurationEvent.class);
+
+    @Override
+    public boolean enabled() {
+        return TYPE.isEnabled();
+    }
+
+    @Override
+    public @Nullable Object started(@NonNull Class<?> configuration, @NonNull Phase phase, @Nullable File file) {
+        ConfigurationEvent event = new ConfigurationEvent();
+        event.configurationClass = configuration;
+        event.phase = phase.name();
+        event.file = file != null ? file.getPath() : null;
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void recorded(@Nullable Object context, @NonNull Class<?> configuration, @NonNull String format, @NonNull Phase phase, long nanos, long bytes) {
+        if (context instanceof ConfigurationEvent) {
+            ConfigurationEvent event = (ConfigurationEvent) context;
+            event.end();
+            if (event.shouldCommit()) {
+                event.format = format;
+                event.bytes = bytes;
+                event.commit();
+            }
+        }
+    }
+
+    @Override
+    public void failed(@Nullable Object context, @NonNull Class<?> configuration, @NonNull String format, @NonNull Phase phase, @NonNull Throwable error) {
+        if (context instanceof ConfigurationEvent) {
+            ConfigurationEvent event = (ConfigurationEvent) context;
+            event.end();
+            if (event.shouldCommit()) {
+                event.format = format;
+                event.error = error.toString();
+                event.commit();
+            }
+        }
+    }
+
+    @Override
+    public void recorded(@NonNull Class<?> configuration, @NonNull String format, @NonNull Phase phase, long nanos, long bytes) {
+        // Recorded with the event started with the phase
+    }
+
+    @Override
+    public void failed(@NonNull Class<?> configuration, @NonNull String format, @NonNull Phase phase, @NonNull Throwable error) {
+        // Recorded with the event started with the phase
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate;
+
+import com.github.hexocraft.configurate.jfr.JfrMetrics;
+import com.github.hexocraft.configurate.yaml.YamlConfiguration;
+import io.leangen.geantyref.TypeToken;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.spongepowered.configurate.ConfigurateException;
+import org.spongepowered.configurate.objectmapping.ConfigSerializable;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+class JfrConfigurationTest {
+
+    private static final String EVENT = "com.github.hexocraft.configurate.Configuration";
+
+    public static File output = Paths.get("..", "target", "tmp", "jfr.yaml").toFile();
+    public static Path recordingFile = Paths.get("..", "target", "tmp", "configurate.jfr");
+
+    @ConfigSerializable
+    public static class JfrConfig extends YamlConfiguration<JfrConfig> {
+        public String host = "localhost";
+        public int port = 3306;
+
+        public JfrConfig(@NonNull File file) throws ConfigurateException {
+            super(TypeToken.get(JfrConfig.class), file);
+        }
+    }
+
+    @Test
+    public void EventsTest() {
+        Assertions.assertDoesNotThrow(() -> {
+            Files.createDirectories(recordingFile.getParent());
+            Files.deleteIfExists(output.toPath());
+
+            // Registered as a service, disabled without recording
+            Assertions.assertTrue(AbstractConfiguration.getServiceMetrics() instanceof JfrMetrics);
+            Assertions.assertFalse(AbstractConfiguration.getServiceMetrics().enabled());
+
+            // Metrics set by the application do not replace the events
+            HistogramMetrics histograms = new HistogramMetrics();
+            AbstractConfiguration.setMetrics(histograms);
+            try (Recording recording = new Recording()) {
+                recording.enable(EVENT);
+                recording.start();
+                Assertions.assertTrue(AbstractConfiguration.getServiceMetrics().enabled());
+
+                JfrConfig config = new JfrConfig(output);
+                config.save();
+                config.load();
+
+                recording.stop();
+                recording.dump(recordingFile);
+            } finally {
+                AbstractConfiguration.setMetrics(ConfigurationMetrics.NONE);
+            }
+            Assertions.assertEquals(output.length(), histograms.get(JfrConfig.class, ConfigurationMetrics.Phase.WRITE).bytes());
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile).stream()
+                    .filter(event -> event.getEventType().getName().equals(EVENT))
+                    .collect(Collectors.toList());
+            // Streaming loads bind while reading, so READ covers mapping
+            List<String> phases = events.stream().map(event -> event.getString("phase")).collect(Collectors.toList());
+            Assertions.assertTrue(phases.containsAll(Arrays.asList("CREATE", "READ", "SERIALIZE", "WRITE")), phases.toString());
+
+            RecordedEvent write = events.stream().filter(event -> event.getString("phase").equals("WRITE")).findFirst().get();
+            Assertions.assertEquals("Yaml", write.getString("format"));
+            Assertions.assertEquals(output.getPath(), write.getString("file"));
+            Assertions.assertEquals(output.length(), write.getLong("bytes"));
+            Assertions.assertEquals(JfrConfig.class.getName(), write.getClass("configurationClass").getName());
+            Assertions.assertFalse(write.getDuration().isNegative());
+        });
+    }
+}
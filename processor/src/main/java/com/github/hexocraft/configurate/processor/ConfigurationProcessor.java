@@ -0,0 +1,575 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Generates, for each {@code @ConfigSerializable} class, a subclass of
+ * {@code com.github.hexocraft.configurate.GeneratedConfiguration} holding the values of its
+ * configuration annotations and direct access to its mapped fields.
+ * <p>
+ * Fields are accessed without reflection when every mapped field, the empty constructor and the
+ * field types are accessible from the package of the class, and no field type depends on a type
+ * variable. Other classes only get their annotation values generated and are mapped by reflection.
+ * <p>
+ * A {@code reflect-config.json} listing the generated classes and the mapped fields is also
+ * written for native images, the field annotations being still read by reflection.
+ */
+@SupportedAnnotationTypes(ConfigurationProcessor.CONFIG_SERIALIZABLE)
+public final class ConfigurationProcessor extends AbstractProcessor {
+
+    static final String CONFIG_SERIALIZABLE = "org.spongepowered.configurate.objectmapping.ConfigSerializable";
+
+    /**
+     * Suffix of the generated classes, see {@code GeneratedConfiguration#SUFFIX}
+     */
+    static final String SUFFIX = "$$Configuration";
+
+    /**
+     * Package of the configuration annotations whose values are generated
+     */
+    private static final String ANNOTATIONS = "com.github.hexocraft.configurate.annotations.";
+
+    private static final String GENERATED = "com.github.hexocraft.configurate.GeneratedConfiguration";
+    private static final String TYPE_FACTORY = "io.leangen.geantyref.TypeFactory";
+    private static final String REFLECT_CONFIG = "META-INF/native-image/com.github.hexocraft/configurate/reflect-config.json";
+
+    /**
+     * Classes to register for reflection in native images, by binary name
+     */
+    private final Map<String, Reflection> reflection = new TreeMap<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : round.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() == ElementKind.CLASS) {
+                    generate((TypeElement) element);
+                }
+            }
+        }
+        if (round.processingOver() && !reflection.isEmpty()) {
+            writeReflectConfig();
+        }
+        return false;
+    }
+
+    /**
+     * Generate the code of a class
+     */
+    private void generate(TypeElement type) {
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        String name = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)) + SUFFIX;
+
+        if (!accessible(type, packageName)) {
+            note(type, "is private, it is mapped by reflection");
+            return;
+        }
+        if (!type.getTypeParameters().isEmpty()) {
+            note(type, "is generic, it is mapped by reflection");
+            return;
+        }
+
+        String qualifiedName = type.getQualifiedName().toString();
+        Mapping mapping = mapping(type, packageName);
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("/**\n")
+                .append(" * Generated by the configuration processor for {@link ").append(qualifiedName).append("}, do not edit.\n")
+                .append(" */\n")
+                .append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n")
+                .append("public final class ").append(name).append(" extends ").append(GENERATED).append('<').append(qualifiedName).append("> {\n\n");
+
+        if (mapping != null) {
+            source.append("    private static final MappedField[] FIELDS = {\n");
+            for (Field field : mapping.fields) {
+                source.append("            new MappedField(").append(field.declaringClass).append(".class, \"").append(field.name).append("\", ").append(field.type).append("),\n");
+            }
+            source.append("    };\n\n");
+        }
+
+        source.append("    public ").append(name).append("() {\n")
+                .append("        super(").append(qualifiedName).append(".class);\n")
+                .append("    }\n");
+
+        appendAnnotations(source, type);
+
+        if (mapping != null) {
+            appendMapping(source, qualifiedName, mapping);
+            for (Field field : mapping.fields) {
+                reflection(field.declaringBinaryName).fields.add(field.name);
+            }
+        } else {
+            reflection(binaryName).allFields = true;
+        }
+        reflection(packageName.isEmpty() ? name : packageName + "." + name).constructor = true;
+
+        source.append("}\n");
+
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(packageName.isEmpty() ? name : packageName + "." + name, type);
+            try (Writer writer = file.openWriter()) {
+                writer.write(source.toString());
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write " + name + ": " + e.getMessage(), type);
+        }
+    }
+
+    /**
+     * Append the values of the configuration annotations of a class
+     */
+    private void appendAnnotations(StringBuilder source, TypeElement type) {
+        List<String> annotated = new ArrayList<>();
+        StringBuilder values = new StringBuilder();
+        for (AnnotationMirror mirror : type.getAnnotationMirrors()) {
+            String annotation = ((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().toString();
+            if (!annotation.startsWith(ANNOTATIONS)) {
+                continue;
+            }
+            annotated.add(annotation);
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : processingEnv.getElementUtils().getElementValuesWithDefaults(mirror).entrySet()) {
+                values.append("            case \"").append(annotation).append('#').append(entry.getKey().getSimpleName()).append("\":\n")
+                        .append("                return ").append(literal(entry.getKey().getReturnType(), entry.getValue())).append(";\n");
+            }
+        }
+
+        source.append("\n    @Override\n")
+                .append("    protected boolean annotated(String annotation) {\n");
+        if (annotated.isEmpty()) {
+            source.append("        return false;\n");
+        } else {
+            source.append("        switch (annotation) {\n");
+            for (String annotation : annotated) {
+                source.append("            case \"").append(annotation).append("\":\n");
+            }
+            source.append("                return true;\n")
+                    .append("            default:\n")
+                    .append("                return false;\n")
+                    .append("        }\n");
+        }
+        source.append("    }\n");
+
+        source.append("\n    @Override\n")
+                .append("    protected Object value(String annotation, String member) {\n");
+        if (values.length() == 0) {
+            source.append("        return null;\n");
+        } else {
+            source.append("        switch (annotation + '#' + member) {\n")
+                    .append(values)
+                    .append("            default:\n")
+                    .append("                return null;\n")
+                    .append("        }\n");
+        }
+        source.append("    }\n");
+    }
+
+    /**
+     * Append the direct access to the mapped fields of a class
+     */
+    private static void appendMapping(StringBuilder source, String qualifiedName, Mapping mapping) {
+        source.append("\n    @Override\n")
+                .append("    protected MappedField[] fields() {\n")
+                .append("        return FIELDS;\n")
+                .append("    }\n");
+
+        if (mapping.create) {
+            source.append("\n    @Override\n")
+                    .append("    protected boolean canCreate() {\n")
+                    .append("        return true;\n")
+                    .append("    }\n")
+                    .append("\n    @Override\n")
+                    .append("    protected ").append(qualifiedName).append(" create() throws Exception {\n")
+                    .append("        return new ").append(qualifiedName).append("();\n")
+                    .append("    }\n");
+        }
+
+        source.append("\n    @Override\n")
+                .append("    protected Object get(").append(qualifiedName).append(" instance, int field) {\n")
+                .append("        switch (field) {\n");
+        for (int i = 0; i < mapping.fields.size(); i++) {
+            source.append("            case ").append(i).append(":\n")
+                    .append("                return ").append(mapping.fields.get(i).access).append(";\n");
+        }
+        source.append("            default:\n")
+                .append("                throw new IndexOutOfBoundsException(String.valueOf(field));\n")
+                .append("        }\n")
+                .append("    }\n");
+
+        source.append("\n    @Override\n")
+                .append("    protected void set(").append(qualifiedName).append(" instance, int field, Object value) {\n")
+                .append("        switch (field) {\n");
+        for (int i = 0; i < mapping.fields.size(); i++) {
+            Field field = mapping.fields.get(i);
+            source.append("            case ").append(i).append(":\n")
+                    .append("                ").append(field.access).append(" = (").append(field.cast).append(") value;\n")
+                    .append("                break;\n");
+        }
+        source.append("            default:\n")
+                .append("                throw new IndexOutOfBoundsException(String.valueOf(field));\n")
+                .append("        }\n")
+                .append("    }\n");
+    }
+
+    /**
+     * Read the mapped fields of a class, in the order of the reflective discovery
+     *
+     * @return Mapping, or null if the fields cannot be accessed by generated code
+     */
+    private Mapping mapping(TypeElement type, String packageName) {
+        Mapping mapping = new Mapping();
+        DeclaredType mapped = (DeclaredType) type.asType();
+
+        // Empty constructor, as found by reflection
+        boolean inner = type.getNestingKind().isNested() && !type.getModifiers().contains(Modifier.STATIC);
+        if (!type.getModifiers().contains(Modifier.ABSTRACT) && !inner) {
+            for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+                if (constructor.getParameters().isEmpty()) {
+                    if (constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                        note(type, "has a private constructor, it is mapped by reflection");
+                        return null;
+                    }
+                    mapping.create = true;
+                }
+            }
+        }
+
+        for (TypeElement current = type; current != null; current = superclass(current)) {
+            String declaringClass = current.getQualifiedName().toString();
+            boolean samePackage = processingEnv.getElementUtils().getPackageOf(current).getQualifiedName().contentEquals(packageName);
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                Set<Modifier> modifiers = field.getModifiers();
+                if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)) {
+                    continue;
+                }
+                if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.FINAL) || !samePackage && !modifiers.contains(Modifier.PUBLIC)) {
+                    note(type, "field " + field.getSimpleName() + " is not accessible, it is mapped by reflection");
+                    return null;
+                }
+
+                TypeMirror fieldType = processingEnv.getTypeUtils().asMemberOf(mapped, field);
+                String runtimeType = runtimeType(fieldType, packageName);
+                String cast = sourceType(fieldType.getKind().isPrimitive() ? processingEnv.getTypeUtils().boxedClass((PrimitiveType) fieldType).asType() : fieldType, packageName);
+                if (runtimeType == null || cast == null || !accessible(current, packageName)) {
+                    note(type, "field " + field.getSimpleName() + " has a type not accessible, it is mapped by reflection");
+                    return null;
+                }
+
+                Field mappedField = new Field();
+                mappedField.declaringClass = declaringClass;
+                mappedField.declaringBinaryName = processingEnv.getElementUtils().getBinaryName(current).toString();
+                mappedField.name = field.getSimpleName().toString();
+                mappedField.type = runtimeType;
+                mappedField.cast = cast;
+                mappedField.access = (current == type ? "instance" : "((" + declaringClass + ") instance)") + "." + mappedField.name;
+                mapping.fields.add(mappedField);
+            }
+        }
+        return mapping;
+    }
+
+    /**
+     * Gets the superclass of a class, or null if it is {@link Object}
+     */
+    private static TypeElement superclass(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        TypeElement element = (TypeElement) ((DeclaredType) superclass).asElement();
+        return element.getQualifiedName().contentEquals("java.lang.Object") ? null : element;
+    }
+
+    /**
+     * Gets whether a class can be referenced from a package
+     */
+    private boolean accessible(TypeElement type, String packageName) {
+        boolean samePackage = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().contentEquals(packageName);
+        for (Element current = type; current instanceof TypeElement; current = current.getEnclosingElement()) {
+            Set<Modifier> modifiers = current.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE) || !samePackage && !modifiers.contains(Modifier.PUBLIC)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the expression creating the {@code java.lang.reflect.Type} of a field
+     *
+     * @return Expression, or null if the type cannot be created by generated code
+     */
+    private String runtimeType(TypeMirror type, String packageName) {
+        switch (type.getKind()) {
+            case BOOLEAN:
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+            case CHAR:
+            case FLOAT:
+            case DOUBLE:
+                return type.getKind().name().toLowerCase() + ".class";
+            case ARRAY: {
+                TypeMirror component = ((ArrayType) type).getComponentType();
+                String raw = sourceType(processingEnv.getTypeUtils().erasure(type), packageName);
+                if (raw != null && (component.getKind() != TypeKind.DECLARED || ((DeclaredType) component).getTypeArguments().isEmpty())) {
+                    return raw + ".class";
+                }
+                String expression = runtimeType(component, packageName);
+                return expression == null ? null : TYPE_FACTORY + ".arrayOf(" + expression + ")";
+            }
+            case DECLARED: {
+                DeclaredType declared = (DeclaredType) type;
+                TypeElement element = (TypeElement) declared.asElement();
+                if (!accessible(element, packageName)) {
+                    return null;
+                }
+                if (declared.getTypeArguments().isEmpty()) {
+                    return element.getQualifiedName() + ".class";
+                }
+                if (declared.getEnclosingType().getKind() == TypeKind.DECLARED && !((DeclaredType) declared.getEnclosingType()).getTypeArguments().isEmpty()) {
+                    return null;
+                }
+                StringBuilder expression = new StringBuilder(TYPE_FACTORY).append(".parameterizedClass(").append(element.getQualifiedName()).append(".class");
+                for (TypeMirror argument : declared.getTypeArguments()) {
+                    String argumentType = runtimeType(argument, packageName);
+                    if (argumentType == null) {
+                        return null;
+                    }
+                    expression.append(", ").append(argumentType);
+                }
+                return expression.append(')').toString();
+            }
+            case WILDCARD: {
+                WildcardType wildcard = (WildcardType) type;
+                if (wildcard.getExtendsBound() != null) {
+                    String bound = runtimeType(wildcard.getExtendsBound(), packageName);
+                    return bound == null ? null : TYPE_FACTORY + ".wildcardExtends(" + bound + ")";
+                }
+                if (wildcard.getSuperBound() != null) {
+                    String bound = runtimeType(wildcard.getSuperBound(), packageName);
+                    return bound == null ? null : TYPE_FACTORY + ".wildcardSuper(" + bound + ")";
+                }
+                return TYPE_FACTORY + ".unboundWildcard()";
+            }
+            default:
+                // Type variables and unresolved types
+                return null;
+        }
+    }
+
+    /**
+     * Gets the source of a type, without its type annotations
+     *
+     * @return Source, or null if the type cannot be written in generated code
+     */
+    private String sourceType(TypeMirror type, String packageName) {
+        switch (type.getKind()) {
+            case BOOLEAN:
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+            case CHAR:
+            case FLOAT:
+            case DOUBLE:
+                return type.getKind().name().toLowerCase();
+            case ARRAY: {
+                String component = sourceType(((ArrayType) type).getComponentType(), packageName);
+                return component == null ? null : component + "[]";
+            }
+            case DECLARED: {
+                DeclaredType declared = (DeclaredType) type;
+                TypeElement element = (TypeElement) declared.asElement();
+                if (!accessible(element, packageName)) {
+                    return null;
+                }
+                StringBuilder source = new StringBuilder(element.getQualifiedName());
+                if (!declared.getTypeArguments().isEmpty()) {
+                    source.append('<');
+                    for (int i = 0; i < declared.getTypeArguments().size(); i++) {
+                        String argument = sourceType(declared.getTypeArguments().get(i), packageName);
+                        if (argument == null) {
+                            return null;
+                        }
+                        source.append(i == 0 ? "" : ", ").append(argument);
+                    }
+                    source.append('>');
+                }
+                return source.toString();
+            }
+            case WILDCARD: {
+                WildcardType wildcard = (WildcardType) type;
+                if (wildcard.getExtendsBound() != null) {
+                    String bound = sourceType(wildcard.getExtendsBound(), packageName);
+                    return bound == null ? null : "? extends " + bound;
+                }
+                if (wildcard.getSuperBound() != null) {
+                    String bound = sourceType(wildcard.getSuperBound(), packageName);
+                    return bound == null ? null : "? super " + bound;
+                }
+                return "?";
+            }
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Gets the literal of an annotation value
+     */
+    private String literal(TypeMirror type, AnnotationValue value) {
+        Object content = value.getValue();
+        if (content instanceof List) {
+            TypeMirror component = ((ArrayType) type).getComponentType();
+            StringBuilder literal = new StringBuilder("new ").append(processingEnv.getTypeUtils().erasure(component)).append("[] {");
+            List<?> values = (List<?>) content;
+            for (int i = 0; i < values.size(); i++) {
+                literal.append(i == 0 ? "" : ", ").append(literal(component, (AnnotationValue) values.get(i)));
+            }
+            return literal.append('}').toString();
+        }
+        if (content instanceof TypeMirror) {
+            return processingEnv.getTypeUtils().erasure((TypeMirror) content) + ".class";
+        }
+        if (content instanceof VariableElement) {
+            VariableElement constant = (VariableElement) content;
+            return ((TypeElement) constant.getEnclosingElement()).getQualifiedName() + "." + constant.getSimpleName();
+        }
+        if (content instanceof AnnotationMirror) {
+            // Nested annotations are read by reflection
+            return "null";
+        }
+        // Strings and primitives are written as Java literals
+        return value.toString();
+    }
+
+    private Reflection reflection(String binaryName) {
+        return reflection.computeIfAbsent(binaryName, name -> new Reflection());
+    }
+
+    /**
+     * Write the reflection configuration used by native images
+     */
+    private void writeReflectConfig() {
+        StringBuilder json = new StringBuilder("[\n");
+        int count = 0;
+        for (Map.Entry<String, Reflection> entry : reflection.entrySet()) {
+            Reflection registered = entry.getValue();
+            json.append(count++ == 0 ? "" : ",\n").append("  {\"name\": \"").append(entry.getKey()).append('"');
+            if (registered.allFields) {
+                json.append(", \"allDeclaredFields\": true, \"allDeclaredConstructors\": true");
+            }
+            if (registered.constructor) {
+                json.append(", \"methods\": [{\"name\": \"<init>\", \"parameterTypes\": []}]");
+            }
+            if (!registered.fields.isEmpty()) {
+                json.append(", \"fields\": [");
+                int field = 0;
+                for (String name : registered.fields) {
+                    json.append(field++ == 0 ? "" : ", ").append("{\"name\": \"").append(name).append("\"}");
+                }
+                json.append(']');
+            }
+            json.append('}');
+        }
+        json.append("\n]\n");
+
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", REFLECT_CONFIG);
+            try (Writer writer = file.openWriter()) {
+                writer.write(json.toString());
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write " + REFLECT_CONFIG + ": " + e.getMessage());
+        }
+    }
+
+    private void note(TypeElement type, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, type.getQualifiedName() + " " + message, type);
+    }
+
+    /**
+     * Mapped fields of a class
+     */
+    private static final class Mapping {
+        private final List<Field> fields = new ArrayList<>();
+        private boolean create;
+    }
+
+    /**
+     * Mapped field, as written in generated code
+     */
+    private static final class Field {
+        private String declaringClass;
+        private String declaringBinaryName;
+        private String name;
+        private String type;
+        private String cast;
+        private String access;
+    }
+
+    /**
+     * Reflection needed by a class in native images
+     */
+    private static final class Reflection {
+        private final Set<String> fields = new TreeSet<>();
+        private boolean allFields;
+        private boolean constructor;
+    }
+}
@@ -0,0 +1,240 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate;
+
+import com.github.hexocraft.configurate.annotations.Configuration;
+import com.github.hexocraft.configurate.annotations.ConfigurationYaml;
+import com.github.hexocraft.configurate.processor.ConfigurationProcessor;
+import com.github.hexocraft.configurate.yaml.YamlConfiguration;
+import io.leangen.geantyref.TypeToken;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.spongepowered.configurate.ConfigurationNode;
+import org.spongepowered.configurate.yaml.NodeStyle;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConfigurationProcessorTest {
+
+    public static Path classes = Paths.get("..", "target", "tmp", "processor");
+    public static File output = Paths.get("..", "target", "tmp", "generated.yaml").toFile();
+    public static File outputReflected = Paths.get("..", "target", "tmp", "reflected.yaml").toFile();
+
+    private static final String GENERATED_CONFIG = "" +
+            "package generated;\n" +
+            "\n" +
+            "import com.github.hexocraft.configurate.annotations.Configuration;\n" +
+            "import com.github.hexocraft.configurate.annotations.ConfigurationYaml;\n" +
+            "import com.github.hexocraft.configurate.yaml.YamlConfiguration;\n" +
+            "import org.spongepowered.configurate.ConfigurateException;\n" +
+            "import org.spongepowered.configurate.objectmapping.ConfigSerializable;\n" +
+            "import org.spongepowered.configurate.objectmapping.meta.Comment;\n" +
+            "import org.spongepowered.configurate.yaml.NodeStyle;\n" +
+            "\n" +
+            "import java.util.ArrayList;\n" +
+            "import java.util.List;\n" +
+            "\n" +
+            "@Configuration(clazz = GeneratedConfig.class, file = \"../target/tmp/generated.yaml\", header = \"Generated \\\"config\\\"\")\n" +
+            "@ConfigurationYaml(indent = 4, style = NodeStyle.BLOCK)\n" +
+            "@ConfigSerializable\n" +
+            "public class GeneratedConfig extends YamlConfiguration<GeneratedConfig> {\n" +
+            "\n" +
+            "    @Comment(\"Config version\")\n" +
+            "    public int version = 1;\n" +
+            "\n" +
+            "    @Comment(\"Database\")\n" +
+            "    public Database database = new Database();\n" +
+            "\n" +
+            "    public List<String> hosts = new ArrayList<>();\n" +
+            "\n" +
+            "    public GeneratedConfig() throws ConfigurateException {\n" +
+            "        super(null);\n" +
+            "    }\n" +
+            "\n" +
+            "    @ConfigSerializable\n" +
+            "    static class Database {\n" +
+            "        @Comment(\"Set the database to use\")\n" +
+            "        String host = \"localhost\";\n" +
+            "        int port = 3306;\n" +
+            "    }\n" +
+            "}\n";
+
+    private static final String REFLECTED_CONFIG = "" +
+            "package generated;\n" +
+            "\n" +
+            "import com.github.hexocraft.configurate.annotations.ConfigurationClass;\n" +
+            "import com.github.hexocraft.configurate.annotations.ConfigurationFile;\n" +
+            "import com.github.hexocraft.configurate.yaml.YamlConfiguration;\n" +
+            "import org.spongepowered.configurate.ConfigurateException;\n" +
+            "import org.spongepowered.configurate.objectmapping.ConfigSerializable;\n" +
+            "\n" +
+            "@ConfigurationClass(ReflectedConfig.class)\n" +
+            "@ConfigurationFile(\"../target/tmp/reflected.yaml\")\n" +
+            "@ConfigSerializable\n" +
+            "public class ReflectedConfig extends YamlConfiguration<ReflectedConfig> {\n" +
+            "\n" +
+            "    private String name = \"reflected\";\n" +
+            "\n" +
+            "    public ReflectedConfig() throws ConfigurateException {\n" +
+            "        super(null);\n" +
+            "    }\n" +
+            "}\n";
+
+    private static ClassLoader loader;
+
+    @BeforeAll
+    public static void compile() throws IOException {
+        if (Files.exists(classes)) {
+            try (Stream<Path> paths = Files.walk(classes)) {
+                paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        Files.createDirectories(classes);
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        List<String> options = Arrays.asList(
+                "-classpath", classpath(AbstractConfiguration.class, YamlConfiguration.class, ConfigurationNode.class, NodeStyle.class, TypeToken.class, NonNull.class),
+                "-d", classes.toString(),
+                "-s", classes.toString());
+        List<JavaFileObject> sources = Arrays.asList(source("generated.GeneratedConfig", GENERATED_CONFIG), source("generated.ReflectedConfig", REFLECTED_CONFIG));
+        JavaCompiler.CompilationTask task = compiler.getTask(null, null, null, options, null, sources);
+        task.setProcessors(Collections.singletonList(new ConfigurationProcessor()));
+        Assertions.assertTrue(task.call());
+
+        loader = new URLClassLoader(new URL[]{classes.toUri().toURL()}, ConfigurationProcessorTest.class.getClassLoader());
+    }
+
+    @Test
+    public void GeneratedClassesTest() {
+        Assertions.assertDoesNotThrow(() -> {
+            // Both classes get their annotations generated
+            Class<?> generated = loader.loadClass("generated.GeneratedConfig" + GeneratedConfiguration.SUFFIX);
+            Class<?> reflected = loader.loadClass("generated.ReflectedConfig" + GeneratedConfiguration.SUFFIX);
+            assertTrue(GeneratedConfiguration.class.isAssignableFrom(generated));
+            assertTrue(GeneratedConfiguration.class.isAssignableFrom(reflected));
+
+            // Only the class with accessible fields gets its mapping generated
+            generated.getDeclaredMethod("fields");
+            Assertions.assertThrows(NoSuchMethodException.class, () -> reflected.getDeclaredMethod("fields"));
+            loader.loadClass("generated.GeneratedConfig$Database" + GeneratedConfiguration.SUFFIX).getDeclaredMethod("fields");
+
+            // Native image configuration
+            String reflectConfig = new String(Files.readAllBytes(classes.resolve("META-INF/native-image/com.github.hexocraft/configurate/reflect-config.json")), StandardCharsets.UTF_8);
+            assertTrue(reflectConfig.contains("\"generated.GeneratedConfig$$Configuration\""));
+            assertTrue(reflectConfig.contains("{\"name\": \"generated.ReflectedConfig\", \"allDeclaredFields\": true"));
+        });
+    }
+
+    @Test
+    public void GeneratedAnnotationsTest() {
+        Assertions.assertDoesNotThrow(() -> {
+            ClassAnnotations annotations = ClassAnnotations.of(loader.loadClass("generated.GeneratedConfig"));
+
+            assertTrue(annotations.has(Configuration.class));
+            assertTrue(annotations.has(ConfigurationYaml.class));
+            assertEquals(loader.loadClass("generated.GeneratedConfig"), annotations.value(Configuration.class, "clazz"));
+            assertEquals("../target/tmp/generated.yaml", annotations.value(Configuration.class, "file"));
+            assertEquals("Generated \"config\"", annotations.value(Configuration.class, "header"));
+            assertEquals(4, (int) annotations.value(ConfigurationYaml.class, "indent"));
+            assertEquals(NodeStyle.BLOCK, annotations.value(ConfigurationYaml.class, "style"));
+        });
+    }
+
+    @Test
+    public void GeneratedMappingTest() {
+        Assertions.assertDoesNotThrow(() -> {
+            Files.deleteIfExists(output.toPath());
+
+            // Save with generated code
+            AbstractConfiguration<?, ?> config = (AbstractConfiguration<?, ?>) loader.loadClass("generated.GeneratedConfig").getConstructor().newInstance();
+            config.save();
+            String content = new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8);
+            assertTrue(content.startsWith("# Generated \"config\""));
+            assertTrue(content.contains("database:\n    host: localhost\n    port: 3306\n"));
+
+            // Load with generated code
+            Files.write(output.toPath(), content.replace("version: 1", "version: 2").replace("port: 3306", "port: 5432").getBytes(StandardCharsets.UTF_8));
+            Object loaded = config.load();
+            assertEquals(2, loaded.getClass().getField("version").get(loaded));
+            Object database = loaded.getClass().getField("database").get(loaded);
+            java.lang.reflect.Field port = database.getClass().getDeclaredField("port");
+            port.setAccessible(true);
+            assertEquals(5432, port.get(database));
+        });
+    }
+
+    @Test
+    public void ReflectedMappingTest() {
+        Assertions.assertDoesNotThrow(() -> {
+            Files.deleteIfExists(outputReflected.toPath());
+
+            AbstractConfiguration<?, ?> config = (AbstractConfiguration<?, ?>) loader.loadClass("generated.ReflectedConfig").getConstructor().newInstance();
+            config.save();
+            String content = new String(Files.readAllBytes(outputReflected.toPath()), StandardCharsets.UTF_8);
+            assertEquals("name: reflected\n", content);
+
+            Files.write(outputReflected.toPath(), "name: changed\n".getBytes(StandardCharsets.UTF_8));
+            Object loaded = config.load();
+            java.lang.reflect.Field name = loaded.getClass().getDeclaredField("name");
+            name.setAccessible(true);
+            assertEquals("changed", name.get(loaded));
+        });
+    }
+
+    private static String classpath(Class<?>... classes) {
+        return Stream.of(classes).map(clazz -> {
+            try {
+                return Paths.get(clazz.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+            } catch (URISyntaxException e) {
+                throw new IllegalStateException(e);
+            }
+        }).distinct().collect(Collectors.joining(File.pathSeparator));
+    }
+
+    private static JavaFileObject source(String name, String content) {
+        return new SimpleJavaFileObject(URI.create("string:///" + name.replace('.', '/') + JavaFileObject.Kind.SOURCE.extension), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return content;
+            }
+        };
+    }
+}
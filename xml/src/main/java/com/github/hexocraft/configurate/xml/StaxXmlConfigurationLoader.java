@@ -0,0 +1,536 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate.xml;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.spongepowered.configurate.AttributedConfigurationNode;
+import org.spongepowered.configurate.CommentedConfigurationNodeIntermediary;
+import org.spongepowered.configurate.ConfigurateException;
+import org.spongepowered.configurate.ConfigurationNode;
+import org.spongepowered.configurate.ConfigurationOptions;
+import org.spongepowered.configurate.loader.AbstractConfigurationLoader;
+import org.spongepowered.configurate.loader.CommentHandler;
+import org.spongepowered.configurate.loader.CommentHandlers;
+import org.spongepowered.configurate.loader.ParsingException;
+
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * XML loader reading and writing the format of {@link org.spongepowered.configurate.xml.XmlConfigurationLoader}
+ * with the StAX API.
+ * <p>
+ * Files are read straight into the node tree and nodes are written as they are visited, no DOM
+ * document is built. A map is written as one element per entry. A list is written as one element
+ * per item, marked with a {@code configurate-type} attribute, and elements holding several
+ * children with the same tag name are read as a list.
+ */
+final class StaxXmlConfigurationLoader extends AbstractConfigurationLoader<AttributedConfigurationNode> {
+
+    private static final Set<Class<?>> NATIVE_TYPES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            Double.class, Long.class, Integer.class, Boolean.class, String.class, Number.class)));
+
+    private static final String ATTRIBUTE_TYPE = "configurate-type";
+
+    private static final XMLInputFactory INPUT = XMLInputFactory.newFactory();
+    private static final XMLOutputFactory OUTPUT = XMLOutputFactory.newFactory();
+
+    static {
+        // Same restrictions as the DOM loader: no external content, names are read as written
+        INPUT.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        INPUT.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        INPUT.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+    }
+
+    private final String defaultTagName;
+    private final int indent;
+    private final boolean includeXmlDeclaration;
+
+    /**
+     * Line separator followed by spaces, sliced to write the indentation of each line
+     */
+    private volatile char[] whitespace = new char[0];
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    private StaxXmlConfigurationLoader(Builder builder) {
+        super(builder, new CommentHandler[]{CommentHandlers.XML_STYLE});
+        this.defaultTagName = builder.defaultTagName;
+        this.indent = builder.indent;
+        this.includeXmlDeclaration = builder.includeXmlDeclaration;
+    }
+
+    @Override
+    public AttributedConfigurationNode createNode(ConfigurationOptions options) {
+        return AttributedConfigurationNode.root("root", options.nativeTypes(NATIVE_TYPES));
+    }
+
+    @Override
+    public AttributedConfigurationNode load(ConfigurationOptions options) throws ParsingException {
+        if (source == null) {
+            throw new ParsingException(-1, -1, "", "No source present to read from!", null);
+        }
+
+        try (BufferedReader reader = source.call()) {
+            XMLStreamReader xml = INPUT.createXMLStreamReader(reader);
+            try {
+                while (xml.hasNext()) {
+                    int event = xml.next();
+                    if (event == XMLStreamConstants.COMMENT) {
+                        options = options.header(unwrapHeader(xml.getText().trim()));
+                    } else if (event == XMLStreamConstants.START_ELEMENT) {
+                        AttributedConfigurationNode node = createNode(options);
+                        readElement(xml, node);
+                        return node;
+                    }
+                }
+            } finally {
+                xml.close();
+            }
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            // Nothing to load
+        } catch (XMLStreamException e) {
+            Location location = e.getLocation();
+            throw location != null
+                    ? new ParsingException(location.getLineNumber(), location.getColumnNumber(), "", e.getMessage(), e)
+                    : new ParsingException(-1, -1, "", e.getMessage(), e);
+        } catch (ParsingException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ParsingException(-1, -1, "", null, e);
+        }
+        return createNode(options);
+    }
+
+    @Override
+    protected void loadInternal(AttributedConfigurationNode node, BufferedReader reader) {
+        throw new UnsupportedOperationException("StaxXmlConfigurationLoader provides custom loading logic to handle headers");
+    }
+
+    /**
+     * Remove the comment prefixes from the lines of the header
+     */
+    private static String unwrapHeader(String header) {
+        if (header.isEmpty()) {
+            return header;
+        }
+        return CONFIGURATE_LINE_PATTERN.splitAsStream(header)
+                .map(line -> {
+                    line = line.trim();
+                    if (line.startsWith("~")) {
+                        line = line.substring(line.indexOf('~') + 1);
+                    }
+                    return line.length() > 0 && line.charAt(0) == ' ' ? line.substring(1) : line;
+                })
+                .filter(line -> !line.isEmpty())
+                .collect(Collectors.joining("\n"));
+    }
+
+    /**
+     * Read an element, the reader being positioned on its start
+     *
+     * @param xml Reader
+     * @param to  Node to populate
+     * @throws XMLStreamException if the file cannot be read
+     */
+    private void readElement(XMLStreamReader xml, AttributedConfigurationNode to) throws XMLStreamException {
+        to.tagName(name(xml));
+
+        // Type of the element, null until known
+        Boolean list = null;
+        boolean explicit = false;
+        for (int i = 0; i < xml.getAttributeCount(); i++) {
+            String prefix = xml.getAttributePrefix(i);
+            String key = prefix == null || prefix.isEmpty() ? xml.getAttributeLocalName(i) : prefix + ':' + xml.getAttributeLocalName(i);
+            String value = xml.getAttributeValue(i);
+            if (ATTRIBUTE_TYPE.equals(key)) {
+                if ("map".equals(value)) {
+                    list = false;
+                    explicit = true;
+                } else if ("list".equals(value)) {
+                    list = true;
+                    explicit = true;
+                }
+            } else {
+                to.addAttribute(key, value);
+            }
+        }
+
+        String text = "";
+        StringBuilder comment = null;
+        boolean children = false;
+        boolean mixed = false;
+        String firstName = null;
+
+        while (true) {
+            switch (xml.next()) {
+                case XMLStreamConstants.START_ELEMENT: {
+                    String name = name(xml);
+                    if (!children) {
+                        children = true;
+                        firstName = name;
+                    }
+
+                    AttributedConfigurationNode child;
+                    if (Boolean.TRUE.equals(list)) {
+                        mixed |= !name.equals(firstName);
+                        child = to.appendListNode();
+                    } else {
+                        child = to.node(name);
+                        if (!child.virtual()) {
+                            if (explicit) {
+                                // Maps keep the first element of each name
+                                skipElement(xml);
+                                if (comment != null) {
+                                    comment.setLength(0);
+                                }
+                                break;
+                            }
+                            // Several children with the same name, the element is a list
+                            List<AttributedConfigurationNode> previous = new ArrayList<>();
+                            for (AttributedConfigurationNode node : to.childrenMap().values()) {
+                                previous.add(node.copy());
+                            }
+                            to.raw(Collections.emptyList());
+                            for (AttributedConfigurationNode node : previous) {
+                                to.appendListNode().from(node);
+                            }
+                            mixed = previous.size() > 1;
+                            list = true;
+                            child = to.appendListNode();
+                        }
+                    }
+
+                    if (comment != null && comment.length() > 0) {
+                        child.comment(comment.toString());
+                        comment.setLength(0);
+                    }
+                    readElement(xml, child);
+                    break;
+                }
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    if (!children) {
+                        text = text.isEmpty() ? xml.getText() : text + xml.getText();
+                    }
+                    break;
+                case XMLStreamConstants.COMMENT:
+                    if (comment == null) {
+                        comment = new StringBuilder();
+                    } else if (comment.length() > 0) {
+                        comment.append('\n');
+                    }
+                    comment.append(xml.getText().trim());
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    if (!children) {
+                        to.raw(parseValue(text));
+                    } else if (mixed) {
+                        group(to);
+                    }
+                    return;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Order the items of a list by tag name, in order of first appearance, as the DOM loader does
+     */
+    private static void group(AttributedConfigurationNode list) {
+        Map<String, List<AttributedConfigurationNode>> groups = new LinkedHashMap<>();
+        for (AttributedConfigurationNode item : list.childrenList()) {
+            groups.computeIfAbsent(item.tagName(), name -> new ArrayList<>()).add(item.copy());
+        }
+        list.raw(Collections.emptyList());
+        for (List<AttributedConfigurationNode> group : groups.values()) {
+            for (AttributedConfigurationNode item : group) {
+                list.appendListNode().from(item);
+            }
+        }
+    }
+
+    /**
+     * Skip an element, the reader being positioned on its start
+     */
+    private static void skipElement(XMLStreamReader xml) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Gets the name of the current element, with its prefix
+     */
+    private static String name(XMLStreamReader xml) {
+        String prefix = xml.getPrefix();
+        return prefix == null || prefix.isEmpty() ? xml.getLocalName() : prefix + ':' + xml.getLocalName();
+    }
+
+    /**
+     * Parse a scalar as the DOM loader does: a boolean, an integer, a long, a double or else a string
+     */
+    private static Object parseValue(String value) {
+        if (value.equals("true") || value.equals("false")) {
+            return Boolean.parseBoolean(value);
+        }
+        if (!numeric(value)) {
+            return value;
+        }
+        try {
+            double number = Double.parseDouble(value);
+            if (!Double.isNaN(number) && Double.isFinite(number) && number == Math.rint(number)) {
+                long whole = Long.parseLong(value);
+                return (int) whole == whole ? (Object) (int) whole : (Object) whole;
+            }
+            return number;
+        } catch (NumberFormatException e) {
+            return value;
+        }
+    }
+
+    /**
+     * Gets whether a value may be parsed as a number, to avoid throwing exceptions for most strings
+     */
+    private static boolean numeric(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c > ' ') {
+                return (c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'N' || c == 'I';
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected void writeHeaderInternal(Writer writer) throws IOException {
+        if (includeXmlDeclaration) {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+            writer.write(SYSTEM_LINE_SEPARATOR);
+        }
+    }
+
+    @Override
+    protected void saveInternal(ConfigurationNode node, Writer writer) throws ConfigurateException {
+        try {
+            XMLStreamWriter xml = OUTPUT.createXMLStreamWriter(writer);
+            String comment = comment(node);
+            if (comment != null) {
+                // Written on the line of the root element, as the DOM loader does
+                xml.writeComment(comment);
+            }
+            writeNode(xml, node, null, 0);
+            newline(xml, 0);
+            xml.flush();
+        } catch (XMLStreamException e) {
+            throw new ConfigurateException(node, e);
+        }
+    }
+
+    /**
+     * Write a node and its children
+     *
+     * @param xml   Writer
+     * @param node  Node to write
+     * @param key   Tag name of map entries, null to use the tag name of the node
+     * @param depth Depth of the node
+     * @throws XMLStreamException if the node cannot be written
+     */
+    private void writeNode(XMLStreamWriter xml, ConfigurationNode node, @Nullable String key, int depth) throws XMLStreamException {
+        String tagName = defaultTagName;
+        Map<String, String> attributes = Collections.emptyMap();
+        if (node instanceof AttributedConfigurationNode) {
+            tagName = ((AttributedConfigurationNode) node).tagName();
+            attributes = ((AttributedConfigurationNode) node).attributes();
+        }
+        String name = key != null ? key : tagName;
+
+        if (node.isMap() || node.isList()) {
+            boolean empty = node.isMap() ? node.childrenMap().isEmpty() : node.childrenList().isEmpty();
+            if (empty) {
+                xml.writeEmptyElement(name);
+            } else {
+                xml.writeStartElement(name);
+            }
+            writeAttributes(xml, attributes, node.isList());
+            if (empty) {
+                return;
+            }
+
+            if (node.isMap()) {
+                for (Map.Entry<Object, ? extends ConfigurationNode> entry : node.childrenMap().entrySet()) {
+                    writeChild(xml, entry.getValue(), entry.getKey().toString(), depth + 1);
+                }
+            } else {
+                for (ConfigurationNode child : node.childrenList()) {
+                    writeChild(xml, child, null, depth + 1);
+                }
+            }
+            newline(xml, depth);
+            xml.writeEndElement();
+        } else {
+            String value = Objects.toString(node.rawScalar());
+            if (value.isEmpty()) {
+                xml.writeEmptyElement(name);
+                writeAttributes(xml, attributes, false);
+            } else {
+                xml.writeStartElement(name);
+                writeAttributes(xml, attributes, false);
+                xml.writeCharacters(value);
+                xml.writeEndElement();
+            }
+        }
+    }
+
+    /**
+     * Write a child on its own line, after its comment
+     */
+    private void writeChild(XMLStreamWriter xml, ConfigurationNode child, @Nullable String key, int depth) throws XMLStreamException {
+        newline(xml, depth);
+        String comment = comment(child);
+        if (comment != null) {
+            xml.writeComment(comment);
+            newline(xml, depth);
+        }
+        writeNode(xml, child, key, depth);
+    }
+
+    /**
+     * Write the attributes of an element, sorted by name as the DOM loader does
+     */
+    private static void writeAttributes(XMLStreamWriter xml, Map<String, String> attributes, boolean list) throws XMLStreamException {
+        if (attributes.isEmpty() && !list) {
+            return;
+        }
+        Map<String, String> sorted = new TreeMap<>(attributes);
+        if (list) {
+            sorted.put(ATTRIBUTE_TYPE, "list");
+        }
+        for (Map.Entry<String, String> attribute : sorted.entrySet()) {
+            xml.writeAttribute(attribute.getKey(), attribute.getValue());
+        }
+    }
+
+    /**
+     * Gets the comment of a node, as written in the file
+     */
+    private static @Nullable String comment(ConfigurationNode node) {
+        if (node instanceof CommentedConfigurationNodeIntermediary) {
+            String comment = ((CommentedConfigurationNodeIntermediary<?>) node).comment();
+            if (comment != null) {
+                return " " + comment.trim() + " ";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Write a line separator followed by the indentation of a depth
+     */
+    private void newline(XMLStreamWriter xml, int depth) throws XMLStreamException {
+        int length = SYSTEM_LINE_SEPARATOR.length() + depth * indent;
+        char[] current = whitespace;
+        if (current.length < length) {
+            current = new char[Math.max(length, current.length * 2)];
+            Arrays.fill(current, ' ');
+            SYSTEM_LINE_SEPARATOR.getChars(0, SYSTEM_LINE_SEPARATOR.length(), current, 0);
+            whitespace = current;
+        }
+        xml.writeCharacters(current, 0, length);
+    }
+
+    /**
+     * Builder of {@link StaxXmlConfigurationLoader}
+     */
+    static final class Builder extends AbstractConfigurationLoader.Builder<Builder, StaxXmlConfigurationLoader> {
+        private String defaultTagName = "element";
+        private int indent = 2;
+        private boolean includeXmlDeclaration = true;
+
+        private Builder() {
+        }
+
+        /**
+         * Set the tag name of nodes without one
+         *
+         * @param defaultTagName Tag name
+         * @return this
+         */
+        Builder defaultTagName(String defaultTagName) {
+            this.defaultTagName = defaultTagName;
+            return this;
+        }
+
+        /**
+         * Set the number of spaces used to indent each level
+         *
+         * @param indent Indentation size
+         * @return this
+         */
+        Builder indent(int indent) {
+            this.indent = indent;
+            return this;
+        }
+
+        /**
+         * Set whether the XML declaration is written
+         *
+         * @param includeXmlDeclaration true to write the declaration
+         * @return this
+         */
+        Builder includesXmlDeclaration(boolean includeXmlDeclaration) {
+            this.includeXmlDeclaration = includeXmlDeclaration;
+            return this;
+        }
+
+        @Override
+        public StaxXmlConfigurationLoader build() {
+            return new StaxXmlConfigurationLoader(this);
+        }
+    }
+}
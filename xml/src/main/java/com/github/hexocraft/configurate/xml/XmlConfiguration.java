@@ -18,6 +18,7 @@
 package com.github.hexocraft.configurate.xml;
 
 import com.github.hexocraft.configurate.AbstractConfiguration;
+import com.github.hexocraft.configurate.ClassAnnotations;
 import com.github.hexocraft.configurate.annotations.Configuration;
 import com.github.hexocraft.configurate.annotations.ConfigurationXml;
 import io.leangen.geantyref.TypeToken;
@@ -28,12 +29,21 @@ import org.spongepowered.configurate.ConfigurationNode;
 import org.spongepowered.configurate.ConfigurationOptions;
 import org.spongepowered.configurate.loader.ConfigurationLoader;
 import org.spongepowered.configurate.loader.HeaderMode;
-import org.spongepowered.configurate.xml.XmlConfigurationLoader;
 
 import java.io.File;
 
 public abstract class XmlConfiguration<C extends AbstractConfiguration<?, ?>> extends AbstractConfiguration<C, CommentedConfigurationNode> {
 
+    /**
+     * XML settings by configuration class, read once from annotations
+     */
+    private static final ClassValue<Settings> SETTINGS = new ClassValue<Settings>() {
+        @Override
+        protected Settings computeValue(Class<?> type) {
+            return new Settings(type);
+        }
+    };
+
     /**
      * Create an HoconConfiguration object which can load and save.
      *
@@ -91,7 +101,7 @@ public abstract class XmlConfiguration<C extends AbstractConfiguration<?, ?>> ex
     }
 
     /**
-     * Create HOCON configuration loader
+     * Create XML configuration loader, reading and writing files with StAX
      *
      * @param file       The configuration file
      * @param options    Configuration options
@@ -99,46 +109,44 @@ public abstract class XmlConfiguration<C extends AbstractConfiguration<?, ?>> ex
      * @return ConfigurationLoader
      */
     protected ConfigurationLoader<? extends ConfigurationNode> createLoader(File file, ConfigurationOptions options, HeaderMode headerMode) {
-        XmlConfigurationLoader.Builder builder = XmlConfigurationLoader.builder();
-        if (file != null) builder.file(file);
+        StaxXmlConfigurationLoader.Builder builder = StaxXmlConfigurationLoader.builder();
+        if (file != null) builder.file(file).source(createSource(file)).sink(createSink(file));
         if (options != null) builder.defaultOptions(options);
         if (headerMode != null) builder.headerMode(headerMode);
         builder.includesXmlDeclaration(true);
-        builder.indent(getAnnotatedIndent());
-        builder.defaultTagName(getAnnotatedTagName());
+        Settings settings = SETTINGS.get(this.getClass());
+        builder.indent(settings.indent);
+        builder.defaultTagName(settings.tagName);
         return builder.build();
     }
 
     /**
-     * Gets default indentation size from annotation
-     *
-     * @return Indentation size
+     * XML settings defined by {@link ConfigurationXml} or {@link Configuration} annotations
      */
-    private int getAnnotatedIndent() {
-        try {
-            return this.getClass().getAnnotation(ConfigurationXml.class).indent();
-        } catch (NullPointerException e) {
-            try {
-                return this.getClass().getAnnotation(Configuration.class).indent();
-            } catch (NullPointerException ignored) {
-                return 2;
-            }
-        }
-    }
+    private static final class Settings {
 
-    /**
-     * Gets default tag name from annotation
-     *
-     * @return Tag name
-     */
-    private String getAnnotatedTagName() {
-        try {
-            return this.getClass().getAnnotation(ConfigurationXml.class).tagName();
-        } catch (NullPointerException e) {
-            try {
-                return this.getClass().getAnnotation(Configuration.class).tagName();
-            } catch (NullPointerException ignored) {
-                return "configuration";
+        /**
+         * Default indentation size
+         */
+        private final int indent;
+
+        /**
+         * Default tag name
+         */
+        private final String tagName;
+
+        private Settings(Class<?> clazz) {
+            ClassAnnotations annotations = ClassAnnotations.of(clazz);
+
+            if (annotations.has(ConfigurationXml.class)) {
+                this.indent = annotations.value(ConfigurationXml.class, "indent");
+                this.tagName = annotations.value(ConfigurationXml.class, "tagName");
+            } else if (annotations.has(Configuration.class)) {
+                this.indent = annotations.value(Configuration.class, "indent");
+                this.tagName = annotations.value(Configuration.class, "tagName");
+            } else {
+                this.indent = 2;
+                this.tagName = "configuration";
             }
         }
     }
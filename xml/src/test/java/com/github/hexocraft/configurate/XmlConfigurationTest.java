@@ -17,6 +17,8 @@
 
 package com.github.hexocraft.configurate;
 
+import org.spongepowered.configurate.AttributedConfigurationNode;
+import org.spongepowered.configurate.xml.XmlConfigurationLoader;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -24,8 +26,10 @@ import org.junit.jupiter.api.Test;
 import java.awt.*;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.Arrays;
 
 
 class XmlConfigurationTest {
@@ -161,4 +165,76 @@ class XmlConfigurationTest {
         });
     }
 
+    @Test
+    public void CacheTest() {
+        Assertions.assertDoesNotThrow(() -> {
+            // Delete config and cache files
+            Files.deleteIfExists(output.toPath());
+            Files.deleteIfExists(BinaryCache.file(output));
+
+            XmlBaseConfig config = new XmlBaseConfig(output);
+            config.getDatabase().host = "cached";
+            config.save();
+
+            // The first load writes the cache file
+            XmlBaseConfig parsed = new XmlBaseConfig(output);
+            parsed.setCached(true);
+            parsed = parsed.load();
+            Assertions.assertTrue(Files.exists(BinaryCache.file(output)));
+
+            // The next load reads the same node tree from the cache file
+            XmlBaseConfig cached = new XmlBaseConfig(output);
+            cached.setCached(true);
+            cached = cached.load();
+            Assertions.assertEquals(parsed.getRoot(), cached.getRoot());
+            Assertions.assertEquals("cached", cached.getDatabase().host);
+
+            // A file changed with the same size and modification time is parsed again
+            long modified = output.lastModified();
+            String content = new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8);
+            Files.write(output.toPath(), content.replace("cached", "parsed").getBytes(StandardCharsets.UTF_8));
+            Assertions.assertTrue(output.setLastModified(modified));
+            cached = new XmlBaseConfig(output);
+            cached.setCached(true);
+            Assertions.assertEquals("parsed", cached.load().getDatabase().host);
+        });
+    }
+
+    @Test
+    public void DomCompatibilityTest() {
+        Assertions.assertDoesNotThrow(() -> {
+            // Delete config files
+            Files.deleteIfExists(output.toPath());
+            Files.deleteIfExists(outputCopy.toPath());
+
+            XmlBaseConfig config = new XmlBaseConfig(output);
+            config.getDatabase().host = "stax";
+            config.save();
+
+            // Files written with StAX are read the same way by the DOM loader
+            XmlConfigurationLoader dom = XmlConfigurationLoader.builder().file(output).build();
+            AttributedConfigurationNode node = dom.load();
+            Assertions.assertEquals(new XmlBaseConfig(output).load().getRoot(), node);
+
+            // Files written by the DOM loader are read the same way with StAX
+            node.node("database").addAttribute("type", "sql");
+            node.node("servers").raw(Arrays.asList("alpha", "beta"));
+            node.node("servers", 1).comment("Second server");
+            dom.save(node);
+            XmlBaseConfig loaded = new XmlBaseConfig(output).load();
+            Assertions.assertEquals(dom.load(), loaded.getRoot());
+            Assertions.assertEquals("stax", loaded.getDatabase().host);
+
+            // Both loaders write the same file
+            loaded.getDatabase().port = 3307;
+            loaded.save();
+            node = dom.load();
+            Assertions.assertEquals(3307, node.node("database", "port").getInt());
+            Assertions.assertEquals("beta", node.node("servers", 1).getString());
+            XmlConfigurationLoader.builder().file(outputCopy).build().save(node);
+            Assertions.assertEquals(new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8),
+                    new String(Files.readAllBytes(outputCopy.toPath()), StandardCharsets.UTF_8));
+        });
+    }
+
 }
\ No newline at end of file
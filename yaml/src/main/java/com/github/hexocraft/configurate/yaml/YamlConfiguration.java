@@ -19,9 +19,12 @@ package com.github.hexocraft.configurate.yaml;
 
 
 import com.github.hexocraft.configurate.AbstractConfiguration;
+import com.github.hexocraft.configurate.ClassAnnotations;
+import com.github.hexocraft.configurate.StreamingReader;
 import com.github.hexocraft.configurate.annotations.Configuration;
 import com.github.hexocraft.configurate.annotations.ConfigurationYaml;
 import io.leangen.geantyref.TypeToken;
+import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.spongepowered.configurate.CommentedConfigurationNode;
 import org.spongepowered.configurate.ConfigurateException;
@@ -33,9 +36,20 @@ import org.spongepowered.configurate.yaml.NodeStyle;
 import org.spongepowered.configurate.yaml.YamlConfigurationLoader;
 
 import java.io.File;
+import java.io.IOException;
 
 public abstract class YamlConfiguration<C extends AbstractConfiguration<?, ?>> extends AbstractConfiguration<C, CommentedConfigurationNode> {
 
+    /**
+     * YAML settings by configuration class, read once from annotations
+     */
+    private static final ClassValue<Settings> SETTINGS = new ClassValue<Settings>() {
+        @Override
+        protected Settings computeValue(Class<?> type) {
+            return new Settings(type);
+        }
+    };
+
     /**
      * Create an HoconConfiguration object which can load and save.
      *
@@ -102,45 +116,55 @@ public abstract class YamlConfiguration<C extends AbstractConfiguration<?, ?>> e
      */
     protected ConfigurationLoader<? extends ConfigurationNode> createLoader(File file, ConfigurationOptions options, HeaderMode headerMode) {
         YamlConfigurationLoader.Builder builder = YamlConfigurationLoader.builder();
-        if (file != null) builder.file(file);
+        if (file != null) builder.file(file).source(createSource(file)).sink(createSink(file));
         if (options != null) builder.defaultOptions(options);
         if (headerMode != null) builder.headerMode(headerMode);
-        builder.indent(getAnnotatedIndent());
-        builder.nodeStyle(getAnnotatedStyle());
+        Settings settings = SETTINGS.get(this.getClass());
+        builder.indent(settings.indent);
+        builder.nodeStyle(settings.style);
         return builder.build();
     }
 
     /**
-     * Gets default indentation size from annotation
-     *
-     * @return Indentation size
+     * YAML settings defined by {@link ConfigurationYaml} or {@link Configuration} annotations
      */
-    private int getAnnotatedIndent() {
-        try {
-            return this.getClass().getAnnotation(ConfigurationYaml.class).indent();
-        } catch (NullPointerException e) {
-            try {
-                return this.getClass().getAnnotation(Configuration.class).indent();
-            } catch (NullPointerException ignored) {
-                return 2;
+    private static final class Settings {
+
+        /**
+         * Default indentation size
+         */
+        private final int indent;
+
+        /**
+         * Default flow style
+         */
+        private final NodeStyle style;
+
+        private Settings(Class<?> clazz) {
+            ClassAnnotations annotations = ClassAnnotations.of(clazz);
+
+            if (annotations.has(ConfigurationYaml.class)) {
+                this.indent = annotations.value(ConfigurationYaml.class, "indent");
+                this.style = annotations.value(ConfigurationYaml.class, "style");
+            } else if (annotations.has(Configuration.class)) {
+                this.indent = annotations.value(Configuration.class, "indent");
+                this.style = annotations.value(Configuration.class, "style");
+            } else {
+                this.indent = 2;
+                this.style = NodeStyle.BLOCK;
             }
         }
     }
 
     /**
-     * Gets default flow style from annotation
+     * Create a reader binding YAML values while the file is read, without building the node tree.
      *
-     * @return Flow style
+     * @param file The configuration file
+     * @return StreamingReader
+     * @throws IOException if the file cannot be opened
      */
-    private NodeStyle getAnnotatedStyle() {
-        try {
-            return this.getClass().getAnnotation(ConfigurationYaml.class).style();
-        } catch (NullPointerException e) {
-            try {
-                return this.getClass().getAnnotation(Configuration.class).style();
-            } catch (NullPointerException ignored) {
-                return NodeStyle.BLOCK;
-            }
-        }
+    @Override
+    protected StreamingReader createReader(@NonNull File file) throws IOException {
+        return new YamlStreamingReader(file, openSource(file));
     }
 }
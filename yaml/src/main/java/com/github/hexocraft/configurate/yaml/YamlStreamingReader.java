@@ -0,0 +1,407 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate.yaml;
+
+import com.github.hexocraft.configurate.StreamingReader;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+import org.yaml.snakeyaml.error.Mark;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.ScalarNode;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.parser.Parser;
+import org.yaml.snakeyaml.parser.ParserImpl;
+import org.yaml.snakeyaml.reader.StreamReader;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+import java.io.File;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * {@link StreamingReader} of YAML files, backed by the SnakeYAML event API.
+ * <p>
+ * Scalars are resolved and constructed as SnakeYAML does when building a document, without
+ * keeping the document. Skipped values are not constructed at all. Anchors and aliases cannot
+ * be streamed.
+ * <p>
+ * Readers of files also give the {@link Section sections} of {@link com.github.hexocraft.configurate.Lazy}
+ * values: the byte offset of each section is found from positions recorded while the file is
+ * read, and the text of the section is copied from the file without being parsed. It is only
+ * parsed when used, so that later changes to the file do not affect it.
+ */
+final class YamlStreamingReader implements StreamingReader {
+
+    private static final int MAP_KEY = 0;
+    private static final int MAP_VALUE = 1;
+    private static final int LIST = 2;
+
+    private final Reader source;
+    private final @Nullable Positions positions;
+    private final Parser parser;
+    private final Resolver resolver = new Resolver();
+    private final Scalars scalars = new Scalars();
+
+    /**
+     * Enclosing collections, from the outermost
+     */
+    private int[] stack = new int[16];
+    private int depth = 0;
+
+    /**
+     * Create a reader of a YAML document, without sections
+     *
+     * @param reader Document
+     */
+    YamlStreamingReader(Reader reader) {
+        this.source = reader;
+        this.positions = null;
+        this.parser = new ParserImpl(new StreamReader(reader));
+    }
+
+    /**
+     * Create a reader of a YAML file, giving the sections of lazy values
+     *
+     * @param file   File
+     * @param reader Reader of the file, from its start
+     */
+    YamlStreamingReader(File file, Reader reader) {
+        this.positions = new Positions(file);
+        this.source = new CountingReader(reader, positions);
+        this.parser = new ParserImpl(new StreamReader(source));
+    }
+
+    /**
+     * Gets the next event, skipping stream and document boundaries
+     */
+    private Event event() {
+        Event event = parser.peekEvent();
+        while (event.is(Event.ID.StreamStart) || event.is(Event.ID.DocumentStart)) {
+            parser.getEvent();
+            event = parser.peekEvent();
+        }
+        return event;
+    }
+
+    @Override
+    public Token peek() throws IOException {
+        Event event = event();
+        switch (event.getEventId()) {
+            case MappingStart:
+                return Token.BEGIN_MAP;
+            case MappingEnd:
+                return Token.END_MAP;
+            case SequenceStart:
+                return Token.BEGIN_LIST;
+            case SequenceEnd:
+                return Token.END_LIST;
+            case Scalar:
+                return depth > 0 && stack[depth - 1] == MAP_KEY ? Token.KEY : Token.SCALAR;
+            case Alias:
+                throw new IOException("Anchors and aliases cannot be streamed " + event.getStartMark());
+            default:
+                return Token.END_DOCUMENT;
+        }
+    }
+
+    /**
+     * Consume an event of the given type
+     */
+    private Event next(Event.ID id) throws IOException {
+        Event event = event();
+        if (!event.is(id)) {
+            throw new IOException("Expected " + id + " but was " + event.getEventId() + " " + event.getStartMark());
+        }
+        return parser.getEvent();
+    }
+
+    private void push(int type) {
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+        }
+        stack[depth++] = type;
+    }
+
+    /**
+     * A value has been read, the enclosing map now expects a key
+     */
+    private void valueRead() {
+        if (depth > 0 && stack[depth - 1] == MAP_VALUE) {
+            stack[depth - 1] = MAP_KEY;
+        }
+    }
+
+    @Override
+    public void beginMap() throws IOException {
+        next(Event.ID.MappingStart);
+        push(MAP_KEY);
+    }
+
+    @Override
+    public void endMap() throws IOException {
+        next(Event.ID.MappingEnd);
+        depth--;
+        valueRead();
+    }
+
+    @Override
+    public void beginList() throws IOException {
+        next(Event.ID.SequenceStart);
+        push(LIST);
+    }
+
+    @Override
+    public void endList() throws IOException {
+        next(Event.ID.SequenceEnd);
+        depth--;
+        valueRead();
+    }
+
+    @Override
+    public String nextKey() throws IOException {
+        if (depth == 0 || stack[depth - 1] != MAP_KEY) {
+            throw new IOException("Expected a key " + event().getStartMark());
+        }
+        ScalarEvent event = (ScalarEvent) next(Event.ID.Scalar);
+        stack[depth - 1] = MAP_VALUE;
+        return event.getValue();
+    }
+
+    @Override
+    public @Nullable Object nextScalar() throws IOException {
+        ScalarEvent event = (ScalarEvent) next(Event.ID.Scalar);
+        valueRead();
+
+        Tag tag = event.getTag() == null || event.getTag().equals("!")
+                ? resolver.resolve(NodeId.scalar, event.getValue(), event.getImplicit().canOmitTagInPlainScalar())
+                : new Tag(event.getTag());
+        return scalars.construct(new ScalarNode(tag, event.getValue(), event.getStartMark(), event.getEndMark(), event.getScalarStyle()));
+    }
+
+    @Override
+    public void skipValue() throws IOException {
+        skipEvents();
+        valueRead();
+    }
+
+    @Override
+    public @Nullable Section section() throws IOException {
+        if (positions == null) {
+            return null;
+        }
+        Mark start = event().getStartMark();
+        Mark end = skipEvents().getEndMark();
+        valueRead();
+        return new TextSection(positions.text(start.getIndex(), end.getIndex(), start.getColumn()));
+    }
+
+    /**
+     * Consume the events of the next value, without constructing scalars
+     *
+     * @return Last event of the value
+     */
+    private Event skipEvents() throws IOException {
+        int nested = 0;
+        Event event;
+        do {
+            event = parser.getEvent();
+            if (event.is(Event.ID.MappingStart) || event.is(Event.ID.SequenceStart)) {
+                nested++;
+            } else if (event.is(Event.ID.MappingEnd) || event.is(Event.ID.SequenceEnd)) {
+                nested--;
+            } else if (event.is(Event.ID.Alias)) {
+                throw new IOException("Anchors and aliases cannot be streamed " + event.getStartMark());
+            }
+        } while (nested > 0);
+        return event;
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+
+    /**
+     * Byte offsets of a file at some code point indexes, the unit of SnakeYAML marks
+     */
+    private static final class Positions {
+
+        /**
+         * Minimal number of code points between two recorded positions
+         */
+        private static final int INTERVAL = 8192;
+
+        private final File file;
+        private final long length;
+        private final long modified;
+
+        private long[] codePoints = new long[64];
+        private long[] bytes = new long[64];
+        private int size = 1;
+
+        private Positions(File file) {
+            this.file = file;
+            this.length = file.length();
+            this.modified = file.lastModified();
+        }
+
+        /**
+         * Record the byte offset of a code point index, if far enough from the previous one
+         */
+        private void record(long codePoint, long byteOffset) {
+            if (codePoint - codePoints[size - 1] < INTERVAL) {
+                return;
+            }
+            if (size == codePoints.length) {
+                codePoints = Arrays.copyOf(codePoints, size * 2);
+                bytes = Arrays.copyOf(bytes, size * 2);
+            }
+            codePoints[size] = codePoint;
+            bytes[size] = byteOffset;
+            size++;
+        }
+
+        /**
+         * Gets the last recorded position before a code point index
+         */
+        private int before(long codePoint) {
+            int index = Arrays.binarySearch(codePoints, 0, size, codePoint);
+            return index >= 0 ? index : -index - 2;
+        }
+
+        /**
+         * Copy the text of a section from the file being read
+         *
+         * @param start  Code point index of the start of the section
+         * @param end    Code point index of the end of the section
+         * @param column Column of the start of the section
+         * @return Text of the section, indented as in the file
+         * @throws IOException if the file cannot be read or changed while it was read
+         */
+        private String text(int start, int end, int column) throws IOException {
+            if (file.length() != length || file.lastModified() != modified) {
+                throw new IOException("File " + file + " changed while it was loaded, the section cannot be read");
+            }
+
+            int position = before(start);
+            StringBuilder text = new StringBuilder(column + end - start);
+            for (int i = 0; i < column; i++) {
+                // Indentation of the first line, for block collections
+                text.append(' ');
+            }
+
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                channel.position(bytes[position]);
+                Reader reader = Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), -1);
+                long index = codePoints[position];
+                char[] buffer = new char[8192];
+                int read;
+                while (index < end && (read = reader.read(buffer)) > 0) {
+                    for (int i = 0; i < read && index < end; i++) {
+                        char c = buffer[i];
+                        if (index >= start) {
+                            text.append(c);
+                        }
+                        if (!Character.isHighSurrogate(c)) {
+                            index++;
+                        }
+                    }
+                }
+            }
+            return text.toString();
+        }
+    }
+
+    /**
+     * Reader recording the byte offset of the file every few thousands code points
+     */
+    private static final class CountingReader extends FilterReader {
+        private final Positions positions;
+        private long codePoints;
+        private long bytes;
+
+        private CountingReader(Reader reader, Positions positions) {
+            super(reader);
+            this.positions = positions;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            // A surrogate pair is counted on its second char, so that a pair split by two reads is
+            // recorded before its first byte
+            positions.record(codePoints, bytes);
+            int read = super.read(buffer, offset, length);
+            for (int i = offset; i < offset + read; i++) {
+                char c = buffer[i];
+                if (c < 0x80) {
+                    bytes++;
+                    codePoints++;
+                } else if (c < 0x800) {
+                    bytes += 2;
+                    codePoints++;
+                } else if (Character.isLowSurrogate(c)) {
+                    bytes += 4;
+                    codePoints++;
+                } else if (!Character.isHighSurrogate(c)) {
+                    bytes += 3;
+                    codePoints++;
+                }
+            }
+            return read;
+        }
+
+        @Override
+        public int read() throws IOException {
+            char[] buffer = new char[1];
+            return read(buffer, 0, 1) < 0 ? -1 : buffer[0];
+        }
+    }
+
+    /**
+     * Section holding the text of a value
+     */
+    private static final class TextSection implements Section {
+        private final String text;
+
+        private TextSection(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public StreamingReader open() {
+            return new YamlStreamingReader(new StringReader(text));
+        }
+    }
+
+    /**
+     * Construct scalars with the SnakeYAML safe constructors, without remembering constructed nodes
+     */
+    private static final class Scalars extends SafeConstructor {
+        private Object construct(ScalarNode node) {
+            return getConstructor(node).construct(node);
+        }
+    }
+}
@@ -18,20 +18,38 @@
 package com.github.hexocraft.configurate;
 
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.spongepowered.configurate.ConfigurateException;
+import org.spongepowered.configurate.ConfigurationNode;
 
 import java.awt.*;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 
 class YamlConfigurationTest {
 
     public static File output = Paths.get("..", "target", "tmp", "config.yaml").toFile();
     public static File outputCopy = Paths.get("..", "target", "tmp", "configCopy.yaml").toFile();
+    public static File outputWatch = Paths.get("..", "target", "tmp", "configWatch.yaml").toFile();
 
     @BeforeAll
     public static void init() throws IOException {
@@ -160,4 +178,744 @@ class YamlConfigurationTest {
         });
     }
 
-}
\ No newline at end of file
+    @Test
+    public void SaveModeTest() {
+        Assertions.assertDoesNotThrow(() -> {
+            // Delete config file
+            Files.deleteIfExists(output.toPath());
+
+            // Save and force to disk
+            YamlBaseConfig config = new YamlBaseConfig(output);
+            config.setSaveMode(SaveMode.SYNC);
+            config.getDatabase().host = "sync";
+            config.save();
+            Assertions.assertEquals("sync", new YamlBaseConfig(output).load().getDatabase().host);
+
+            // Save with group commit, the file is replaced and the snapshot published once committed
+            config.setSaveMode(SaveMode.GROUP_COMMIT);
+            config.getDatabase().host = "group";
+            GroupCommit.window(1, TimeUnit.HOURS);
+            try {
+                config.save();
+                Assertions.assertEquals("sync", config.getSnapshot().node("database", "host").getString());
+                Assertions.assertEquals("sync", new YamlBaseConfig(output).load().getDatabase().host);
+                GroupCommit.flush();
+            } finally {
+                GroupCommit.window(GroupCommit.DEFAULT_WINDOW, TimeUnit.MILLISECONDS);
+            }
+            Assertions.assertEquals("group", config.getSnapshot().node("database", "host").getString());
+            Assertions.assertEquals("group", new YamlBaseConfig(output).load().getDatabase().host);
+
+            // No temporary file must be left behind
+            File[] temporary = output.getParentFile().listFiles((dir, name) -> name.startsWith("." + output.getName()) && name.endsWith(".tmp"));
+            Assertions.assertNotNull(temporary);
+            Assertions.assertEquals(0, temporary.length);
+        });
+    }
+
+    @Test
+    public void FailedSaveTest() {
+        Assertions.assertDoesNotThrow(() -> {
+            // Delete config file
+            Files.deleteIfExists(output.toPath());
+
+            YamlFailingConfig config = new YamlFailingConfig(output);
+            config.save();
+            byte[] saved = Files.readAllBytes(output.toPath());
+
+            // The emitter fails while writing, the file must be kept as is whatever the save mode
+            for (SaveMode mode : SaveMode.values()) {
+                config.setSaveMode(mode);
+                config.host = mode.name();
+                config.failing = new YamlFailingConfig.Failing(true);
+                Assertions.assertThrows(ConfigurateException.class, config::save);
+                GroupCommit.flush();
+                Assertions.assertArrayEquals(saved, Files.readAllBytes(output.toPath()));
+            }
+
+            // No temporary file must be left behind
+            File[] temporary = output.getParentFile().listFiles((dir, name) -> name.startsWith("." + output.getName()) && name.endsWith(".tmp"));
+            Assertions.assertNotNull(temporary);
+            Assertions.assertEquals(0, temporary.length);
+
+            // The next save goes through
+            config.setSaveMode(SaveMode.ATOMIC);
+            config.failing = new YamlFailingConfig.Failing(false);
+            Assertions.assertTrue(config.save());
+            Assertions.assertEquals("GROUP_COMMIT", new YamlFailingConfig(output).load().host);
+        });
+    }
+
+    @Test
+    public void SavePermissionsTest() {
+        Assumptions.assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+        Assertions.assertDoesNotThrow(() -> {
+            // Delete config file
+            Files.deleteIfExists(output.toPath());
+
+            YamlBaseConfig config = new YamlBaseConfig(output);
+            config.save();
+
+            // Replacing the file keeps its permissions, whatever the save mode
+            for (String permissions : new String[]{"rw-r--r--", "rw-r-----", "rw-rw-r--"}) {
+                Files.setPosixFilePermissions(output.toPath(), PosixFilePermissions.fromString(permissions));
+                for (SaveMode mode : SaveMode.values()) {
+                    config.setSaveMode(mode);
+                    config.version++;
+                    Assertions.assertTrue(config.save());
+                    GroupCommit.flush();
+                    Assertions.assertEquals(permissions, PosixFilePermissions.toString(Files.getPosixFilePermissions(output.toPath())));
+                }
+            }
+        });
+    }
+
+    @Test
+    public void SkipUnchangedSaveTest() {
+        Assertions.assertDoesNotThrow(() -> {
+            // Delete config file
+            Files.deleteIfExists(output.toPath());
+
+            // First save always write the file
+            YamlBaseConfig config = new YamlBaseConfig(output);
+            Assertions.assertTrue(config.save());
+
+            // Nothing changed
+            Assertions.assertFalse(config.save());
+
+            // Changes must be written
+            config.getDatabase().port = 3307;
+            Assertions.assertTrue(config.save());
+            Assertions.assertFalse(config.save());
+
+            // A loaded configuration is up to date
+            long modified = output.lastModified();
+            config = new YamlBaseConfig(output).load();
+            Assertions.assertEquals(3307, config.getDatabase().port);
+            Assertions.assertFalse(config.save());
+            Assertions.assertFalse(config.save());
+            Assertions.assertEquals(modified, output.lastModified());
+
+            // Changes made after loading must be written
+            config.getDatabase().port = 3308;
+            Assertions.assertTrue(config.save());
+            Assertions.assertEquals(3308, new YamlBaseConfig(output).load().getDatabase().port);
+
+            // A deleted file must be written again
+            Files.deleteIfExists(output.toPath());
+            Assertions.assertTrue(config.save());
+            Assertions.assertTrue(output.exists());
+        });
+    }
+
+    @Test
+    public void SaveAsyncTest() {
+        Assertions.assertDoesNotThrow(() -> {
+            // Delete config file
+            Files.deleteIfExists(output.toPath());
+
+            // Saves in the same window are coalesced
+            WriteBehind.window(1, TimeUnit.SECONDS);
+            try {
+                YamlBaseConfig config = new YamlBaseConfig(output);
+                CompletableFuture<Boolean> first = config.saveAsync();
+                config.getDatabase().host = "async";
+                CompletableFuture<Boolean> second = config.saveAsync();
+                Assertions.assertSame(first, second);
+
+                // Flush write the latest state
+                WriteBehind.flush();
+                Assertions.assertTrue(second.get());
+                Assertions.assertEquals("async", new YamlBaseConfig(output).load().getDatabase().host);
+
+                // Nothing changed
+                CompletableFuture<Boolean> third = config.saveAsync();
+                WriteBehind.flush();
+                Assertions.assertFalse(third.get());
+            } finally {
+                WriteBehind.window(WriteBehind.DEFAULT_WINDOW, TimeUnit.MILLISECONDS);
+            }
+        });
+    }
+
+    @Test
+    public void ReloadTest() {
+        Assertions.assertDoesNotThrow(() -> {
+            // Delete config file
+            Files.deleteIfExists(output.toPath());
+
+            YamlBaseConfig config = new YamlBaseConfig(output);
+            YamlBaseConfig.Database database = config.getDatabase();
+            config.save();
+            Color color = config.color;
+
+            // Nothing changed
+            Assertions.assertFalse(config.reload());
+
+            // Only changed values are updated, other objects are kept
+            String content = new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8);
+            Files.write(output.toPath(), content.replace("3306", "3307").replace("version: 1", "version: 2").getBytes(StandardCharsets.UTF_8));
+            Assertions.assertTrue(config.reload());
+            Assertions.assertEquals(2, config.version);
+            Assertions.assertSame(database, config.getDatabase());
+            Assertions.assertEquals(3307, database.port);
+            Assertions.assertEquals("localhost", database.host);
+            Assertions.assertSame(color, config.color);
+
+            // A value which cannot be deserialized leaves the configuration untouched
+            content = new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8);
+            Files.write(output.toPath(), content.replace("version: 2", "version: 3").replace("3307", "invalid").getBytes(StandardCharsets.UTF_8));
+            Assertions.assertThrows(ConfigurateException.class, config::reload);
+            Assertions.assertEquals(2, config.version);
+            Assertions.assertEquals(3307, database.port);
+        });
+    }
+
+    @Test
+    public void SnapshotTest() {
+        Assertions.assertDoesNotThrow(() -> {
+            // Delete config file
+            Files.deleteIfExists(output.toPath());
+
+            YamlBaseConfig config = new YamlBaseConfig(output);
+            config.getDatabase().port = 3307;
+            config.save();
+            ConfigurationSnapshot<?> snapshot = config.getSnapshot();
+            Assertions.assertNotNull(snapshot);
+            Assertions.assertEquals(3307, snapshot.node("database", "port").getInt());
+
+            // Saves publish a new snapshot and leave the previous one untouched
+            config.getDatabase().port = 3308;
+            config.save();
+            Assertions.assertNotSame(snapshot, config.getSnapshot());
+            Assertions.assertEquals(3307, snapshot.node("database", "port").getInt());
+            Assertions.assertEquals(3308, config.getSnapshot().node("database", "port").getInt());
+
+            // Keys read the current snapshot
+            ConfigurationKey<Integer> port = ConfigurationKey.of("database.port", Integer.class);
+            Assertions.assertEquals(3308, config.get(port));
+            Assertions.assertSame(port.node(config), port.node(config));
+
+            // Values are cached per snapshot, reading another configuration keeps them
+            ConfigurationNode node = port.node(config);
+            YamlBaseConfig other = new YamlBaseConfig(output).load();
+            Assertions.assertEquals(3308, other.get(port));
+            Assertions.assertSame(node, port.node(config));
+            Assertions.assertNotSame(node, port.node(other));
+            config.getDatabase().port = 3309;
+            config.save();
+            Assertions.assertEquals(3309, config.get(port));
+        });
+    }
+
+    @Test
+    public void LoadInPlaceTest() {
+        Assertions.assertDoesNotThrow(() -> {
+            // Delete config file
+            Files.deleteIfExists(output.toPath());
+
+            YamlBaseConfig config = new YamlBaseConfig(output);
+            YamlBaseConfig.Database database = config.getDatabase();
+            config.save();
+            Color color = config.color;
+
+            // The same instance is returned
+            config.setLoadMode(LoadMode.IN_PLACE);
+            Assertions.assertSame(config, config.load());
+            Assertions.assertSame(database, config.getDatabase());
+
+            // Changed objects are replaced, other objects are kept
+            String content = new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8);
+            Files.write(output.toPath(), content.replace("3306", "3307").getBytes(StandardCharsets.UTF_8));
+            Assertions.assertSame(config, config.load());
+            Assertions.assertNotSame(database, config.getDatabase());
+            Assertions.assertEquals(3306, database.port);
+            Assertions.assertEquals(3307, config.getDatabase().port);
+            Assertions.assertSame(color, config.color);
+
+            // Values changed in memory are overwritten by the file
+            content = new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8);
+            Files.write(output.toPath(), content.replace("version: 1", "version: 7").getBytes(StandardCharsets.UTF_8));
+            config.version = 99;
+            config.load();
+            Assertions.assertEquals(7, config.version);
+            config.version = 99;
+            config.load();
+            Assertions.assertEquals(7, config.version);
+
+            // Values removed from the file are reset to their default value
+            Files.write(output.toPath(), content.replace("version: 1\n", "").getBytes(StandardCharsets.UTF_8));
+            config.load();
+            Assertions.assertTrue(config.getRoot().node("version").virtual());
+            Assertions.assertEquals(1, config.version);
+            Assertions.assertEquals(3307, config.getDatabase().port);
+        });
+    }
+
+    @Test
+    public void IndexTest() {
+        Assertions.assertDoesNotThrow(() -> {
+            // Delete config file
+            Files.deleteIfExists(output.toPath());
+
+            YamlBaseConfig config = new YamlBaseConfig(output);
+            config.getDatabase();
+            config.setIndexed(true);
+            config.save();
+
+            ConfigurationIndex index = config.getIndex();
+            Assertions.assertNotNull(index);
+            Assertions.assertEquals(3306, index.getInt("database.port", 0));
+            Assertions.assertEquals("localhost", index.getString("database.host", null));
+            Assertions.assertEquals(1L, index.getLong("version", 0));
+            Assertions.assertEquals(0, index.getInt("database.user", 0));
+            Assertions.assertEquals(0, index.getInt("database.host", 0));
+            Assertions.assertEquals(3, index.hits());
+            Assertions.assertEquals(2, index.misses());
+
+            // Reloads index changes, counters are kept
+            String content = new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8);
+            Files.write(output.toPath(), content.replace("3306", "3307").getBytes(StandardCharsets.UTF_8));
+            config.reload();
+            Assertions.assertNotSame(index, config.getIndex());
+            Assertions.assertEquals(3307, config.getIndex().getInt("database.port", 0));
+            Assertions.assertEquals(3306, index.getInt("database.port", 0));
+            Assertions.assertEquals(5, config.getIndex().hits());
+
+            // Numeric strings are converted, values out of the int range are rejected
+            content = new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8);
+            Files.write(output.toPath(), content.replace("localhost", "'4000000000'").getBytes(StandardCharsets.UTF_8));
+            config.reload();
+            Assertions.assertEquals(4000000000L, config.getIndex().getLong("database.host", 0));
+            Assertions.assertThrows(ArithmeticException.class, () -> config.getIndex().getInt("database.host", 0));
+            Files.write(output.toPath(), content.replace("localhost", "'-1.5e3'").getBytes(StandardCharsets.UTF_8));
+            config.reload();
+            Assertions.assertEquals(-1500.0, config.getIndex().getDouble("database.host", 0), 0.0);
+            Assertions.assertEquals(0, config.getIndex().getInt("database.host", 0));
+
+            // Numbers out of the long range are only converted to doubles
+            Files.write(output.toPath(), content.replace("localhost", "18446744073709551621").getBytes(StandardCharsets.UTF_8));
+            config.reload();
+            Assertions.assertEquals(0x1p64, config.getIndex().getDouble("database.host", 0), 0.0);
+            Assertions.assertEquals(-1L, config.getIndex().getLong("database.host", -1));
+            Assertions.assertEquals(-1, config.getIndex().getInt("database.host", -1));
+            Files.write(output.toPath(), content.replace("localhost", "1.0e+20").getBytes(StandardCharsets.UTF_8));
+            config.reload();
+            Assertions.assertEquals(1e20, config.getIndex().getDouble("database.host", 0), 0.0);
+            Assertions.assertEquals(-1L, config.getIndex().getLong("database.host", -1));
+            Files.write(output.toPath(), content.replace("localhost", "-9.223372036854775808e+18").getBytes(StandardCharsets.UTF_8));
+            config.reload();
+            Assertions.assertEquals(Long.MIN_VALUE, config.getIndex().getLong("database.host", 0));
+        });
+    }
+
+    @Test
+    public void WatchTest() {
+        Assertions.assertDoesNotThrow(() -> {
+            // Delete config file
+            Files.deleteIfExists(outputWatch.toPath());
+
+            YamlBaseConfig config = new YamlBaseConfig(outputWatch);
+            config.save();
+
+            BlockingQueue<YamlBaseConfig> reloaded = new LinkedBlockingQueue<>();
+            ConfigurationWatcher.Registration registration = config.watch(reloaded::add);
+            try {
+                // Our own writes do not trigger a reload
+                config.getDatabase().port = 3307;
+                config.save();
+                Assertions.assertNull(reloaded.poll(1, TimeUnit.SECONDS));
+
+                // Changes made by someone else do
+                String content = new String(Files.readAllBytes(outputWatch.toPath()), StandardCharsets.UTF_8);
+                Files.write(outputWatch.toPath(), content.replace("3307", "3308").getBytes(StandardCharsets.UTF_8));
+                YamlBaseConfig changed = reloaded.poll(30, TimeUnit.SECONDS);
+                Assertions.assertNotNull(changed);
+                Assertions.assertEquals(3308, changed.getDatabase().port);
+            } finally {
+                registration.close();
+            }
+        });
+    }
+
+    @Test
+    public void CacheTest() {
+        Assertions.assertDoesNotThrow(() -> {
+            // Delete config and cache files
+            Files.deleteIfExists(output.toPath());
+            Files.deleteIfExists(BinaryCache.file(output));
+
+            YamlBaseConfig config = new YamlBaseConfig(output);
+            config.getDatabase().host = "cached";
+            config.save();
+
+            // The first load writes the cache file
+            YamlBaseConfig parsed = new YamlBaseConfig(output);
+            parsed.setCached(true);
+            parsed = parsed.load();
+            Assertions.assertTrue(Files.exists(BinaryCache.file(output)));
+
+            // The next load reads the same node tree from the cache file
+            YamlBaseConfig cached = new YamlBaseConfig(output);
+            cached.setCached(true);
+            cached = cached.load();
+            Assertions.assertEquals(parsed.getRoot(), cached.getRoot());
+            Assertions.assertEquals("cached", cached.getDatabase().host);
+
+            // A file changed with the same size and modification time is parsed again
+            long modified = output.lastModified();
+            String content = new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8);
+            Files.write(output.toPath(), content.replace("cached", "parsed").getBytes(StandardCharsets.UTF_8));
+            Assertions.assertTrue(output.setLastModified(modified));
+            cached = new YamlBaseConfig(output);
+            cached.setCached(true);
+            Assertions.assertEquals("parsed", cached.load().getDatabase().host);
+
+            // A cache file with an invalid string length is a cache miss
+            byte[] bytes = Files.readAllBytes(BinaryCache.file(output));
+            int index = new String(bytes, StandardCharsets.ISO_8859_1).indexOf("parsed");
+            Assertions.assertTrue(index >= 4);
+            bytes[index - 4] = 0x7f;
+            Files.write(BinaryCache.file(output), bytes);
+            cached = new YamlBaseConfig(output);
+            cached.setCached(true);
+            Assertions.assertEquals("parsed", cached.load().getDatabase().host);
+        });
+    }
+
+    @Test
+    public void StreamTest() {
+        Assertions.assertDoesNotThrow(() -> {
+            // Delete config file
+            Files.deleteIfExists(output.toPath());
+
+            YamlBaseConfig config = new YamlBaseConfig(output);
+            config.getDatabase().host = "streamed";
+            config.save();
+
+            // Add a section which is not mapped
+            String content = new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8);
+            Files.write(output.toPath(), content.replace("database:", "extra:\n  enabled: true\n  items:\n  - a\n  - b\ndatabase:").getBytes(StandardCharsets.UTF_8));
+
+            // Values are bound while reading, unknown values are kept
+            YamlBaseConfig streamed = new YamlBaseConfig(output);
+            streamed.setStreamMode(StreamMode.KEEP_UNKNOWN);
+            streamed = streamed.load();
+            Assertions.assertEquals("streamed", streamed.getDatabase().host);
+            Assertions.assertEquals(3306, streamed.getDatabase().port);
+            Assertions.assertEquals(config.color, streamed.color);
+            Assertions.assertTrue(streamed.getRoot().node("extra", "enabled").getBoolean());
+            Assertions.assertEquals("b", streamed.getRoot().node("extra", "items", 1).getString());
+
+            // The snapshot only holds the unknown values until saved
+            Assertions.assertTrue(streamed.getRoot().node("database").virtual());
+            streamed.save();
+            Assertions.assertEquals("streamed", streamed.getRoot().node("database", "host").getString());
+            Assertions.assertFalse(streamed.save());
+
+            // Unknown values are saved back
+            streamed.getDatabase().port = 3307;
+            streamed.save();
+            YamlBaseConfig loaded = new YamlBaseConfig(output).load();
+            Assertions.assertEquals(3307, loaded.getDatabase().port);
+            Assertions.assertTrue(loaded.getRoot().node("extra", "enabled").getBoolean());
+
+            // Unknown values can be skipped
+            YamlBaseConfig skipped = new YamlBaseConfig(output);
+            skipped.setStreamMode(StreamMode.SKIP_UNKNOWN);
+            skipped = skipped.load();
+            Assertions.assertEquals(3307, skipped.getDatabase().port);
+            Assertions.assertTrue(skipped.getRoot().node("extra").virtual());
+            Assertions.assertTrue(skipped.getRoot().node("database").virtual());
+
+            // Custom serializers of mapped objects are used when streaming too
+            Files.write(output.toPath(), "database:\n  host: db\n  port: 3309\n".getBytes(StandardCharsets.UTF_8));
+            YamlCustomConfig custom = new YamlCustomConfig(output);
+            custom.setStreamMode(StreamMode.SKIP_UNKNOWN);
+            custom = custom.load();
+            Assertions.assertEquals("custom-db", custom.database.host);
+            Assertions.assertEquals(3309, custom.database.port);
+
+            // An empty file keeps the default values
+            Files.write(output.toPath(), new byte[0]);
+            YamlBaseConfig empty = new YamlBaseConfig(output);
+            empty.setStreamMode(StreamMode.SKIP_UNKNOWN);
+            Assertions.assertEquals(1, empty.load().version);
+        });
+    }
+
+    @Test
+    public void LazyTest() {
+        Assertions.assertDoesNotThrow(() -> {
+            // Delete config file
+            Files.deleteIfExists(output.toPath());
+
+            YamlLazyConfig config = new YamlLazyConfig(output);
+            config.database.host = "primary-\u00e9\ud83d\ude00";
+            config.replica.get().host = "replica";
+            config.save();
+
+            // Sections are deserialized when first used
+            YamlLazyConfig loaded = new YamlLazyConfig(output).load();
+            Assertions.assertFalse(loaded.replica.isLoaded());
+            Assertions.assertEquals("replica", loaded.replica.get().host);
+
+            // Streamed sections are not parsed by the load, whatever is kept
+            for (StreamMode mode : new StreamMode[]{StreamMode.KEEP_UNKNOWN, StreamMode.SKIP_UNKNOWN}) {
+                YamlLazyConfig skipped = new YamlLazyConfig(output);
+                skipped.setStreamMode(mode);
+                skipped = skipped.load();
+                Assertions.assertFalse(skipped.replica.isLoaded());
+                Assertions.assertTrue(skipped.replica.isUnread());
+                Assertions.assertTrue(skipped.getRoot().node("replica").virtual());
+            }
+
+            // Streamed sections are only read when first used
+            YamlLazyConfig streamed = new YamlLazyConfig(output);
+            streamed.setStreamMode(StreamMode.SKIP_UNKNOWN);
+            streamed = streamed.load();
+            Assertions.assertEquals("primary-\u00e9\ud83d\ude00", streamed.database.host);
+            Assertions.assertFalse(streamed.replica.isLoaded());
+            Assertions.assertEquals("replica", streamed.replica.get().host);
+            Assertions.assertFalse(streamed.replica.isUnread());
+            Assertions.assertEquals(3306, streamed.replica.get().port);
+
+            // Sections never used are saved back as they were read
+            streamed = new YamlLazyConfig(output);
+            streamed.setStreamMode(StreamMode.SKIP_UNKNOWN);
+            streamed = streamed.load();
+            streamed.database.port = 3307;
+            streamed.save();
+            loaded = new YamlLazyConfig(output).load();
+            Assertions.assertEquals(3307, loaded.database.port);
+            Assertions.assertEquals("replica", loaded.replica.get().host);
+
+            // Sections are read as loaded, even if the file changed since
+            YamlLazyConfig stale = new YamlLazyConfig(output);
+            stale.setStreamMode(StreamMode.SKIP_UNKNOWN);
+            stale = stale.load();
+            Files.write(output.toPath(), "# changed\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+            Assertions.assertEquals("replica", stale.replica.get().host);
+
+            // Sections never used are saved back as loaded after the file changed
+            stale = new YamlLazyConfig(output);
+            stale.setStreamMode(StreamMode.SKIP_UNKNOWN);
+            stale = stale.load();
+            String content = new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8);
+            Assertions.assertTrue(content.contains("host: replica"));
+            Files.write(output.toPath(), content.replace("host: replica", "host: edited").getBytes(StandardCharsets.UTF_8));
+            stale.database.port = 3308;
+            stale.save();
+            Assertions.assertFalse(stale.replica.isLoaded());
+            loaded = new YamlLazyConfig(output).load();
+            Assertions.assertEquals(3308, loaded.database.port);
+            Assertions.assertEquals("replica", loaded.replica.get().host);
+        });
+    }
+
+    @Test
+    public void BulkLoadTest() {
+        Assertions.assertDoesNotThrow(() -> {
+            File directory = Paths.get("..", "target", "tmp", "bulk").toFile();
+            Files.createDirectories(directory.toPath());
+            for (File file : directory.listFiles()) {
+                Files.delete(file.toPath());
+            }
+
+            // Save many files, one of them broken
+            for (int i = 0; i < 20; i++) {
+                YamlBaseConfig config = new YamlBaseConfig(new File(directory, String.format("config-%02d.yaml", i)));
+                config.getDatabase().port = 3000 + i;
+                config.save();
+            }
+            Files.write(new File(directory, "config-20.yaml").toPath(), "database: [".getBytes(StandardCharsets.UTF_8));
+
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                List<BulkLoader.Result<YamlBaseConfig>> results = BulkLoader.of(YamlBaseConfig::new).executor(executor).loadDirectory(directory, "*.yaml");
+
+                // Results are in the order of the files, the broken file does not stop the others
+                Assertions.assertEquals(21, results.size());
+                for (int i = 0; i < 20; i++) {
+                    BulkLoader.Result<YamlBaseConfig> result = results.get(i);
+                    Assertions.assertTrue(result.isSuccess());
+                    Assertions.assertEquals(3000 + i, result.get().getDatabase().port);
+                    Assertions.assertEquals(result.file(), result.get().getFile());
+                }
+                Assertions.assertFalse(results.get(20).isSuccess());
+                Assertions.assertNotNull(results.get(20).error());
+                Assertions.assertThrows(ConfigurateException.class, () -> results.get(20).get());
+            } finally {
+                executor.shutdown();
+            }
+        });
+    }
+
+    @Test
+    public void ConfigurationCacheTest() {
+        Assertions.assertDoesNotThrow(() -> {
+            File directory = Paths.get("..", "target", "tmp", "cache").toFile();
+            Files.createDirectories(directory.toPath());
+            File a = new File(directory, "a.yaml");
+            File b = new File(directory, "b.yaml");
+            File c = new File(directory, "c.yaml");
+            File broken = new File(directory, "broken.yaml");
+            for (File file : new File[]{a, b, c}) {
+                new YamlBaseConfig(file).save();
+            }
+            Files.write(broken.toPath(), "database: [".getBytes(StandardCharsets.UTF_8));
+
+            ConfigurationCache<YamlBaseConfig> cache = ConfigurationCache.of(YamlBaseConfig::new, 2);
+            YamlBaseConfig configA = cache.get(a);
+            cache.get(b);
+            Assertions.assertSame(configA, cache.get(a));
+
+            // Least recently used configuration is evicted
+            configA.getDatabase().port = 4000;
+            Assertions.assertTrue(cache.markDirty(a));
+            cache.pin(c);
+            Assertions.assertNull(cache.getIfPresent(b));
+
+            // Dirty configurations are saved when evicted
+            cache.get(b);
+            Assertions.assertNull(cache.getIfPresent(a));
+            Assertions.assertEquals(4000, new YamlBaseConfig(a).loadFrom(a).getDatabase().port);
+
+            // Pinned configurations are not evicted
+            cache.get(a);
+            Assertions.assertNotNull(cache.getIfPresent(c));
+            cache.unpin(c);
+            Assertions.assertThrows(IllegalStateException.class, () -> cache.unpin(c));
+
+            Assertions.assertThrows(ConfigurateException.class, () -> cache.get(broken));
+            Assertions.assertEquals(2, cache.size());
+
+            ConfigurationCache.Stats stats = cache.stats();
+            Assertions.assertEquals(2, stats.hits());
+            Assertions.assertEquals(8, stats.misses());
+            Assertions.assertEquals(1, stats.loadFailures());
+            Assertions.assertEquals(3, stats.evictions());
+            Assertions.assertEquals(1, stats.writeBacks());
+            Assertions.assertEquals(2, stats.weight());
+
+            // Added configurations are saved when invalidated
+            YamlBaseConfig configB = new YamlBaseConfig(b);
+            configB.getDatabase().port = 5000;
+            cache.put(b, configB);
+            cache.invalidateAll();
+            Assertions.assertEquals(0, cache.size());
+            Assertions.assertEquals(5000, new YamlBaseConfig(b).loadFrom(b).getDatabase().port);
+
+            // A configuration added while loading completes the load
+            CountDownLatch loading = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            ConfigurationCache<YamlBaseConfig> slow = ConfigurationCache.of(file -> {
+                loading.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return new YamlBaseConfig(file);
+            }, 2);
+            CompletableFuture<YamlBaseConfig> loaded = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return slow.get(a);
+                } catch (ConfigurateException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            Assertions.assertTrue(loading.await(10, TimeUnit.SECONDS));
+            YamlBaseConfig configPut = new YamlBaseConfig(a);
+            slow.put(a, configPut);
+            Assertions.assertSame(configPut, slow.get(a));
+            release.countDown();
+            Assertions.assertSame(configPut, loaded.get(10, TimeUnit.SECONDS));
+            Assertions.assertSame(configPut, slow.getIfPresent(a));
+            Assertions.assertEquals(1, slow.size());
+            Assertions.assertEquals(1, slow.stats().weight());
+
+            // A configuration which cannot be written back stays in the cache with its changes
+            List<File> failures = new ArrayList<>();
+            ConfigurationCache<YamlFailingConfig> failing = ConfigurationCache.of(YamlFailingConfig::new, 1)
+                    .onWriteBackFailure((file, error) -> failures.add(file));
+            YamlFailingConfig configFailing = failing.get(a);
+            configFailing.host = "changed";
+            configFailing.failing = new YamlFailingConfig.Failing(true);
+            failing.markDirty(a);
+            failing.get(b);
+            Assertions.assertEquals(Collections.singletonList(a), failures);
+            Assertions.assertEquals(1, failing.stats().writeBackFailures());
+            Assertions.assertSame(configFailing, failing.get(a));
+            configFailing.failing = new YamlFailingConfig.Failing(false);
+            failing.flush();
+            Assertions.assertEquals("changed", new YamlFailingConfig(a).load().host);
+        });
+    }
+
+    @Test
+    public void MetricsTest() {
+        Assertions.assertDoesNotThrow(() -> {
+            File broken = Paths.get("..", "target", "tmp", "broken.yaml").toFile();
+            Files.write(broken.toPath(), "database: [".getBytes(StandardCharsets.UTF_8));
+            Files.deleteIfExists(output.toPath());
+
+            HistogramMetrics metrics = new HistogramMetrics();
+            AbstractConfiguration.setMetrics(metrics);
+            try {
+                YamlBaseConfig config = new YamlBaseConfig(output);
+                config.save();
+                config = config.load();
+                Assertions.assertThrows(ConfigurateException.class, () -> new YamlBaseConfig(broken).load());
+            } finally {
+                AbstractConfiguration.setMetrics(ConfigurationMetrics.NONE);
+            }
+
+            // Per configuration and per format
+            Assertions.assertEquals(2, metrics.get(YamlBaseConfig.class, ConfigurationMetrics.Phase.READ).durations().count());
+            Assertions.assertEquals(1, metrics.get(YamlBaseConfig.class, ConfigurationMetrics.Phase.READ).errors());
+            Assertions.assertEquals(1, metrics.get(YamlBaseConfig.class, ConfigurationMetrics.Phase.MAP).durations().count());
+            Assertions.assertEquals(1, metrics.get(YamlBaseConfig.class, ConfigurationMetrics.Phase.SERIALIZE).durations().count());
+            Assertions.assertEquals(output.length(), metrics.get("Yaml", ConfigurationMetrics.Phase.WRITE).bytes());
+            Assertions.assertTrue(metrics.get("Yaml", ConfigurationMetrics.Phase.READ).durations().max() > 0);
+            Assertions.assertEquals(output.length(), metrics.get(YamlBaseConfig.class, ConfigurationMetrics.Phase.READ).bytes());
+
+            // Bytes are the ones read from the cache file, or written before a group commit replaces the file
+            Files.deleteIfExists(BinaryCache.file(output));
+            YamlBaseConfig parsed = new YamlBaseConfig(output);
+            parsed.setCached(true);
+            parsed.load();
+            HistogramMetrics transfers = new HistogramMetrics();
+            AbstractConfiguration.setMetrics(transfers);
+            GroupCommit.window(1, TimeUnit.HOURS);
+            try {
+                YamlBaseConfig cached = new YamlBaseConfig(output);
+                cached.setCached(true);
+                cached = cached.load();
+                Assertions.assertEquals(Files.size(BinaryCache.file(output)), transfers.get("Yaml", ConfigurationMetrics.Phase.READ).bytes());
+
+                long length = output.length();
+                cached.getDatabase().host = "a-longer-host-name";
+                cached.setSaveMode(SaveMode.GROUP_COMMIT);
+                cached.save();
+                Assertions.assertEquals(length, output.length());
+                long written = transfers.get("Yaml", ConfigurationMetrics.Phase.WRITE).bytes();
+                GroupCommit.flush();
+                Assertions.assertEquals(output.length(), written);
+                Assertions.assertNotEquals(length, written);
+            } finally {
+                GroupCommit.window(GroupCommit.DEFAULT_WINDOW, TimeUnit.MILLISECONDS);
+                AbstractConfiguration.setMetrics(ConfigurationMetrics.NONE);
+            }
+
+            // Percentiles are within a few percents
+            HistogramMetrics.Histogram histogram = new HistogramMetrics.Histogram();
+            for (int i = 1; i <= 100_000; i++) {
+                histogram.record(i * 1000L);
+            }
+            Assertions.assertEquals(50_000_000, histogram.percentile(50), 50_000_000 * 0.04);
+            Assertions.assertEquals(99_000_000, histogram.percentile(99), 99_000_000 * 0.04);
+            Assertions.assertEquals(100_000_000, histogram.percentile(100));
+        });
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate;
+
+import com.github.hexocraft.configurate.yaml.YamlConfiguration;
+import io.leangen.geantyref.TypeToken;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.spongepowered.configurate.ConfigurateException;
+import org.spongepowered.configurate.ConfigurationNode;
+import org.spongepowered.configurate.ConfigurationOptions;
+import org.spongepowered.configurate.objectmapping.ConfigSerializable;
+import org.spongepowered.configurate.serialize.SerializationException;
+import org.spongepowered.configurate.serialize.TypeSerializer;
+
+import java.io.File;
+import java.lang.reflect.Type;
+
+/**
+ * Configuration whose database section is read by a custom serializer
+ */
+@ConfigSerializable
+public class YamlCustomConfig extends YamlConfiguration<YamlCustomConfig> {
+
+    private static final ConfigurationOptions OPTIONS = ConfigurationOptions.defaults()
+            .serializers(builder -> builder.register(YamlBaseConfig.Database.class, new DatabaseSerializer()));
+
+    public YamlBaseConfig.Database database = new YamlBaseConfig.Database();
+
+    public YamlCustomConfig(@NonNull File file) throws ConfigurateException {
+        super(TypeToken.get(YamlCustomConfig.class), file, OPTIONS, null);
+    }
+
+    public YamlCustomConfig() throws ConfigurateException {
+        super(TypeToken.get(YamlCustomConfig.class), null, OPTIONS, null);
+    }
+
+    private static final class DatabaseSerializer implements TypeSerializer<YamlBaseConfig.Database> {
+        @Override
+        public YamlBaseConfig.Database deserialize(Type type, ConfigurationNode node) throws SerializationException {
+            YamlBaseConfig.Database database = new YamlBaseConfig.Database();
+            database.host = "custom-" + node.node("host").getString();
+            database.port = node.node("port").getInt();
+            return database;
+        }
+
+        @Override
+        public void serialize(Type type, YamlBaseConfig.@Nullable Database value, ConfigurationNode node) throws SerializationException {
+            node.node("host").set(value != null ? value.host : null);
+            node.node("port").set(value != null ? value.port : null);
+        }
+    }
+}
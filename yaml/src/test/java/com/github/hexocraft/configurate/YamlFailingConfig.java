@@ -0,0 +1,85 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate;
+
+import com.github.hexocraft.configurate.yaml.YamlConfiguration;
+import io.leangen.geantyref.TypeToken;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.spongepowered.configurate.ConfigurateException;
+import org.spongepowered.configurate.ConfigurationNode;
+import org.spongepowered.configurate.ConfigurationOptions;
+import org.spongepowered.configurate.objectmapping.ConfigSerializable;
+import org.spongepowered.configurate.serialize.TypeSerializer;
+
+import java.io.File;
+import java.lang.reflect.Type;
+
+/**
+ * Configuration whose node tree cannot be emitted once {@link #failing} is set
+ */
+@ConfigSerializable
+public class YamlFailingConfig extends YamlConfiguration<YamlFailingConfig> {
+
+    private static final ConfigurationOptions OPTIONS = ConfigurationOptions.defaults()
+            .serializers(builder -> builder.register(Failing.class, new FailingSerializer()));
+
+    public String host = "localhost";
+
+    public Failing failing = new Failing(false);
+
+    public YamlFailingConfig(@NonNull File file) throws ConfigurateException {
+        super(TypeToken.get(YamlFailingConfig.class), file, OPTIONS, null);
+    }
+
+    public YamlFailingConfig() throws ConfigurateException {
+        super(TypeToken.get(YamlFailingConfig.class), null, OPTIONS, null);
+    }
+
+    public static class Failing {
+        public final boolean fail;
+
+        public Failing(boolean fail) {
+            this.fail = fail;
+        }
+    }
+
+    /**
+     * Bean which the YAML emitter cannot represent
+     */
+    public static class Unrepresentable {
+        public String getValue() {
+            throw new IllegalStateException("Cannot be represented");
+        }
+
+        public void setValue(String value) {
+        }
+    }
+
+    private static final class FailingSerializer implements TypeSerializer<Failing> {
+        @Override
+        public Failing deserialize(Type type, ConfigurationNode node) {
+            return new Failing(false);
+        }
+
+        @Override
+        public void serialize(Type type, @Nullable Failing value, ConfigurationNode node) {
+            // Mapped as any other value, the emitter fails while writing the file
+            node.raw(value != null && value.fail ? new Unrepresentable() : "ok");
+        }
+    }
+}
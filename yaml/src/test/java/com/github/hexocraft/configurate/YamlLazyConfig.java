@@ -0,0 +1,44 @@
+/**
+ *    Copyright 2015-2020 hexosse <hexosse@gmail.com>
+ *
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.github.hexocraft.configurate;
+
+import com.github.hexocraft.configurate.yaml.YamlConfiguration;
+import io.leangen.geantyref.TypeToken;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.spongepowered.configurate.ConfigurateException;
+import org.spongepowered.configurate.objectmapping.ConfigSerializable;
+import org.spongepowered.configurate.objectmapping.meta.Comment;
+
+import java.io.File;
+
+@ConfigSerializable
+public class YamlLazyConfig extends YamlConfiguration<YamlLazyConfig> {
+
+    @Comment("Database")
+    public YamlBaseConfig.Database database = new YamlBaseConfig.Database();
+
+    @Comment("Replica database, read when first used")
+    public Lazy<YamlBaseConfig.Database> replica = Lazy.of(new YamlBaseConfig.Database());
+
+    public YamlLazyConfig(@NonNull File file) throws ConfigurateException {
+        super(TypeToken.get(YamlLazyConfig.class), file);
+    }
+
+    public YamlLazyConfig() throws ConfigurateException {
+        super(TypeToken.get(YamlLazyConfig.class));
+    }
+}